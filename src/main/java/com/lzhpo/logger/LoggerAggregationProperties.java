@@ -0,0 +1,51 @@
+/*
+ * Copyright lzhpo
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.lzhpo.logger;
+
+import java.time.Duration;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * The aggregation configurations, the identical {@link LoggerEvent}s within a window are collapsed into one.
+ *
+ * @author lzhpo
+ */
+@Data
+@ConfigurationProperties(prefix = "logger.aggregation")
+public class LoggerAggregationProperties {
+
+    /**
+     * Whether to collapse the events with the same method, operatorId, businessId, message and success within the
+     * window.
+     */
+    private boolean enabled = false;
+
+    /**
+     * The window from the first event of a key, the collapsed event is published once the window elapsed.
+     */
+    private Duration window = Duration.ofSeconds(1);
+
+    /**
+     * The tick of the time wheel, the collapsed event is published at most one tick later than its window.
+     */
+    private Duration tick = Duration.ofMillis(100);
+
+    /**
+     * The maximum number of keys being aggregated, the events of new keys are published directly if exceeded.
+     */
+    private int maxKeys = 10000;
+}
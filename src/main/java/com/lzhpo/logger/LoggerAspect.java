@@ -16,28 +16,33 @@
 package com.lzhpo.logger;
 
 import cn.hutool.core.util.IdUtil;
-import cn.hutool.extra.spring.SpringUtil;
+import com.lzhpo.logger.aggregation.LoggerEventAggregator;
 import com.lzhpo.logger.annotation.Logger;
+import com.lzhpo.logger.context.LoggerAttribute;
 import com.lzhpo.logger.context.LoggerContextHolder;
 import com.lzhpo.logger.context.LoggerElementKey;
 import com.lzhpo.logger.context.LoggerEvaluationContext;
 import com.lzhpo.logger.context.LoggerExpressionEvaluator;
+import com.lzhpo.logger.context.LoggerMethodMetadata;
+import com.lzhpo.logger.publisher.LoggerEventPublisher;
+import com.lzhpo.logger.sampling.LoggerSampling;
+import com.lzhpo.logger.shedding.LoggerLoadShedding;
+import com.lzhpo.logger.shedding.LoggerSheddingLevel;
 import java.lang.reflect.Method;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Date;
 import java.util.Optional;
-import java.util.concurrent.CompletableFuture;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.aspectj.lang.ProceedingJoinPoint;
 import org.aspectj.lang.annotation.Around;
 import org.aspectj.lang.annotation.Aspect;
 import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.aop.framework.AopProxyUtils;
 import org.springframework.beans.factory.ObjectProvider;
-import org.springframework.core.ParameterNameDiscoverer;
 import org.springframework.stereotype.Component;
 import org.springframework.util.CollectionUtils;
-import org.springframework.util.StringUtils;
 
 /**
  * @author lzhpo
@@ -49,7 +54,14 @@ import org.springframework.util.StringUtils;
 @RequiredArgsConstructor
 public class LoggerAspect {
 
+    private static final ThreadLocal<LoggerEvaluationContext> PRELUDE_CONTEXT = ThreadLocal.withInitial(LoggerEvaluationContext::new);
+
     private final ObjectProvider<OperatorAware> operatorAwareObjectProvider;
+    private final LoggerExpressionEvaluator evaluator;
+    private final LoggerEventPublisher publisher;
+    private final LoggerSampling sampling;
+    private final LoggerLoadShedding shedding;
+    private final LoggerEventAggregator aggregator;
 
     /**
      * Around aspect for {@link Logger} annotation.
@@ -61,58 +73,151 @@ public class LoggerAspect {
      */
     @Around("@annotation(logger)")
     public Object doAround(ProceedingJoinPoint joinPoint, Logger logger) throws Throwable {
+        long startNanos = System.nanoTime();
+        LoggerMethodMetadata metadata = getMethodMetadata(joinPoint, logger);
+        if (!metadata.isNeverLog() && (!sampling.isSampled(metadata) || !shedding.isSampled())) {
+            return proceedUnsampled(joinPoint, metadata);
+        }
+
+        if (metadata.isNeverLog() || (metadata.isPreludeCondition() && !evalPreludeCondition(joinPoint, metadata))) {
+            try {
+                return joinPoint.proceed();
+            } finally {
+                LoggerContextHolder.clearContextIfNecessary();
+            }
+        }
+
         LoggerEvent event = new LoggerEvent(this);
         event.setCreateTime(new Date(event.getTimestamp()));
         event.setErrors(new ArrayList<>());
 
-        if (logger.prelude()) {
-            resolveLogger(joinPoint, logger, event);
+        if (metadata.isPrelude()) {
+            resolveLogger(joinPoint, metadata, event);
         }
 
+        long proceedStartNanos = System.nanoTime();
         try {
             Object result = joinPoint.proceed();
-            event.setResult(logger.returning() && !logger.prelude() ? result : null);
+            event.setResult(metadata.isReturning() && !metadata.isPrelude() ? result : null);
             return result;
         } catch (Throwable e) {
             event.getErrors().add(new Exception(e.getMessage(), e));
             throw e;
         } finally {
-            if (!logger.prelude()) {
-                resolveLogger(joinPoint, logger, event);
+            long proceedNanos = System.nanoTime() - proceedStartNanos;
+            if (!metadata.isPrelude()) {
+                resolveLogger(joinPoint, metadata, event);
             }
 
             LoggerContextHolder.clearContext();
-            if (event.isCondition()) {
-                CompletableFuture.runAsync(() -> SpringUtil.publishEvent(event))
-                        .thenRunAsync(() -> log.debug("Published LoggerEvent."))
-                        .exceptionally(e -> {
-                            log.error("Publishing LoggerEvent error: {}", e.getMessage(), e);
-                            return null;
-                        });
+            publishEvent(metadata, event);
+            shedding.recordOverhead(System.nanoTime() - startNanos - proceedNanos);
+        }
+    }
+
+    /**
+     * Proceed the unsampled invocation, nothing is evaluated or allocated unless it failed, the failure is always logged.
+     *
+     * <p>The failed invocation is resolved after proceeding even if {@link Logger#prelude()}, so the expressions see the
+     * arguments as modified by the method.
+     *
+     * @param joinPoint {@link ProceedingJoinPoint}
+     * @param metadata  {@link LoggerMethodMetadata}
+     * @return the result
+     * @throws Throwable if the invoked proceed throws anything
+     */
+    private Object proceedUnsampled(ProceedingJoinPoint joinPoint, LoggerMethodMetadata metadata) throws Throwable {
+        long startMillis = System.currentTimeMillis();
+        try {
+            return joinPoint.proceed();
+        } catch (Throwable e) {
+            if (!metadata.isPreludeCondition() || evalPreludeCondition(joinPoint, metadata)) {
+                LoggerEvent event = new LoggerEvent(this);
+                event.setCreateTime(new Date(startMillis));
+                event.setErrors(new ArrayList<>());
+                event.getErrors().add(new Exception(e.getMessage(), e));
+                resolveLogger(joinPoint, metadata, event);
+
+                LoggerContextHolder.clearContext();
+                publishEvent(metadata, event);
             }
+            throw e;
+        } finally {
+            LoggerContextHolder.clearContextIfNecessary();
         }
     }
 
     /**
-     * Resolve {@link Logger} annotation and publish {@link LoggerEvent}.
+     * Publish {@code event} if its condition is true, through the {@link LoggerEventAggregator} if enabled.
+     *
+     * @param metadata {@link LoggerMethodMetadata}
+     * @param event    {@link LoggerEvent}
+     */
+    private void publishEvent(LoggerMethodMetadata metadata, LoggerEvent event) {
+        if (event.isCondition() && !aggregator.aggregate(metadata, event)) {
+            publisher.publish(event);
+        }
+    }
+
+    /**
+     * Get the cached {@link LoggerMethodMetadata} of the intercepted method.
      *
      * @param joinPoint {@link ProceedingJoinPoint}
      * @param logger    {@link Logger}
+     * @return {@link LoggerMethodMetadata}
+     */
+    private LoggerMethodMetadata getMethodMetadata(ProceedingJoinPoint joinPoint, Logger logger) {
+        Method method = ((MethodSignature) joinPoint.getSignature()).getMethod();
+        Class<?> targetClass = AopProxyUtils.ultimateTargetClass(joinPoint.getTarget());
+        return evaluator.getMethodMetadata(method, targetClass, logger);
+    }
+
+    /**
+     * Evaluate the condition before proceeding, without creating event or touching the thread local context.
+     *
+     * <p>The evaluation context is reused by the invocations on the same thread, so a false condition allocates nothing
+     * once the condition has been compiled.
+     *
+     * @param joinPoint {@link ProceedingJoinPoint}
+     * @param metadata  {@link LoggerMethodMetadata}
+     * @return the evaluated condition, false if evaluate failed
+     */
+    private boolean evalPreludeCondition(ProceedingJoinPoint joinPoint, LoggerMethodMetadata metadata) {
+        LoggerEvaluationContext context = PRELUDE_CONTEXT.get();
+        // The condition calls another @Logger method, the context of this thread is in use
+        boolean reentrant = context.getMetadata() != null;
+        if (reentrant) {
+            context = new LoggerEvaluationContext();
+        }
+
+        try {
+            context.bind(joinPoint.getThis(), metadata, joinPoint.getArgs());
+            return evaluator.evalCondition(metadata, context);
+        } catch (Exception e) {
+            log.error("Evaluate condition error: {}", e.getMessage(), e);
+            return false;
+        } finally {
+            context.unbind();
+        }
+    }
+
+    /**
+     * Resolve {@link Logger} annotation and publish {@link LoggerEvent}.
+     *
+     * <p>The detail is degraded by the current {@link LoggerSheddingLevel}, the diff results are dropped, and the
+     * {@code message} and {@code additional} of the low-priority categories are not evaluated.
+     *
+     * @param joinPoint {@link ProceedingJoinPoint}
+     * @param metadata  {@link LoggerMethodMetadata}
      * @param event     {@link LoggerEvent}
      */
-    private void resolveLogger(ProceedingJoinPoint joinPoint, Logger logger, LoggerEvent event) {
+    private void resolveLogger(ProceedingJoinPoint joinPoint, LoggerMethodMetadata metadata, LoggerEvent event) {
+        LoggerSheddingLevel level = shedding.getLevel();
         try {
-            Object object = joinPoint.getThis();
-            MethodSignature signature = (MethodSignature) joinPoint.getSignature();
-            Method method = signature.getMethod();
-            Object[] args = joinPoint.getArgs();
-
-            LoggerExpressionEvaluator evaluator = new LoggerExpressionEvaluator();
-            ParameterNameDiscoverer discoverer = evaluator.getParameterNameDiscoverer();
-            LoggerElementKey elementKey = new LoggerElementKey(object, method, event.getResult(), args, discoverer);
+            LoggerElementKey elementKey = new LoggerElementKey(joinPoint.getThis(), metadata, event.getResult(), joinPoint.getArgs());
             LoggerEvaluationContext context = LoggerContextHolder.getContext(elementKey);
 
-            boolean condition = Boolean.parseBoolean(evalExpression(logger.condition(), event, context, evaluator));
+            boolean condition = metadata.isPreludeCondition() || Boolean.parseBoolean(evalExpression(metadata, LoggerAttribute.CONDITION, event, context));
             event.setCondition(condition);
             if (!condition) {
                 log.debug("The resolved condition is false in @Logger.");
@@ -121,17 +226,19 @@ public class LoggerAspect {
 
             event.setLogId(IdUtil.fastSimpleUUID());
             event.setSuccess(CollectionUtils.isEmpty(event.getErrors()));
-            event.setOperatorId(getOperatorId(logger.operatorId(), event, context, evaluator));
-            event.setTag(evalExpression(logger.tag(), event, context, evaluator));
-            event.setMessage(evalExpression(logger.message(), event, context, evaluator));
-            event.setCategory(evalExpression(logger.category(), event, context, evaluator));
-            event.setBusinessId(evalExpression(logger.businessId(), event, context, evaluator));
-            event.setAdditional(evalExpression(logger.additional(), event, context, evaluator));
+            event.setOperatorId(getOperatorId(metadata, event, context));
+            event.setTag(evalExpression(metadata, LoggerAttribute.TAG, event, context));
+            event.setCategory(evalExpression(metadata, LoggerAttribute.CATEGORY, event, context));
+            event.setBusinessId(evalExpression(metadata, LoggerAttribute.BUSINESS_ID, event, context));
+            if (shedding.isDetailed(level, event.getCategory())) {
+                event.setMessage(evalExpression(metadata, LoggerAttribute.MESSAGE, event, context));
+                event.setAdditional(evalExpression(metadata, LoggerAttribute.ADDITIONAL, event, context));
+            }
         } catch (Exception e) {
             log.error("Resolve @Logger error: {}", e.getMessage(), e);
             event.getErrors().add(e);
         } finally {
-            event.setDiffResults(LoggerContextHolder.getDiffResults());
+            event.setDiffResults(level.isAtLeast(LoggerSheddingLevel.DROP_DIFFS) ? Collections.emptyList() : LoggerContextHolder.getDiffResults());
             event.setTakeTime(System.currentTimeMillis() - event.getCreateTime().getTime());
         }
     }
@@ -139,16 +246,15 @@ public class LoggerAspect {
     /**
      * Get operatorId.
      *
-     * @param operatorId the operatorId
-     * @param event      the logger event
-     * @param context    the logger evaluation context
-     * @param evaluator  the logger expression evaluator
+     * @param metadata the method metadata
+     * @param event    the logger event
+     * @param context  the logger evaluation context
      * @return the operatorId
      */
-    private String getOperatorId(String operatorId, LoggerEvent event, LoggerEvaluationContext context, LoggerExpressionEvaluator evaluator) {
-        return Optional.ofNullable(operatorId)
-                .filter(StringUtils::hasText)
-                .map(operator -> evalExpression(operator, event, context, evaluator))
+    private String getOperatorId(LoggerMethodMetadata metadata, LoggerEvent event, LoggerEvaluationContext context) {
+        return Optional.of(metadata.getAttributeExpression(LoggerAttribute.OPERATOR_ID))
+                .filter(attributeExpression -> !attributeExpression.isEmpty())
+                .map(attributeExpression -> evalExpression(metadata, LoggerAttribute.OPERATOR_ID, event, context))
                 .orElseGet(() -> Optional.ofNullable(operatorAwareObjectProvider.getIfAvailable())
                         .map(OperatorAware::getCurrentOperatorId)
                         .orElseGet(() -> {
@@ -158,21 +264,21 @@ public class LoggerAspect {
     }
 
     /**
-     * Evaluate condition expression to get result.
+     * Evaluate the expression of {@code attribute} to get result.
      *
-     * @param expression the condition expression
-     * @param event      the logger event
-     * @param context    the logger evaluation context
-     * @param evaluator  the logger expression evaluator
+     * @param metadata  the method metadata
+     * @param attribute the attribute of expression
+     * @param event     the logger event
+     * @param context   the logger evaluation context
      * @return the evaluated result
      */
-    private String evalExpression(String expression, LoggerEvent event, LoggerEvaluationContext context, LoggerExpressionEvaluator evaluator) {
+    private String evalExpression(LoggerMethodMetadata metadata, LoggerAttribute attribute, LoggerEvent event, LoggerEvaluationContext context) {
         try {
-            return evaluator.evalExpression(expression, context);
+            return evaluator.evalExpression(metadata, attribute, context);
         } catch (Exception exception) {
             log.error("Evaluate expression error: {}", exception.getMessage(), exception);
             event.getErrors().add(exception);
-            return expression;
+            return metadata.getAttributeExpression(attribute).getExpressionString();
         }
     }
 }
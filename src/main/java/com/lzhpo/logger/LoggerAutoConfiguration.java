@@ -15,6 +15,17 @@
  */
 package com.lzhpo.logger;
 
+import com.lzhpo.logger.aggregation.LoggerEventAggregator;
+import com.lzhpo.logger.context.LoggerExpressionEvaluator;
+import com.lzhpo.logger.publisher.DefaultLoggerEventDispatcher;
+import com.lzhpo.logger.publisher.ExecutorLoggerEventPublisher;
+import com.lzhpo.logger.publisher.RingBufferLoggerEventPublisher;
+import com.lzhpo.logger.publisher.SpoolLoggerEventPublisher;
+import com.lzhpo.logger.publisher.StripedLoggerEventPublisher;
+import com.lzhpo.logger.sampling.LoggerSampling;
+import com.lzhpo.logger.shedding.LoggerLoadShedding;
+import com.lzhpo.logger.sink.FileLoggerSink;
+import com.lzhpo.logger.sink.JdbcLoggerSink;
 import org.springframework.boot.autoconfigure.AutoConfiguration;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Import;
@@ -23,6 +34,29 @@ import org.springframework.context.annotation.Import;
  * @author lzhpo
  */
 @AutoConfiguration
-@EnableConfigurationProperties({LoggerDiffProperties.class})
-@Import({LoggerFunctionRegistrar.class, LoggerAspect.class})
+@EnableConfigurationProperties({
+    LoggerAggregationProperties.class,
+    LoggerDiffProperties.class,
+    LoggerExpressionProperties.class,
+    LoggerPublisherProperties.class,
+    LoggerSamplingProperties.class,
+    LoggerSheddingProperties.class,
+    LoggerSinkProperties.class
+})
+@Import({
+    LoggerFunctionRegistrar.class,
+    LoggerExpressionEvaluator.class,
+    LoggerExpressionInitializer.class,
+    DefaultLoggerEventDispatcher.class,
+    ExecutorLoggerEventPublisher.class,
+    RingBufferLoggerEventPublisher.class,
+    StripedLoggerEventPublisher.class,
+    SpoolLoggerEventPublisher.class,
+    JdbcLoggerSink.class,
+    FileLoggerSink.class,
+    LoggerSampling.class,
+    LoggerLoadShedding.class,
+    LoggerEventAggregator.class,
+    LoggerAspect.class
+})
 public class LoggerAutoConfiguration {}
@@ -0,0 +1,37 @@
+/*
+ * Copyright lzhpo
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.lzhpo.logger;
+
+import java.util.List;
+
+/**
+ * Receive {@link LoggerEvent} in batches, flushed when {@code logger.publisher.batch.max-batch-size} events
+ * accumulated or the oldest event waited {@code logger.publisher.batch.max-latency}, whichever comes first.
+ *
+ * <p>Any bean implements this interface will be discovered, the remaining events are flushed on context shutdown,
+ * before the beans are destroyed. The batches are delivered one at a time by a single thread, in publishing order.
+ *
+ * @author lzhpo
+ */
+public interface LoggerBatchListener {
+
+    /**
+     * Handle a batch of events.
+     *
+     * @param events the events in publishing order, never empty
+     */
+    void onEvents(List<LoggerEvent> events);
+}
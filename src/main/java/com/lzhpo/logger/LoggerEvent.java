@@ -101,6 +101,21 @@ public class LoggerEvent extends ApplicationEvent {
      */
     private List<DiffObjectResult> diffResults;
 
+    /**
+     * The number of identical events collapsed into this event by aggregation, 1 if not aggregated.
+     */
+    private int count = 1;
+
+    /**
+     * The create time of the first collapsed event, null if not aggregated.
+     */
+    private Date firstTime;
+
+    /**
+     * The create time of the last collapsed event, null if not aggregated.
+     */
+    private Date lastTime;
+
     public LoggerEvent(Object source) {
         super(source);
     }
@@ -0,0 +1,147 @@
+/*
+ * Copyright lzhpo
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.lzhpo.logger;
+
+import cn.hutool.core.util.StrUtil;
+import com.lzhpo.logger.LoggerExpressionProperties.StartupValidation;
+import com.lzhpo.logger.annotation.Logger;
+import com.lzhpo.logger.context.LoggerAttribute;
+import com.lzhpo.logger.context.LoggerAttributeExpression;
+import com.lzhpo.logger.context.LoggerExpressionEvaluator;
+import com.lzhpo.logger.context.LoggerMethodMetadata;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicBoolean;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.core.MethodIntrospector;
+import org.springframework.core.annotation.AnnotationUtils;
+import org.springframework.stereotype.Component;
+import org.springframework.util.ClassUtils;
+
+/**
+ * Pre-parse and validate all {@link Logger} expressions of beans on startup.
+ *
+ * <p>Runs once all singletons are instantiated and {@link LoggerFunctionRegistrar} has registered the functions,
+ * so the first invocations will not pay the parse cost, and invalid expressions are reported before serving.
+ *
+ * @author lzhpo
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class LoggerExpressionInitializer implements ApplicationListener<ContextRefreshedEvent> {
+
+    private final ConfigurableListableBeanFactory beanFactory;
+    private final LoggerExpressionEvaluator evaluator;
+    private final LoggerExpressionProperties expressionProperties;
+    private final AtomicBoolean initialized = new AtomicBoolean();
+
+    @Override
+    public void onApplicationEvent(ContextRefreshedEvent event) {
+        StartupValidation validation = expressionProperties.getStartupValidation();
+        if (validation == StartupValidation.OFF || !initialized.compareAndSet(false, true)) {
+            return;
+        }
+
+        List<String> problems = new ArrayList<>();
+        int methodCount = 0;
+        for (String beanName : beanFactory.getBeanDefinitionNames()) {
+            Class<?> targetClass = getTargetClass(beanName);
+            if (Objects.isNull(targetClass)) {
+                continue;
+            }
+
+            Map<Method, Logger> loggerMethods =
+                    MethodIntrospector.selectMethods(targetClass, (MethodIntrospector.MetadataLookup<Logger>)
+                            method -> AnnotationUtils.getAnnotation(method, Logger.class));
+
+            for (Map.Entry<Method, Logger> entry : loggerMethods.entrySet()) {
+                LoggerMethodMetadata metadata =
+                        evaluator.getMethodMetadata(entry.getKey(), targetClass, entry.getValue());
+                problems.addAll(validate(metadata));
+                methodCount++;
+            }
+        }
+
+        log.info("Pre-parsed @Logger expressions of {} methods, found {} problems.", methodCount, problems.size());
+        if (problems.isEmpty()) {
+            return;
+        }
+
+        if (validation == StartupValidation.FAIL_FAST) {
+            throw new IllegalStateException(StrUtil.format(
+                    "Found {} invalid @Logger expressions:\n{}", problems.size(), String.join("\n", problems)));
+        }
+        problems.forEach(problem -> log.warn("Invalid @Logger expression: {}", problem));
+    }
+
+    /**
+     * Validate all attribute expressions of {@code metadata}.
+     *
+     * @param metadata {@link LoggerMethodMetadata}
+     * @return the problems, empty if all valid
+     */
+    private List<String> validate(LoggerMethodMetadata metadata) {
+        List<String> problems = new ArrayList<>();
+        Map<String, Method> functions = LoggerFunctionRegistrar.getRegisteredFunctions();
+        String methodName = ClassUtils.getQualifiedMethodName(metadata.getMethod(), metadata.getTargetClass());
+
+        for (LoggerAttribute attribute : LoggerAttribute.values()) {
+            LoggerAttributeExpression attributeExpression = metadata.getAttributeExpression(attribute);
+            String expression = attributeExpression.getExpressionString();
+            if (attributeExpression.getParseException() != null) {
+                String message = attributeExpression.getParseException().getMessage();
+                problems.add(StrUtil.format("{} {} [{}]: {}", methodName, attribute, expression, message));
+                continue;
+            }
+
+            attributeExpression.getFunctionNames().stream()
+                    .filter(functionName -> !functions.containsKey(functionName))
+                    .map(functionName -> StrUtil.format(
+                            "{} {} [{}]: unknown function #{}", methodName, attribute, expression, functionName))
+                    .forEach(problems::add);
+        }
+        return problems;
+    }
+
+    /**
+     * Get the user class of bean without instantiating it.
+     *
+     * @param beanName the bean name
+     * @return the target class, null if cannot be determined or is a JDK dynamic proxy
+     */
+    private Class<?> getTargetClass(String beanName) {
+        try {
+            Class<?> beanType = beanFactory.getType(beanName, false);
+            if (Objects.isNull(beanType) || Proxy.isProxyClass(beanType)) {
+                return null;
+            }
+            return ClassUtils.getUserClass(beanType);
+        } catch (BeansException e) {
+            log.debug("Cannot determine the type of bean=[{}]: {}", beanName, e.getMessage());
+            return null;
+        }
+    }
+}
@@ -0,0 +1,89 @@
+/*
+ * Copyright lzhpo
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.lzhpo.logger;
+
+import java.time.Duration;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.expression.spel.SpelCompilerMode;
+
+/**
+ * The expression configurations.
+ *
+ * @author lzhpo
+ */
+@Data
+@ConfigurationProperties(prefix = "logger.expression")
+public class LoggerExpressionProperties {
+
+    /**
+     * The SpEL compiler mode, compiled expressions are much faster than interpreted.
+     * <ul>
+     *     <li>OFF: always interpreted.</li>
+     *     <li>IMMEDIATE: compiled as soon as possible, failures of compiled expression will be thrown.</li>
+     *     <li>MIXED: compiled after a while, falls back to interpreted if compiled expression failed.</li>
+     * </ul>
+     */
+    private SpelCompilerMode compilerMode = SpelCompilerMode.OFF;
+
+    /**
+     * Whether to parse all attributes of {@code @Logger} as templates, e.g. {@code User #{#id} updated}.
+     * <p>Only the {@code #{}} segments will be evaluated, the remaining text is kept as is.
+     */
+    private boolean templateMode = false;
+
+    /**
+     * How to handle invalid expressions found when pre-parsing all {@code @Logger} methods on startup.
+     */
+    private StartupValidation startupValidation = StartupValidation.WARN;
+
+    /**
+     * The parsed expression cache configurations.
+     */
+    private Cache cache = new Cache();
+
+    @Data
+    public static class Cache {
+
+        /**
+         * The maximum number of parsed expressions to keep, the least recently accessed will be evicted if exceeded.
+         */
+        private int maximumSize = 10000;
+
+        /**
+         * The parsed expression will be evicted if it has not been accessed within this duration, never expire if null.
+         */
+        private Duration expireAfterAccess;
+    }
+
+    public enum StartupValidation {
+
+        /**
+         * Do not pre-parse on startup, expressions will be parsed on first invocation.
+         */
+        OFF,
+
+        /**
+         * Pre-parse on startup, log a warning for each invalid expression.
+         */
+        WARN,
+
+        /**
+         * Pre-parse on startup, fail the startup if there are any invalid expressions.
+         */
+        FAIL_FAST
+    }
+}
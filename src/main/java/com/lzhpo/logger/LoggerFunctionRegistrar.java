@@ -22,6 +22,8 @@ import com.lzhpo.logger.annotation.LoggerComponent;
 import com.lzhpo.logger.annotation.LoggerFunction;
 import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.Map;
 import java.util.Objects;
 import java.util.concurrent.ConcurrentHashMap;
@@ -46,16 +48,31 @@ public class LoggerFunctionRegistrar implements SmartInitializingSingleton, Bean
 
     private ConfigurableListableBeanFactory beanFactory;
     private static final Map<String, Method> REGISTERED_FUNCTIONS = new ConcurrentHashMap<>();
+    private static volatile Map<String, Method> sharedFunctions = Collections.emptyMap();
 
     /**
      * Register the specified {@link Method} as a SpEL function.
      *
+     * <p>Copies every function into {@code context}, prefer looking up {@link #getRegisteredFunctions()} lazily.
+     *
      * @param context {@link StandardEvaluationContext}
      */
     public static void registerFunction(StandardEvaluationContext context) {
         REGISTERED_FUNCTIONS.forEach(context::registerFunction);
     }
 
+    /**
+     * Get all registered functions.
+     *
+     * <p>The returned map is an immutable snapshot built once after all functions registered, shared by all
+     * evaluation contexts.
+     *
+     * @return the registered functions, key is function name
+     */
+    public static Map<String, Method> getRegisteredFunctions() {
+        return sharedFunctions;
+    }
+
     @Override
     public void postProcessBeanFactory(ConfigurableListableBeanFactory beanFactory) throws BeansException {
         this.beanFactory = beanFactory;
@@ -88,6 +105,9 @@ public class LoggerFunctionRegistrar implements SmartInitializingSingleton, Bean
                 REGISTERED_FUNCTIONS.put(functionName, method);
             }
         });
+
+        sharedFunctions = Collections.unmodifiableMap(new HashMap<>(REGISTERED_FUNCTIONS));
+        log.debug("Registered {} functions for @LoggerFunction.", sharedFunctions.size());
     }
     // spotless:on
 }
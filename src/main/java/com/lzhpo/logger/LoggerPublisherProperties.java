@@ -0,0 +1,348 @@
+/*
+ * Copyright lzhpo
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.lzhpo.logger;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+/**
+ * The {@link LoggerEvent} publisher configurations.
+ *
+ * @author lzhpo
+ */
+@Data
+@ConfigurationProperties(prefix = "logger.publisher")
+public class LoggerPublisherProperties {
+
+    /**
+     * How to queue the {@link LoggerEvent} waiting to be published.
+     */
+    private Mode mode = Mode.EXECUTOR;
+
+    /**
+     * How to deliver the {@link LoggerEvent} to its listeners.
+     */
+    private DispatchMode dispatchMode = DispatchMode.DIRECT;
+
+    /**
+     * The number of threads publishing {@link LoggerEvent}.
+     */
+    private int poolSize = 2;
+
+    /**
+     * The maximum number of {@link LoggerEvent} waiting to be published, only for {@link Mode#EXECUTOR} and
+     * {@link Mode#STRIPED}, shared evenly by the lanes of {@link Mode#STRIPED}.
+     */
+    private int queueCapacity = 10000;
+
+    /**
+     * The name prefix of publishing threads.
+     */
+    private String threadNamePrefix = "logger-publisher-";
+
+    /**
+     * Whether publishing and calling listeners on virtual threads, only for JDK 21 or later, fallback to platform
+     * threads on the older JVM. Not for the consumers of {@link Mode#RING_BUFFER}, which spin waiting for events.
+     */
+    private boolean virtualThreads = false;
+
+    /**
+     * How to handle the {@link LoggerEvent} when the queue is full.
+     */
+    private Overflow overflow = new Overflow();
+
+    /**
+     * The maximum duration waiting for the queued {@link LoggerEvent} published on shutdown, the rest are dropped.
+     */
+    private Duration shutdownTimeout = Duration.ofSeconds(10);
+
+    /**
+     * The ring buffer configurations, only for {@link Mode#RING_BUFFER}.
+     */
+    private RingBuffer ringBuffer = new RingBuffer();
+
+    /**
+     * The striped lanes configurations, only for {@link Mode#STRIPED}.
+     */
+    private Striped striped = new Striped();
+
+    /**
+     * The spool journal configurations, only for {@link Mode#SPOOL}.
+     */
+    private Spool spool = new Spool();
+
+    /**
+     * The {@link LoggerBatchListener} configurations.
+     */
+    private Batch batch = new Batch();
+
+    /**
+     * The configurations of isolating listeners from each other, only for {@link DispatchMode#DIRECT}.
+     */
+    private Isolation isolation = new Isolation();
+
+    @Data
+    public static class Striped {
+
+        /**
+         * The events with the same key are delivered in order by the same lane.
+         */
+        private StripeKey key = StripeKey.BUSINESS_ID;
+    }
+
+    @Data
+    public static class Spool {
+
+        /**
+         * The directory of segment files and checkpoint, relative to the working directory if not absolute.
+         */
+        private String directory = "logger-spool";
+
+        /**
+         * The size of each memory-mapped segment file.
+         */
+        private DataSize segmentSize = DataSize.ofMegabytes(64);
+
+        /**
+         * The maximum number of segment files, the spool is full once reached.
+         */
+        private int maxSegments = 16;
+
+        /**
+         * The interval retrying the {@link LoggerEvent} failed to publish.
+         */
+        private Duration retryInterval = Duration.ofSeconds(1);
+
+        /**
+         * The maximum attempts publishing a {@link LoggerEvent}, the event still failed is logged and skipped, so
+         * that an event the listeners always reject does not stop the events behind it. Unlimited if not positive.
+         */
+        private int maxAttempts = 100;
+    }
+
+    @Data
+    @NoArgsConstructor
+    public static class Overflow {
+
+        /**
+         * The policy applied when the queue is full, the business thread waits at most {@link #blockTimeout} by default.
+         */
+        private OverflowPolicy policy = OverflowPolicy.BLOCK;
+
+        /**
+         * The maximum duration the business thread waits for a free slot, only for {@link OverflowPolicy#BLOCK}.
+         */
+        private Duration blockTimeout = Duration.ofMillis(100);
+
+        /**
+         * The maximum estimated bytes of {@link LoggerEvent} waiting to be published, unlimited if not set.
+         */
+        private DataSize maxBytes;
+
+        /**
+         * Start sampling once the queue is occupied over this ratio, only for {@link OverflowPolicy#SAMPLE}.
+         */
+        private double sampleThreshold = 0.8;
+
+        /**
+         * The ratio of events kept while sampling, only for {@link OverflowPolicy#SAMPLE}.
+         */
+        private double sampleRate = 0.1;
+
+        public Overflow(OverflowPolicy policy) {
+            this.policy = policy;
+        }
+    }
+
+    @Data
+    public static class Isolation {
+
+        /**
+         * Whether each listener has its own queue and threads, so that a slow listener never delays the others.
+         */
+        private boolean enabled = false;
+
+        /**
+         * The queue configurations of listeners not configured in {@link #listeners}.
+         */
+        private ListenerQueue defaults = new ListenerQueue();
+
+        /**
+         * The queue configurations of each listener, the key is the bean name of listener or the id of
+         * {@link org.springframework.context.event.EventListener}.
+         */
+        private Map<String, ListenerQueue> listeners = new LinkedHashMap<>();
+    }
+
+    @Data
+    public static class ListenerQueue {
+
+        /**
+         * The number of threads calling the listener.
+         */
+        private int concurrency = 1;
+
+        /**
+         * The maximum number of {@link LoggerEvent} waiting for the listener.
+         */
+        private int queueCapacity = 1000;
+
+        /**
+         * How to handle the {@link LoggerEvent} when the queue is full, drop the event by default so that a stuck
+         * listener never delays the publishing thread, {@link OverflowPolicy#CALLER_RUNS} calls the listener in the
+         * publishing thread.
+         */
+        private Overflow overflow = new Overflow(OverflowPolicy.DROP_NEWEST);
+    }
+
+    @Data
+    public static class Batch {
+
+        /**
+         * Deliver a batch once this number of events accumulated.
+         */
+        private int maxBatchSize = 100;
+
+        /**
+         * Deliver a batch once its oldest event waited this duration.
+         */
+        private Duration maxLatency = Duration.ofSeconds(1);
+    }
+
+    @Data
+    public static class RingBuffer {
+
+        /**
+         * The number of slots preallocated, must be a power of 2.
+         */
+        private int bufferSize = 8192;
+
+        /**
+         * The maximum number of events a consumer drains at once.
+         */
+        private int maxBatchSize = 256;
+
+        /**
+         * How the consumers wait for new events.
+         */
+        private WaitStrategy waitStrategy = WaitStrategy.PARK;
+    }
+
+    public enum Mode {
+
+        /**
+         * Submit every event as a task of a bounded thread pool.
+         */
+        EXECUTOR,
+
+        /**
+         * Put events into a preallocated lock-free ring buffer, consumer threads drain it in batches.
+         */
+        RING_BUFFER,
+
+        /**
+         * Hash the {@link Striped#getKey()} of events to single-threaded lanes, the events with the same key are
+         * published in order.
+         */
+        STRIPED,
+
+        /**
+         * Append events to a memory-mapped journal on the local disk, a consumer thread publishes them in order and
+         * retries until succeeded, the events not published are replayed after restart.
+         */
+        SPOOL
+    }
+
+    public enum StripeKey {
+
+        /**
+         * {@link LoggerEvent#getBusinessId()}
+         */
+        BUSINESS_ID,
+
+        /**
+         * {@link LoggerEvent#getOperatorId()}
+         */
+        OPERATOR_ID
+    }
+
+    public enum DispatchMode {
+
+        /**
+         * Call the listeners of {@link LoggerEvent} resolved at startup directly.
+         */
+        DIRECT,
+
+        /**
+         * Publish through the {@link org.springframework.context.ApplicationEventPublisher}, every
+         * {@link org.springframework.context.ApplicationListener} in the context receives {@link LoggerEvent}.
+         */
+        SPRING
+    }
+
+    public enum WaitStrategy {
+
+        /**
+         * Spin in a loop, the lowest latency but occupies a CPU core for each consumer.
+         */
+        BUSY_SPIN,
+
+        /**
+         * Spin for a while then yield the CPU to other threads.
+         */
+        YIELD,
+
+        /**
+         * Spin, yield, then park for a short while, the lowest CPU usage.
+         */
+        PARK
+    }
+
+    public enum OverflowPolicy {
+
+        /**
+         * Wait for a free slot up to the block timeout, then drop the event.
+         */
+        BLOCK,
+
+        /**
+         * Drop the event being published.
+         */
+        DROP_NEWEST,
+
+        /**
+         * Drop the oldest event waiting in the queue, then retry, drop the event being published as
+         * {@link #DROP_NEWEST} if still full.
+         */
+        DROP_OLDEST,
+
+        /**
+         * Publish the event in the thread of business method, ahead of the events waiting in the queue, so it is not
+         * supported by {@link Mode#STRIPED}.
+         */
+        CALLER_RUNS,
+
+        /**
+         * Keep only a ratio of events once the queue is occupied over the threshold, drop the event if still full.
+         */
+        SAMPLE
+    }
+}
@@ -0,0 +1,67 @@
+/*
+ * Copyright lzhpo
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.lzhpo.logger;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * The sampling configurations, the unsampled invocations proceed without generating {@link LoggerEvent} unless failed.
+ *
+ * @author lzhpo
+ */
+@Data
+@ConfigurationProperties(prefix = "logger.sampling")
+public class LoggerSamplingProperties {
+
+    /**
+     * The sampling rules by name, the method is sampled by the rule named in {@code @Logger(sampling = "xxx")}, or
+     * else by the first rule matched it in the declared order.
+     */
+    private Map<String, Rule> rules = new LinkedHashMap<>();
+
+    @Data
+    public static class Rule {
+
+        /**
+         * Match the method by pattern {@code className#methodName}, support {@code *} wildcards, e.g.
+         * {@code com.example.OrderService#find*}.
+         */
+        private String method;
+
+        /**
+         * Match the method by the literal {@code category} of {@code @Logger}, the expressions are not matched.
+         */
+        private String category;
+
+        /**
+         * Match the method by the literal {@code tag} of {@code @Logger}, the expressions are not matched.
+         */
+        private String tag;
+
+        /**
+         * The probability of an invocation to be sampled, from 0 to 1.
+         */
+        private double rate = 1.0;
+
+        /**
+         * The maximum sampled invocations per second, shared by all methods applied this rule, unlimited if 0.
+         */
+        private double permitsPerSecond = 0;
+    }
+}
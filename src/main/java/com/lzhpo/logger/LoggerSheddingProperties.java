@@ -0,0 +1,91 @@
+/*
+ * Copyright lzhpo
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.lzhpo.logger;
+
+import java.time.Duration;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * The adaptive load shedding configurations, the detail of {@link LoggerEvent} is degraded step by step under pressure.
+ *
+ * @author lzhpo
+ */
+@Data
+@ConfigurationProperties(prefix = "logger.shedding")
+public class LoggerSheddingProperties {
+
+    /**
+     * Whether to shed the detail of {@link LoggerEvent} when the publisher queue or the aspect overhead is too high.
+     */
+    private boolean enabled = false;
+
+    /**
+     * How often to check the pressure, the shedding level changes at most one step per check.
+     */
+    private Duration checkInterval = Duration.ofMillis(500);
+
+    /**
+     * The watermarks of the publisher queue occupancy, the ratio of queue depth to queue capacity.
+     */
+    private Queue queue = new Queue();
+
+    /**
+     * The watermarks of the average overhead of the aspect per logged invocation, excludes the method itself.
+     */
+    private Overhead overhead = new Overhead();
+
+    /**
+     * The categories whose {@code message} and {@code additional} are not evaluated from level
+     * {@code SKIP_DETAILS}.
+     */
+    private Set<String> lowPriorityCategories = new LinkedHashSet<>();
+
+    /**
+     * The probability of a successful invocation to be logged from level {@code SAMPLE}, from 0 to 1.
+     */
+    private double sampleRate = 0.1;
+
+    @Data
+    public static class Queue {
+
+        /**
+         * Shed one more step if the occupancy reached this ratio.
+         */
+        private double highWatermark = 0.8;
+
+        /**
+         * Restore one step if the occupancy below this ratio, and the overhead below its low watermark.
+         */
+        private double lowWatermark = 0.5;
+    }
+
+    @Data
+    public static class Overhead {
+
+        /**
+         * Shed one more step if the average overhead reached this duration.
+         */
+        private Duration highWatermark = Duration.ofNanos(500_000);
+
+        /**
+         * Restore one step if the average overhead below this duration, and the occupancy below its low watermark.
+         */
+        private Duration lowWatermark = Duration.ofNanos(100_000);
+    }
+}
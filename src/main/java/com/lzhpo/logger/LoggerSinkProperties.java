@@ -0,0 +1,105 @@
+/*
+ * Copyright lzhpo
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.lzhpo.logger;
+
+import java.time.Duration;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+/**
+ * The built-in {@link LoggerBatchListener} sinks configurations, the batches are formed by
+ * {@link LoggerPublisherProperties#getBatch()}.
+ *
+ * @author lzhpo
+ */
+@Data
+@ConfigurationProperties(prefix = "logger.sink")
+public class LoggerSinkProperties {
+
+    /**
+     * The JDBC sink configurations.
+     */
+    private Jdbc jdbc = new Jdbc();
+
+    /**
+     * The JSON-lines file sink configurations.
+     */
+    private File file = new File();
+
+    @Data
+    public static class Jdbc {
+
+        /**
+         * Whether writing {@link LoggerEvent} into the database through the {@code JdbcTemplate} bean.
+         */
+        private boolean enabled = false;
+
+        /**
+         * The table of events, see {@code classpath:com/lzhpo/logger/sink/schema.sql}.
+         */
+        private String eventTable = "logger_event";
+
+        /**
+         * The table of diff fields, see {@code classpath:com/lzhpo/logger/sink/schema.sql}.
+         */
+        private String diffTable = "logger_diff";
+
+        /**
+         * The maximum number of rows sent in one JDBC batch, a larger batch of events is split.
+         */
+        private int batchSize = 500;
+    }
+
+    @Data
+    public static class File {
+
+        /**
+         * Whether appending {@link LoggerEvent} to a file as JSON lines.
+         */
+        private boolean enabled = false;
+
+        /**
+         * The path of the file, relative to the working directory if not absolute.
+         */
+        private String path = "logs/logger-events.jsonl";
+
+        /**
+         * Whether forcing the written batch to the storage device, survives the operating system crash but slower.
+         */
+        private boolean force = false;
+
+        /**
+         * The size of the direct buffer the lines are encoded into before written.
+         */
+        private DataSize bufferSize = DataSize.ofKilobytes(64);
+
+        /**
+         * Rotate the file once it reaches this size.
+         */
+        private DataSize maxFileSize = DataSize.ofMegabytes(100);
+
+        /**
+         * Rotate the file once it has been written for this duration, never rotate by time if not set.
+         */
+        private Duration rotationInterval;
+
+        /**
+         * Whether compressing the rotated files with gzip.
+         */
+        private boolean gzip = false;
+    }
+}
@@ -0,0 +1,279 @@
+/*
+ * Copyright lzhpo
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.lzhpo.logger.aggregation;
+
+import cn.hutool.core.thread.ThreadFactoryBuilder;
+import com.lzhpo.logger.LoggerAggregationProperties;
+import com.lzhpo.logger.LoggerEvent;
+import com.lzhpo.logger.context.LoggerMethodMetadata;
+import com.lzhpo.logger.publisher.AbstractLoggerEventPublisher;
+import com.lzhpo.logger.publisher.LoggerEventPublisher;
+import java.util.Date;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+import org.springframework.util.Assert;
+
+/**
+ * Collapse the identical {@link LoggerEvent}s within a window into one, the events are identical if they have the
+ * same method, operatorId, businessId, message and success.
+ *
+ * <p>The first event of a key is held in a {@link ConcurrentHashMap} and scheduled into a {@link LoggerTimeWheel},
+ * the later events of the key within the window are only counted. Once the window elapsed, the first event is
+ * published with the {@code count}, {@code firstTime} and {@code lastTime} of the collapsed events, an event not
+ * collapsed with any other is published as is.
+ *
+ * <p>The held events are published on shutdown, before the publisher stops.
+ *
+ * @author lzhpo
+ */
+@Slf4j
+@Component
+public class LoggerEventAggregator implements SmartLifecycle {
+
+    private final LoggerEventPublisher publisher;
+    private final long windowNanos;
+    private final int maxKeys;
+    private final LoggerTimeWheel<Aggregation> timeWheel;
+    private final ScheduledExecutorService ticker;
+    private final Map<AggregationKey, Aggregation> aggregations = new ConcurrentHashMap<>();
+    private final LongAdder collapsedCount = new LongAdder();
+    private volatile boolean running;
+
+    public LoggerEventAggregator(LoggerAggregationProperties aggregationProperties, LoggerEventPublisher publisher) {
+        Assert.notNull(aggregationProperties.getWindow(), "The window of aggregation must not be null.");
+        Assert.notNull(aggregationProperties.getTick(), "The tick of aggregation must not be null.");
+        Assert.isTrue(aggregationProperties.getMaxKeys() > 0, "The maxKeys of aggregation must be greater than 0.");
+        this.publisher = publisher;
+        this.windowNanos = aggregationProperties.getWindow().toNanos();
+        this.maxKeys = aggregationProperties.getMaxKeys();
+
+        if (aggregationProperties.isEnabled()) {
+            long tickNanos = aggregationProperties.getTick().toNanos();
+            this.timeWheel = new LoggerTimeWheel<>(tickNanos, windowNanos);
+            this.ticker = Executors.newSingleThreadScheduledExecutor(ThreadFactoryBuilder.create()
+                    .setNamePrefix("logger-aggregation-ticker-")
+                    .setDaemon(true)
+                    .build());
+            this.ticker.scheduleAtFixedRate(this::tick, tickNanos, tickNanos, TimeUnit.NANOSECONDS);
+            this.running = true;
+        } else {
+            this.timeWheel = null;
+            this.ticker = null;
+        }
+    }
+
+    /**
+     * Aggregate {@code event} of method, it will be published by this aggregator once its window elapsed.
+     *
+     * @param metadata {@link LoggerMethodMetadata}
+     * @param event    {@link LoggerEvent}
+     * @return true if aggregated, false if the event should be published directly
+     */
+    public boolean aggregate(LoggerMethodMetadata metadata, LoggerEvent event) {
+        if (!running) {
+            return false;
+        }
+
+        AggregationKey key = new AggregationKey(metadata, event);
+        while (running) {
+            Aggregation aggregation = aggregations.get(key);
+            if (aggregation == null) {
+                if (aggregations.size() >= maxKeys) {
+                    return false;
+                }
+                aggregation = new Aggregation(key, event);
+                Aggregation existing = aggregations.putIfAbsent(key, aggregation);
+                if (existing == null) {
+                    timeWheel.schedule(aggregation, windowNanos);
+                    if (!running) {
+                        // Stopped while adding, the held events may have been published
+                        expire(aggregation);
+                    }
+                    return true;
+                }
+                aggregation = existing;
+            }
+            if (aggregation.merge(event)) {
+                collapsedCount.increment();
+                return true;
+            }
+            // The aggregation was expired while merging, start a new one
+            aggregations.remove(key, aggregation);
+        }
+        return false;
+    }
+
+    /**
+     * Get the number of events collapsed into the others.
+     *
+     * @return the collapsed count
+     */
+    public long getCollapsedCount() {
+        return collapsedCount.sum();
+    }
+
+    /**
+     * Get the number of keys being aggregated.
+     *
+     * @return the pending count
+     */
+    public int getPendingCount() {
+        return aggregations.size();
+    }
+
+    @Override
+    public void start() {
+        // Started on construction if enabled
+    }
+
+    @Override
+    public void stop() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        ticker.shutdownNow();
+        try {
+            ticker.awaitTermination(1, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        int pending = aggregations.size();
+        aggregations.values().forEach(this::expire);
+        log.info("Published {} aggregated LoggerEvent on shutdown.", pending);
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public int getPhase() {
+        // Stopped before the publisher, so the held events are published
+        return AbstractLoggerEventPublisher.PHASE + 1;
+    }
+
+    private void tick() {
+        try {
+            timeWheel.advance(this::expire);
+        } catch (Exception e) {
+            log.error("Expire aggregated LoggerEvent error: {}", e.getMessage(), e);
+        }
+    }
+
+    private void expire(Aggregation aggregation) {
+        LoggerEvent event = aggregation.seal();
+        aggregations.remove(aggregation.key, aggregation);
+        if (event != null) {
+            publisher.publish(event);
+        }
+    }
+
+    private static final class Aggregation {
+
+        private final AggregationKey key;
+        private final LoggerEvent event;
+        private int count = 1;
+        private long lastTime;
+        private boolean sealed;
+
+        private Aggregation(AggregationKey key, LoggerEvent event) {
+            this.key = key;
+            this.event = event;
+            this.lastTime = getTime(event);
+        }
+
+        private synchronized boolean merge(LoggerEvent other) {
+            if (sealed) {
+                return false;
+            }
+            count++;
+            lastTime = Math.max(lastTime, getTime(other));
+            return true;
+        }
+
+        /**
+         * Seal the aggregation, no more events can be merged.
+         *
+         * @return the collapsed event, null if it has been sealed
+         */
+        private synchronized LoggerEvent seal() {
+            if (sealed) {
+                return null;
+            }
+            sealed = true;
+            if (count > 1) {
+                event.setCount(count);
+                event.setFirstTime(new Date(getTime(event)));
+                event.setLastTime(new Date(lastTime));
+            }
+            return event;
+        }
+
+        private static long getTime(LoggerEvent event) {
+            return event.getCreateTime() != null ? event.getCreateTime().getTime() : event.getTimestamp();
+        }
+    }
+
+    private static final class AggregationKey {
+
+        private final LoggerMethodMetadata metadata;
+        private final String operatorId;
+        private final String businessId;
+        private final String message;
+        private final boolean success;
+        private final int hashCode;
+
+        private AggregationKey(LoggerMethodMetadata metadata, LoggerEvent event) {
+            this.metadata = metadata;
+            this.operatorId = event.getOperatorId();
+            this.businessId = event.getBusinessId();
+            this.message = event.getMessage();
+            this.success = event.isSuccess();
+            this.hashCode = Objects.hash(System.identityHashCode(metadata), operatorId, businessId, message, success);
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (this == other) {
+                return true;
+            }
+            if (!(other instanceof AggregationKey)) {
+                return false;
+            }
+            AggregationKey otherKey = (AggregationKey) other;
+            return metadata == otherKey.metadata
+                    && success == otherKey.success
+                    && Objects.equals(operatorId, otherKey.operatorId)
+                    && Objects.equals(businessId, otherKey.businessId)
+                    && Objects.equals(message, otherKey.message);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+    }
+}
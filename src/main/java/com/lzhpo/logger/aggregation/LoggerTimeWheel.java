@@ -0,0 +1,110 @@
+/*
+ * Copyright lzhpo
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.lzhpo.logger.aggregation;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.Consumer;
+import org.springframework.util.Assert;
+
+/**
+ * A hashed time wheel, the tasks are scheduled into the bucket of their deadline tick without locking, and expired by
+ * a single thread calling {@link #advance(Consumer)} every tick.
+ *
+ * <p>Scheduling and expiring are O(1), no matter how many tasks are pending. The task is expired at most one tick
+ * later than its deadline, or one round later if it was scheduled into a bucket while the bucket being expired.
+ *
+ * @param <T> the type of task
+ * @author lzhpo
+ */
+public class LoggerTimeWheel<T> {
+
+    private final long tickNanos;
+    private final int mask;
+    private final Queue<Timeout<T>>[] buckets;
+    private final long startNanos;
+    private long expiredTick = -1;
+
+    /**
+     * Create a time wheel covering at least {@code maxDelayNanos} within one round.
+     *
+     * @param tickNanos     the duration of tick
+     * @param maxDelayNanos the maximum delay of the scheduled tasks
+     */
+    @SuppressWarnings("unchecked")
+    public LoggerTimeWheel(long tickNanos, long maxDelayNanos) {
+        Assert.isTrue(tickNanos > 0, "The tick of time wheel must be greater than 0.");
+        Assert.isTrue(maxDelayNanos >= 0, "The maxDelay of time wheel must not be negative.");
+        long ticks = (maxDelayNanos + tickNanos - 1) / tickNanos + 2;
+        Assert.isTrue(ticks <= 1 << 20, "The maxDelay of time wheel must not exceed 1048576 ticks.");
+        int size = Integer.highestOneBit((int) ticks - 1) << 1;
+        this.tickNanos = tickNanos;
+        this.mask = size - 1;
+        this.buckets = new Queue[size];
+        for (int i = 0; i < size; i++) {
+            buckets[i] = new ConcurrentLinkedQueue<>();
+        }
+        this.startNanos = System.nanoTime();
+    }
+
+    /**
+     * Schedule {@code task} to expire after {@code delayNanos}.
+     *
+     * @param task       the task
+     * @param delayNanos the delay
+     */
+    public void schedule(T task, long delayNanos) {
+        long deadlineTick = (System.nanoTime() - startNanos + delayNanos + tickNanos - 1) / tickNanos;
+        buckets[(int) (deadlineTick & mask)].add(new Timeout<>(task, deadlineTick));
+    }
+
+    /**
+     * Expire the tasks whose deadline passed, only called by one thread.
+     *
+     * @param expiration the action of expired task
+     */
+    public void advance(Consumer<T> expiration) {
+        long currentTick = (System.nanoTime() - startNanos) / tickNanos;
+        // Never expire more than one round, the rest buckets are visited in the next rounds anyway
+        long fromTick = Math.max(expiredTick + 1, currentTick - mask);
+        for (long tick = fromTick; tick <= currentTick; tick++) {
+            Queue<Timeout<T>> bucket = buckets[(int) (tick & mask)];
+            for (int pending = bucket.size(); pending > 0; pending--) {
+                Timeout<T> timeout = bucket.poll();
+                if (timeout == null) {
+                    break;
+                }
+                if (timeout.deadlineTick <= currentTick) {
+                    expiration.accept(timeout.task);
+                } else {
+                    bucket.add(timeout);
+                }
+            }
+        }
+        expiredTick = currentTick;
+    }
+
+    private static final class Timeout<T> {
+
+        private final T task;
+        private final long deadlineTick;
+
+        private Timeout(T task, long deadlineTick) {
+            this.task = task;
+            this.deadlineTick = deadlineTick;
+        }
+    }
+}
@@ -102,4 +102,14 @@ public @interface Logger {
      */
     @Language(LoggerConstant.SpEL)
     String additional() default LoggerConstant.EMPTY;
+
+    /**
+     * The name of sampling rule in {@code logger.sampling.rules}, the unsampled invocations will not generate log
+     * unless failed.
+     *
+     * <p>If empty, the first rule matched this method is applied.
+     *
+     * @return sampling
+     */
+    String sampling() default LoggerConstant.EMPTY;
 }
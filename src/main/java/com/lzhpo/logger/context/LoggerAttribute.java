@@ -0,0 +1,78 @@
+/*
+ * Copyright lzhpo
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.lzhpo.logger.context;
+
+import com.lzhpo.logger.annotation.Logger;
+import java.util.function.Function;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * The expression attributes of {@link Logger} annotation.
+ *
+ * @author lzhpo
+ */
+@Getter
+@AllArgsConstructor
+public enum LoggerAttribute {
+
+    /**
+     * {@link Logger#condition()}
+     */
+    CONDITION(Logger::condition),
+
+    /**
+     * {@link Logger#message()}
+     */
+    MESSAGE(Logger::message),
+
+    /**
+     * {@link Logger#operatorId()}
+     */
+    OPERATOR_ID(Logger::operatorId),
+
+    /**
+     * {@link Logger#businessId()}
+     */
+    BUSINESS_ID(Logger::businessId),
+
+    /**
+     * {@link Logger#category()}
+     */
+    CATEGORY(Logger::category),
+
+    /**
+     * {@link Logger#tag()}
+     */
+    TAG(Logger::tag),
+
+    /**
+     * {@link Logger#additional()}
+     */
+    ADDITIONAL(Logger::additional);
+
+    private final Function<Logger, String> resolver;
+
+    /**
+     * Get the expression of this attribute from {@code logger}.
+     *
+     * @param logger {@link Logger}
+     * @return the expression
+     */
+    public String resolve(Logger logger) {
+        return resolver.apply(logger);
+    }
+}
@@ -0,0 +1,133 @@
+/*
+ * Copyright lzhpo
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.lzhpo.logger.context;
+
+import java.util.Collections;
+import java.util.Set;
+import lombok.Getter;
+import org.springframework.expression.Expression;
+import org.springframework.expression.ParseException;
+import org.springframework.util.StringUtils;
+
+/**
+ * The expression of a {@link LoggerAttribute}, parsed once when building {@link LoggerMethodMetadata}.
+ *
+ * <p>The parsed expression is not kept here, it is held by the bounded {@link LoggerExpressionCache} and looked up by
+ * {@link #getExpressionKey()} on evaluation, so evicted expressions are not retained by the metadata.
+ *
+ * @author lzhpo
+ */
+@Getter
+public class LoggerAttributeExpression {
+
+    /**
+     * The attribute of expression.
+     */
+    private final LoggerAttribute attribute;
+
+    /**
+     * The original expression string.
+     */
+    private final String expressionString;
+
+    /**
+     * The kind of expression, classified once when parsed.
+     */
+    private final Kind kind;
+
+    /**
+     * The key of parsed expression in {@link LoggerExpressionCache}, null if the expression is empty.
+     */
+    private final LoggerExpressionKey expressionKey;
+
+    /**
+     * The constant value if the expression is {@link Kind#LITERAL}.
+     */
+    private final String literalValue;
+
+    /**
+     * The exception thrown while parsing, will be rethrown on every evaluation.
+     */
+    private final ParseException parseException;
+
+    /**
+     * The variable names referenced, empty unless the expression is {@link Kind#DYNAMIC}.
+     */
+    private final Set<String> variableNames;
+
+    /**
+     * The function names referenced, empty unless the expression is {@link Kind#DYNAMIC}.
+     */
+    private final Set<String> functionNames;
+
+    public LoggerAttributeExpression(
+            LoggerAttribute attribute,
+            String expressionString,
+            LoggerExpressionKey expressionKey,
+            Expression expression,
+            ParseException parseException) {
+        this.attribute = attribute;
+        this.expressionString = expressionString;
+        this.expressionKey = expressionKey;
+        this.parseException = parseException;
+
+        if (!StringUtils.hasText(expressionString)) {
+            this.kind = Kind.EMPTY;
+            this.literalValue = null;
+        } else if (expression != null && LoggerExpressionAnalyzer.isLiteral(expression)) {
+            this.kind = Kind.LITERAL;
+            this.literalValue = expression.getValue(String.class);
+        } else {
+            this.kind = Kind.DYNAMIC;
+            this.literalValue = null;
+        }
+
+        boolean analyzable = kind == Kind.DYNAMIC && expression != null;
+        this.variableNames = analyzable
+                ? Collections.unmodifiableSet(LoggerExpressionAnalyzer.findVariableNames(expression))
+                : Collections.emptySet();
+        this.functionNames = analyzable
+                ? Collections.unmodifiableSet(LoggerExpressionAnalyzer.findFunctionNames(expression))
+                : Collections.emptySet();
+    }
+
+    /**
+     * Whether the expression is empty.
+     *
+     * @return the result of whether empty
+     */
+    public boolean isEmpty() {
+        return kind == Kind.EMPTY;
+    }
+
+    public enum Kind {
+
+        /**
+         * The expression is empty, its value is itself.
+         */
+        EMPTY,
+
+        /**
+         * The expression is a constant, its value has been computed once.
+         */
+        LITERAL,
+
+        /**
+         * The expression has to be evaluated on every invocation.
+         */
+        DYNAMIC
+    }
+}
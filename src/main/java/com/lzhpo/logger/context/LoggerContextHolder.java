@@ -18,7 +18,6 @@ package com.lzhpo.logger.context;
 import cn.hutool.core.util.ObjectUtil;
 import com.alibaba.ttl.TransmittableThreadLocal;
 import com.lzhpo.logger.LoggerConstant;
-import com.lzhpo.logger.LoggerFunctionRegistrar;
 import com.lzhpo.logger.diff.DiffObjectResult;
 import java.util.ArrayList;
 import java.util.Collections;
@@ -121,6 +120,16 @@ public class LoggerContextHolder {
         log.debug("Cleared context, current thread name: {}", Thread.currentThread().getName());
     }
 
+    /**
+     * Clear {@link #EVALUATION_CONTEXT} only if anything was put during the invocation, so an invocation that never
+     * touched the context does no thread local work.
+     */
+    public static void clearContextIfNecessary() {
+        if (EVALUATION_CONTEXT.get() != null || DIFF_OBJECT_CONTEXT.get() != null) {
+            clearContext();
+        }
+    }
+
     /**
      * Initialize context's fields if it has empty.
      *
@@ -128,13 +137,13 @@ public class LoggerContextHolder {
      * @param context    {@link LoggerEvaluationContext}
      */
     private static void initializeIfNecessary(LoggerElementKey elementKey, LoggerEvaluationContext context) {
-        if (ObjectUtil.hasEmpty(context.getMethod(), context.getMethod(), context.getDiscoverer())) {
+        if (ObjectUtil.hasEmpty(context.getMethod(), context.getTargetClass(), context.getMetadata())) {
             context.setRootObject(elementKey.getRootObject());
             context.setMethod(elementKey.getMethod());
+            context.setTargetClass(elementKey.getTargetClass());
             context.setArguments(elementKey.getArguments());
-            context.setDiscoverer(elementKey.getDiscoverer());
+            context.setMetadata(elementKey.getMetadata());
             context.setVariable(LoggerConstant.VARIABLE_RESULT, elementKey.getResult());
-            LoggerFunctionRegistrar.registerFunction(context);
             log.debug("The context has null fields, initialized, current thread name: {}", Thread.currentThread().getName());
         }
     }
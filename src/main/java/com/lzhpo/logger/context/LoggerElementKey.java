@@ -18,7 +18,6 @@ package com.lzhpo.logger.context;
 import java.lang.reflect.Method;
 import java.util.Optional;
 import lombok.Getter;
-import org.springframework.core.ParameterNameDiscoverer;
 
 /**
  * @author lzhpo
@@ -28,17 +27,27 @@ import org.springframework.core.ParameterNameDiscoverer;
 public class LoggerElementKey {
 
     private final Object rootObject;
-    private final Method method;
+    private final LoggerMethodMetadata metadata;
     private final Object result;
     private final Object[] arguments;
-    private final ParameterNameDiscoverer discoverer;
 
-    public LoggerElementKey(Object rootObject, Method method, Object result, Object[] arguments, ParameterNameDiscoverer discoverer) {
+    public LoggerElementKey(Object rootObject, LoggerMethodMetadata metadata, Object result, Object[] arguments) {
         this.arguments = arguments;
         this.result = result;
-        this.method = Optional.ofNullable(method).orElseThrow(() -> new IllegalArgumentException("method is null"));
+        this.metadata = Optional.ofNullable(metadata).orElseThrow(() -> new IllegalArgumentException("metadata is null"));
         this.rootObject = Optional.ofNullable(rootObject).orElseThrow(() -> new IllegalArgumentException("rootObject is null"));
-        this.discoverer = Optional.ofNullable(discoverer).orElseThrow(() -> new IllegalArgumentException("discoverer is null"));
+    }
+
+    public Method getMethod() {
+        return metadata.getMethod();
+    }
+
+    public Class<?> getTargetClass() {
+        return metadata.getTargetClass();
+    }
+
+    public String[] getParameterNames() {
+        return metadata.getParameterNames();
     }
 }
 // spotless:on
@@ -15,13 +15,12 @@
  */
 package com.lzhpo.logger.context;
 
-import com.lzhpo.logger.LoggerConstant;
+import com.lzhpo.logger.LoggerFunctionRegistrar;
 import java.lang.reflect.Method;
 import java.util.Arrays;
 import lombok.Getter;
 import lombok.Setter;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.core.ParameterNameDiscoverer;
 import org.springframework.expression.spel.support.StandardEvaluationContext;
 import org.springframework.util.ObjectUtils;
 
@@ -33,9 +32,22 @@ import org.springframework.util.ObjectUtils;
  * <ol>
  * <li>pX where X is the index of the argument (p0 for the first argument)</li>
  * <li>aX where X is the index of the argument (a1 for the second argument)</li>
- * <li>the name of the parameter as discovered by a configurable {@link ParameterNameDiscoverer}</li>
+ * <li>the name of the parameter as discovered once in {@link LoggerMethodMetadata}</li>
  * </ol>
  *
+ * <p>The aliases are resolved to an argument index by {@link LoggerMethodMetadata#getArgumentIndex(String)}, and the
+ * argument is read only when an expression references it, nothing is copied into the variables of the context.
+ *
+ * <p>Variables are looked up layer by layer, so a name defined in several layers resolves to the first one:
+ * <ol>
+ * <li>the per-call variables, i.e. {@code #result} and the variables put by
+ * {@link LoggerContextHolder#putVariable(String, Object)}</li>
+ * <li>the method arguments</li>
+ * <li>the functions shared by all contexts, so functions are never copied into the per-call context</li>
+ * </ol>
+ * A variable put in the method hides the argument of the same name, the argument is still available as pX or aX.
+ * {@code #result} always refers to the return value, a parameter named {@code result} is only available as pX or aX.
+ *
  * @author lzhpo
  * @see org.springframework.context.expression.MethodBasedEvaluationContext
  */
@@ -47,12 +59,13 @@ public class LoggerEvaluationContext extends StandardEvaluationContext {
     private Method method;
 
     @Setter
-    private Object[] arguments;
+    private Class<?> targetClass;
 
     @Setter
-    private ParameterNameDiscoverer discoverer;
+    private Object[] arguments;
 
-    private boolean argumentsLoaded = false;
+    @Setter
+    private LoggerMethodMetadata metadata;
 
     public LoggerEvaluationContext() {
         // NOP
@@ -61,8 +74,45 @@ public class LoggerEvaluationContext extends StandardEvaluationContext {
     public LoggerEvaluationContext(LoggerElementKey loggerElementKey) {
         super(loggerElementKey.getRootObject());
         this.method = loggerElementKey.getMethod();
+        this.targetClass = loggerElementKey.getTargetClass();
         this.arguments = loggerElementKey.getArguments();
-        this.discoverer = loggerElementKey.getDiscoverer();
+        this.metadata = loggerElementKey.getMetadata();
+    }
+
+    /**
+     * Bind the invocation to this context, so a context can be reused by the invocations on the same thread.
+     *
+     * @param rootObject the root object
+     * @param metadata   the method metadata
+     * @param arguments  the method arguments
+     */
+    public void bind(Object rootObject, LoggerMethodMetadata metadata, Object[] arguments) {
+        setRootObject(rootObject);
+        this.method = metadata.getMethod();
+        this.targetClass = metadata.getTargetClass();
+        this.metadata = metadata;
+        this.arguments = arguments;
+    }
+
+    /**
+     * Release the invocation bound by {@link #bind(Object, LoggerMethodMetadata, Object[])}, so a context kept by a
+     * thread does not keep the root object and the arguments reachable.
+     */
+    public void unbind() {
+        setRootObject(null);
+        this.method = null;
+        this.targetClass = null;
+        this.metadata = null;
+        this.arguments = null;
+    }
+
+    /**
+     * Get the parameter names of method.
+     *
+     * @return the parameter names, null if cannot be discovered
+     */
+    public String[] getParameterNames() {
+        return metadata != null ? metadata.getParameterNames() : null;
     }
 
     @Override
@@ -71,44 +121,31 @@ public class LoggerEvaluationContext extends StandardEvaluationContext {
         if (variable != null) {
             return variable;
         }
-        if (!this.argumentsLoaded) {
-            lazyLoadArguments();
-            this.argumentsLoaded = true;
-            variable = super.lookupVariable(name);
+        int index = metadata != null ? metadata.getArgumentIndex(name) : -1;
+        if (index >= 0) {
+            return resolveArgument(index);
         }
-        return variable;
+        return LoggerFunctionRegistrar.getRegisteredFunctions().get(name);
     }
 
     /**
-     * Load the param information only when needed.
+     * Resolve the argument of {@code index} only when needed.
+     *
+     * @param index the argument index
+     * @return the argument value, null if not found
      */
-    public void lazyLoadArguments() {
-        if (ObjectUtils.isEmpty(this.arguments)
-                || ObjectUtils.isEmpty(this.method)
-                || ObjectUtils.isEmpty(this.discoverer)) {
-            return;
+    private Object resolveArgument(int index) {
+        if (ObjectUtils.isEmpty(this.arguments)) {
+            return null;
         }
 
-        // Expose indexed variables as well as parameter names (if discoverable)
-        String[] paramNames = this.discoverer.getParameterNames(this.method);
-        int paramCount = (paramNames != null ? paramNames.length : this.method.getParameterCount());
+        int paramCount = metadata.getParameterCount();
         int argsCount = this.arguments.length;
-
-        for (int i = 0; i < paramCount; i++) {
-            Object value = null;
-            if (argsCount > paramCount && i == paramCount - 1) {
-                // Expose remaining arguments as vararg array for last parameter
-                value = Arrays.copyOfRange(this.arguments, i, argsCount);
-            } else if (argsCount > i) {
-                // Actual argument found - otherwise left as null
-                value = this.arguments[i];
-            }
-
-            setVariable(LoggerConstant.VARIABLE_ARG_A + i, value);
-            setVariable(LoggerConstant.VARIABLE_ARG_P + i, value);
-            if (paramNames != null && paramNames[i] != null) {
-                setVariable(paramNames[i], value);
-            }
+        if (argsCount > paramCount && index == paramCount - 1) {
+            // Expose remaining arguments as vararg array for last parameter
+            return Arrays.copyOfRange(this.arguments, index, argsCount);
         }
+        // Actual argument found - otherwise left as null
+        return argsCount > index ? this.arguments[index] : null;
     }
 }
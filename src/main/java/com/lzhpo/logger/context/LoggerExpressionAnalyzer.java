@@ -0,0 +1,119 @@
+/*
+ * Copyright lzhpo
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.lzhpo.logger.context;
+
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.function.Consumer;
+import lombok.experimental.UtilityClass;
+import org.springframework.expression.Expression;
+import org.springframework.expression.common.CompositeStringExpression;
+import org.springframework.expression.common.LiteralExpression;
+import org.springframework.expression.spel.SpelNode;
+import org.springframework.expression.spel.ast.FunctionReference;
+import org.springframework.expression.spel.ast.Literal;
+import org.springframework.expression.spel.ast.VariableReference;
+import org.springframework.expression.spel.standard.SpelExpression;
+
+/**
+ * Analyze the AST of parsed expressions.
+ *
+ * @author lzhpo
+ */
+@UtilityClass
+public class LoggerExpressionAnalyzer {
+
+    private static final char REFERENCE_PREFIX = '#';
+    private static final char ARGUMENTS_PREFIX = '(';
+
+    /**
+     * Find the names of all functions referenced by {@code expression}, e.g. {@code DIFF} of {@code #DIFF(#a, #b)}.
+     *
+     * @param expression the parsed expression
+     * @return the function names
+     */
+    public static Set<String> findFunctionNames(Expression expression) {
+        Set<String> functionNames = new LinkedHashSet<>();
+        visit(expression, node -> {
+            if (node instanceof FunctionReference) {
+                String ast = node.toStringAST();
+                functionNames.add(ast.substring(ast.indexOf(REFERENCE_PREFIX) + 1, ast.indexOf(ARGUMENTS_PREFIX)));
+            }
+        });
+        return functionNames;
+    }
+
+    /**
+     * Find the names of all variables referenced by {@code expression}, e.g. {@code result} of {@code #result != null}.
+     *
+     * @param expression the parsed expression
+     * @return the variable names
+     */
+    public static Set<String> findVariableNames(Expression expression) {
+        Set<String> variableNames = new LinkedHashSet<>();
+        visit(expression, node -> {
+            if (node instanceof VariableReference) {
+                variableNames.add(node.toStringAST().substring(1));
+            }
+        });
+        return variableNames;
+    }
+
+    /**
+     * Whether {@code expression} is a constant, e.g. {@code true}, {@code 'Operation Log'}, or a template without
+     * any {@code #{}} segment, so its value can be computed once without evaluation context.
+     *
+     * @param expression the parsed expression
+     * @return the result of whether is literal
+     */
+    public static boolean isLiteral(Expression expression) {
+        if (expression instanceof LiteralExpression) {
+            return true;
+        }
+        if (expression instanceof SpelExpression) {
+            return ((SpelExpression) expression).getAST() instanceof Literal;
+        }
+        if (expression instanceof CompositeStringExpression) {
+            return Arrays.stream(((CompositeStringExpression) expression).getExpressions())
+                    .allMatch(LoggerExpressionAnalyzer::isLiteral);
+        }
+        return false;
+    }
+
+    /**
+     * Visit all nodes of {@code expression} in depth-first order, include all segments of template expression.
+     *
+     * @param expression the parsed expression
+     * @param visitor    the node visitor
+     */
+    public static void visit(Expression expression, Consumer<SpelNode> visitor) {
+        if (expression instanceof SpelExpression) {
+            visit(((SpelExpression) expression).getAST(), visitor);
+        } else if (expression instanceof CompositeStringExpression) {
+            for (Expression segment : ((CompositeStringExpression) expression).getExpressions()) {
+                visit(segment, visitor);
+            }
+        }
+    }
+
+    private static void visit(SpelNode node, Consumer<SpelNode> visitor) {
+        visitor.accept(node);
+        for (int i = 0; i < node.getChildCount(); i++) {
+            visit(node.getChild(i), visitor);
+        }
+    }
+}
@@ -0,0 +1,206 @@
+/*
+ * Copyright lzhpo
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.lzhpo.logger.context;
+
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.stream.Stream;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.expression.Expression;
+import org.springframework.util.Assert;
+
+/**
+ * A bounded concurrent cache for parsed expressions, shared by the whole application.
+ *
+ * <p>Cache hits never lock, when the cache exceeds {@code maximumSize} the least recently accessed entry among a
+ * small sample is evicted, and entries not accessed within {@code expireAfterAccess} are treated as absent.
+ *
+ * <p>Each entry also holds the {@link LoggerExpressionCompilation} of its expression, so that an evicted expression is
+ * released together with its tracker, and a re-parsed expression is tracked from scratch.
+ *
+ * @author lzhpo
+ */
+@Slf4j
+public class LoggerExpressionCache {
+
+    private static final int EVICTION_SAMPLE_SIZE = 8;
+
+    private final int maximumSize;
+    private final long expireAfterAccessNanos;
+    private final Map<LoggerExpressionKey, CacheEntry> entries;
+    private final BiFunction<LoggerExpressionKey, Expression, LoggerExpressionCompilation> compilationFactory;
+
+    private final LongAdder hitCount = new LongAdder();
+    private final LongAdder missCount = new LongAdder();
+    private final LongAdder evictionCount = new LongAdder();
+
+    public LoggerExpressionCache(int maximumSize, Duration expireAfterAccess) {
+        this(maximumSize, expireAfterAccess, (key, expression) -> null);
+    }
+
+    public LoggerExpressionCache(
+            int maximumSize,
+            Duration expireAfterAccess,
+            BiFunction<LoggerExpressionKey, Expression, LoggerExpressionCompilation> compilationFactory) {
+        Assert.isTrue(maximumSize > 0, "The maximumSize of expression cache must be greater than 0.");
+        this.maximumSize = maximumSize;
+        this.expireAfterAccessNanos =
+                Optional.ofNullable(expireAfterAccess).map(Duration::toNanos).orElse(0L);
+        this.entries = new ConcurrentHashMap<>(Math.min(maximumSize, 256));
+        this.compilationFactory = compilationFactory;
+    }
+
+    /**
+     * Get the cached expression of {@code key}, or parse it by {@code parser} and cache it.
+     *
+     * @param key    the expression key
+     * @param parser the expression parser
+     * @return the parsed expression
+     */
+    public Expression get(LoggerExpressionKey key, Function<String, Expression> parser) {
+        return getEntry(key, parser).expression;
+    }
+
+    /**
+     * Get the compilation trackers of cached expressions.
+     *
+     * @return the compilation trackers, excludes the expressions not compiled
+     */
+    public Stream<LoggerExpressionCompilation> getCompilations() {
+        return entries.values().stream().map(entry -> entry.compilation).filter(Objects::nonNull);
+    }
+
+    /**
+     * Get the cached entry of {@code key}, or parse it by {@code parser} and cache it.
+     *
+     * @param key    the expression key
+     * @param parser the expression parser
+     * @return the cached entry
+     */
+    CacheEntry getEntry(LoggerExpressionKey key, Function<String, Expression> parser) {
+        long now = System.nanoTime();
+        CacheEntry entry = entries.get(key);
+        if (entry != null) {
+            if (!isExpired(entry, now)) {
+                entry.accessTime = now;
+                hitCount.increment();
+                return entry;
+            }
+            if (entries.remove(key, entry)) {
+                evictionCount.increment();
+                log.debug("Evicted expired expression {}", key);
+            }
+        }
+
+        missCount.increment();
+        CacheEntry created = entries.computeIfAbsent(key, k -> createEntry(k, parser, now));
+        evictIfNecessary();
+        return created;
+    }
+
+    /**
+     * Discard all cached expressions.
+     */
+    public void clear() {
+        entries.clear();
+    }
+
+    /**
+     * Get the number of cached expressions.
+     *
+     * @return the cache size
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * Get the number of times a lookup returned a cached expression.
+     *
+     * @return the hit count
+     */
+    public long getHitCount() {
+        return hitCount.sum();
+    }
+
+    /**
+     * Get the number of times a lookup had to parse the expression.
+     *
+     * @return the miss count
+     */
+    public long getMissCount() {
+        return missCount.sum();
+    }
+
+    /**
+     * Get the number of expressions evicted because of size or expiration.
+     *
+     * @return the eviction count
+     */
+    public long getEvictionCount() {
+        return evictionCount.sum();
+    }
+
+    private CacheEntry createEntry(LoggerExpressionKey key, Function<String, Expression> parser, long now) {
+        Expression expression = parser.apply(key.getExpression());
+        return new CacheEntry(expression, compilationFactory.apply(key, expression), now);
+    }
+
+    private boolean isExpired(CacheEntry entry, long now) {
+        return expireAfterAccessNanos > 0 && now - entry.accessTime > expireAfterAccessNanos;
+    }
+
+    private void evictIfNecessary() {
+        while (entries.size() > maximumSize) {
+            Map.Entry<LoggerExpressionKey, CacheEntry> victim = null;
+            Iterator<Map.Entry<LoggerExpressionKey, CacheEntry>> iterator =
+                    entries.entrySet().iterator();
+            for (int i = 0; i < EVICTION_SAMPLE_SIZE && iterator.hasNext(); i++) {
+                Map.Entry<LoggerExpressionKey, CacheEntry> candidate = iterator.next();
+                if (victim == null || candidate.getValue().accessTime - victim.getValue().accessTime < 0) {
+                    victim = candidate;
+                }
+            }
+            if (victim == null) {
+                return;
+            }
+            if (entries.remove(victim.getKey(), victim.getValue())) {
+                evictionCount.increment();
+                log.debug("Evicted expression {}, the cache exceeded maximumSize={}", victim.getKey(), maximumSize);
+            }
+        }
+    }
+
+    static final class CacheEntry {
+
+        final Expression expression;
+        final LoggerExpressionCompilation compilation;
+        private volatile long accessTime;
+
+        private CacheEntry(Expression expression, LoggerExpressionCompilation compilation, long accessTime) {
+            this.expression = expression;
+            this.compilation = compilation;
+            this.accessTime = accessTime;
+        }
+    }
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright lzhpo
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.lzhpo.logger.context;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.expression.spel.SpelCompilerMode;
+import org.springframework.expression.spel.standard.SpelExpression;
+
+/**
+ * Track whether a {@link SpelExpression} has been compiled or fell back to interpreted mode.
+ *
+ * <p>SpEL compiles an expression by itself after it has been interpreted enough times, this tracker only probes
+ * the compilation after that threshold, until the expression is compiled or gave up after too many failed attempts.
+ *
+ * @author lzhpo
+ */
+@Slf4j
+public class LoggerExpressionCompilation {
+
+    private static final int MAX_FAILED_ATTEMPTS = 100;
+    private static final int IMMEDIATE_THRESHOLD = 1;
+    private static final int MIXED_THRESHOLD = 100;
+
+    @Getter
+    private final LoggerExpressionKey expressionKey;
+
+    private final SpelExpression expression;
+    private final int threshold;
+    private final AtomicInteger evaluations = new AtomicInteger();
+    private final AtomicInteger failedAttempts = new AtomicInteger();
+
+    @Getter
+    private volatile State state = State.PENDING;
+
+    public LoggerExpressionCompilation(
+            LoggerExpressionKey expressionKey, SpelExpression expression, SpelCompilerMode compilerMode) {
+        this.expressionKey = expressionKey;
+        this.expression = expression;
+        this.threshold = compilerMode == SpelCompilerMode.IMMEDIATE ? IMMEDIATE_THRESHOLD : MIXED_THRESHOLD;
+    }
+
+    /**
+     * Probe the compilation state after the expression has been evaluated.
+     */
+    public void afterEvaluation() {
+        if (state != State.PENDING || evaluations.incrementAndGet() <= threshold) {
+            return;
+        }
+
+        boolean compiled;
+        try {
+            compiled = expression.compileExpression();
+        } catch (Exception e) {
+            log.debug("Compile expression {} error: {}", expressionKey, e.getMessage());
+            compiled = false;
+        }
+
+        if (compiled) {
+            state = State.COMPILED;
+            log.debug("The expression {} has been compiled.", expressionKey);
+        } else if (failedAttempts.incrementAndGet() >= MAX_FAILED_ATTEMPTS) {
+            state = State.INTERPRETED;
+            log.info("The expression {} cannot be compiled, fell back to interpreted mode.", expressionKey);
+        }
+    }
+
+    public enum State {
+
+        /**
+         * Not evaluated enough times to be compiled yet.
+         */
+        PENDING,
+
+        /**
+         * Compiled successfully.
+         */
+        COMPILED,
+
+        /**
+         * Cannot be compiled, always interpreted.
+         */
+        INTERPRETED
+    }
+}
@@ -15,56 +15,294 @@
  */
 package com.lzhpo.logger.context;
 
+import com.lzhpo.logger.LoggerExpressionProperties;
+import com.lzhpo.logger.annotation.Logger;
 import java.lang.reflect.Method;
+import java.util.EnumMap;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.context.expression.AnnotatedElementKey;
 import org.springframework.context.expression.CachedExpressionEvaluator;
 import org.springframework.core.ParameterNameDiscoverer;
 import org.springframework.expression.Expression;
-import org.springframework.expression.TypedValue;
+import org.springframework.expression.ParseException;
+import org.springframework.expression.common.TemplateParserContext;
+import org.springframework.expression.spel.SpelCompilerMode;
+import org.springframework.expression.spel.SpelParserConfiguration;
+import org.springframework.expression.spel.standard.SpelExpression;
+import org.springframework.expression.spel.standard.SpelExpressionParser;
+import org.springframework.stereotype.Component;
+import org.springframework.util.ClassUtils;
 import org.springframework.util.ObjectUtils;
 import org.springframework.util.StringUtils;
 
 /**
+ * The application-wide expression evaluator, parsed expressions are shared by all invocations.
+ *
+ * <p>All parsed expressions are held by the bounded {@link LoggerExpressionCache} only, the cached
+ * {@link LoggerMethodMetadata} keeps their keys, so an evicted expression is parsed again on its next evaluation.
+ *
  * @author lzhpo
  */
 @Slf4j
+@Component
 public class LoggerExpressionEvaluator extends CachedExpressionEvaluator {
 
-    private final Map<ExpressionKey, Expression> expressionCache = new ConcurrentHashMap<>(64);
+    @Getter
+    private final LoggerExpressionCache expressionCache;
+
+    private static final TemplateParserContext TEMPLATE_PARSER_CONTEXT = new TemplateParserContext();
+
+    @Getter
+    private final SpelCompilerMode compilerMode;
+
+    @Getter
+    private final boolean templateMode;
+
+    private final Map<Class<?>, Map<Method, LoggerMethodMetadata>> methodMetadataCache = new ConcurrentHashMap<>(64);
+    private final Function<String, Expression> parser = this::parseExpression;
+
+    public LoggerExpressionEvaluator(LoggerExpressionProperties expressionProperties) {
+        super(new SpelExpressionParser(new SpelParserConfiguration(expressionProperties.getCompilerMode(), null)));
+        this.compilerMode = expressionProperties.getCompilerMode();
+        this.templateMode = expressionProperties.isTemplateMode();
+        LoggerExpressionProperties.Cache cache = expressionProperties.getCache();
+        this.expressionCache = new LoggerExpressionCache(
+                cache.getMaximumSize(), cache.getExpireAfterAccess(), this::createCompilation);
+    }
 
     /**
      * Get {@link Expression} of {@code expression}.
      *
-     * @param expression        the condition expression
+     * @param attribute         the attribute of expression
+     * @param expression        the expression
      * @param evaluationContext the evaluation context
      * @return {@link Expression}
      */
-    public Expression getExpression(String expression, LoggerEvaluationContext evaluationContext) {
+    public Expression getExpression(
+            LoggerAttribute attribute, String expression, LoggerEvaluationContext evaluationContext) {
         Method method = evaluationContext.getMethod();
-        TypedValue rootObject = evaluationContext.getRootObject();
-        if (ObjectUtils.isEmpty(method) || ObjectUtils.isEmpty(rootObject)) {
-            return super.parseExpression(expression);
+        if (ObjectUtils.isEmpty(method)) {
+            return parseExpression(expression);
         }
 
-        AnnotatedElementKey annotatedElementKey = new AnnotatedElementKey(method, rootObject.getClass());
-        return super.getExpression(expressionCache, annotatedElementKey, expression);
+        Class<?> targetClass = evaluationContext.getTargetClass();
+        LoggerExpressionKey expressionKey = new LoggerExpressionKey(method, targetClass, attribute, expression);
+        return expressionCache.get(expressionKey, parser);
+    }
+
+    /**
+     * Get the parsed expression of {@code attribute} through {@link #expressionCache}.
+     *
+     * @param metadata  the method metadata
+     * @param attribute the attribute of expression
+     * @return {@link Expression}, null if the expression is empty or failed to parse
+     */
+    public Expression getExpression(LoggerMethodMetadata metadata, LoggerAttribute attribute) {
+        LoggerAttributeExpression attributeExpression = metadata.getAttributeExpression(attribute);
+        if (attributeExpression.isEmpty() || attributeExpression.getParseException() != null) {
+            return null;
+        }
+        return expressionCache.get(attributeExpression.getExpressionKey(), parser);
+    }
+
+    /**
+     * Parse {@code expression}, as a template if {@link #templateMode} enabled.
+     *
+     * @param expression the expression
+     * @return {@link Expression}
+     */
+    @Override
+    protected Expression parseExpression(String expression) {
+        if (templateMode) {
+            return getParser().parseExpression(expression, TEMPLATE_PARSER_CONTEXT);
+        }
+        return super.parseExpression(expression);
     }
 
     /**
      * Evaluate {@code expression} and get result value.
      *
-     * @param expression        the condition expression
+     * @param attribute         the attribute of expression
+     * @param expression        the expression
      * @param evaluationContext the evaluation context
      * @return the evaluated result
      */
-    public String evalExpression(String expression, LoggerEvaluationContext evaluationContext) {
+    public String evalExpression(
+            LoggerAttribute attribute, String expression, LoggerEvaluationContext evaluationContext) {
         if (!StringUtils.hasText(expression)) {
             return expression;
         }
-        return getExpression(expression, evaluationContext).getValue(evaluationContext, String.class);
+        return getExpression(attribute, expression, evaluationContext).getValue(evaluationContext, String.class);
+    }
+
+    /**
+     * Evaluate the pre-parsed expression of {@code attribute} and get result value.
+     *
+     * @param metadata          the method metadata
+     * @param attribute         the attribute of expression
+     * @param evaluationContext the evaluation context
+     * @return the evaluated result
+     */
+    public String evalExpression(
+            LoggerMethodMetadata metadata, LoggerAttribute attribute, LoggerEvaluationContext evaluationContext) {
+        LoggerAttributeExpression attributeExpression = metadata.getAttributeExpression(attribute);
+        if (attributeExpression.getKind() == LoggerAttributeExpression.Kind.EMPTY) {
+            return attributeExpression.getExpressionString();
+        }
+        if (attributeExpression.getKind() == LoggerAttributeExpression.Kind.LITERAL) {
+            return attributeExpression.getLiteralValue();
+        }
+        if (attributeExpression.getParseException() != null) {
+            throw attributeExpression.getParseException();
+        }
+
+        LoggerExpressionCache.CacheEntry entry =
+                expressionCache.getEntry(attributeExpression.getExpressionKey(), parser);
+        String value = entry.expression.getValue(evaluationContext, String.class);
+        afterEvaluation(entry);
+        return value;
+    }
+
+    /**
+     * Evaluate the pre-parsed condition, same as {@code Boolean.parseBoolean} of
+     * {@link #evalExpression(LoggerMethodMetadata, LoggerAttribute, LoggerEvaluationContext)}.
+     *
+     * <p>The result is not converted to string, so a compiled condition evaluates without allocation.
+     *
+     * @param metadata          the method metadata
+     * @param evaluationContext the evaluation context
+     * @return the evaluated condition
+     */
+    public boolean evalCondition(LoggerMethodMetadata metadata, LoggerEvaluationContext evaluationContext) {
+        Boolean constantCondition = metadata.getConstantCondition();
+        if (constantCondition != null) {
+            return constantCondition;
+        }
+
+        LoggerAttributeExpression attributeExpression = metadata.getAttributeExpression(LoggerAttribute.CONDITION);
+        if (attributeExpression.getParseException() != null) {
+            throw attributeExpression.getParseException();
+        }
+
+        LoggerExpressionCache.CacheEntry entry =
+                expressionCache.getEntry(attributeExpression.getExpressionKey(), parser);
+        Object value = entry.expression.getValue(evaluationContext);
+        afterEvaluation(entry);
+        if (value instanceof Boolean) {
+            return (Boolean) value;
+        }
+        return value instanceof String && Boolean.parseBoolean((String) value);
+    }
+
+    private static void afterEvaluation(LoggerExpressionCache.CacheEntry entry) {
+        if (entry.compilation != null) {
+            entry.compilation.afterEvaluation();
+        }
+    }
+
+    /**
+     * Get the cached expressions which have been compiled.
+     *
+     * @return the compiled expression keys
+     */
+    public List<LoggerExpressionKey> getCompiledExpressions() {
+        return getExpressions(LoggerExpressionCompilation.State.COMPILED);
+    }
+
+    /**
+     * Get the cached expressions which cannot be compiled and fell back to interpreted mode.
+     *
+     * @return the interpreted expression keys
+     */
+    public List<LoggerExpressionKey> getInterpretedExpressions() {
+        return getExpressions(LoggerExpressionCompilation.State.INTERPRETED);
+    }
+
+    private List<LoggerExpressionKey> getExpressions(LoggerExpressionCompilation.State state) {
+        return expressionCache
+                .getCompilations()
+                .filter(compilation -> compilation.getState() == state)
+                .map(LoggerExpressionCompilation::getExpressionKey)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Get the cached {@link LoggerMethodMetadata} of {@code method}, build it if absent.
+     *
+     * @param method      the annotated method
+     * @param targetClass the target class of method
+     * @param logger      the {@link Logger} annotation of method
+     * @return {@link LoggerMethodMetadata}
+     */
+    public LoggerMethodMetadata getMethodMetadata(Method method, Class<?> targetClass, Logger logger) {
+        Map<Method, LoggerMethodMetadata> methodMetadataMap = methodMetadataCache.get(targetClass);
+        if (methodMetadataMap == null) {
+            methodMetadataMap = methodMetadataCache.computeIfAbsent(targetClass, key -> new ConcurrentHashMap<>(16));
+        }
+
+        LoggerMethodMetadata metadata = methodMetadataMap.get(method);
+        if (metadata == null) {
+            metadata =
+                    methodMetadataMap.computeIfAbsent(method, key -> createMethodMetadata(method, targetClass, logger));
+        }
+        return metadata;
+    }
+
+    /**
+     * Build {@link LoggerMethodMetadata}, all attributes will be parsed through {@link #expressionCache}, the parsed
+     * expressions are only analyzed here but not kept by the metadata.
+     *
+     * @param method      the annotated method
+     * @param targetClass the target class of method
+     * @param logger      the {@link Logger} annotation of method
+     * @return {@link LoggerMethodMetadata}
+     */
+    private LoggerMethodMetadata createMethodMetadata(Method method, Class<?> targetClass, Logger logger) {
+        String[] parameterNames = getParameterNameDiscoverer().getParameterNames(method);
+        Map<LoggerAttribute, LoggerAttributeExpression> attributeExpressions = new EnumMap<>(LoggerAttribute.class);
+
+        for (LoggerAttribute attribute : LoggerAttribute.values()) {
+            String expressionString = attribute.resolve(logger);
+            LoggerExpressionKey key = null;
+            Expression expression = null;
+            ParseException parseException = null;
+            if (StringUtils.hasText(expressionString)) {
+                key = new LoggerExpressionKey(method, targetClass, attribute, expressionString);
+                try {
+                    expression = expressionCache.get(key, parser);
+                } catch (ParseException e) {
+                    log.error("Parse {} expression [{}] error: {}", attribute, expressionString, e.getMessage(), e);
+                    parseException = e;
+                }
+            }
+            attributeExpressions.put(
+                    attribute,
+                    new LoggerAttributeExpression(attribute, expressionString, key, expression, parseException));
+        }
+
+        log.debug("Created metadata for method=[{}]", ClassUtils.getQualifiedMethodName(method, targetClass));
+        return new LoggerMethodMetadata(method, targetClass, logger, parameterNames, attributeExpressions);
+    }
+
+    /**
+     * Create the compilation tracker of {@code expression} if the compiler is enabled, held by the cached entry.
+     *
+     * @param key        the expression key
+     * @param expression the parsed expression
+     * @return {@link LoggerExpressionCompilation}, null if the compiler is off
+     */
+    private LoggerExpressionCompilation createCompilation(LoggerExpressionKey key, Expression expression) {
+        if (compilerMode == SpelCompilerMode.OFF
+                || !(expression instanceof SpelExpression)
+                || LoggerExpressionAnalyzer.isLiteral(expression)) {
+            return null;
+        }
+        return new LoggerExpressionCompilation(key, (SpelExpression) expression, compilerMode);
     }
 
     /**
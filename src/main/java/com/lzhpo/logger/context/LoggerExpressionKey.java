@@ -0,0 +1,70 @@
+/*
+ * Copyright lzhpo
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.lzhpo.logger.context;
+
+import java.lang.reflect.Method;
+import java.util.Objects;
+import lombok.Getter;
+import org.springframework.util.ClassUtils;
+
+/**
+ * The cache key of a parsed {@link LoggerAttribute} expression.
+ *
+ * @author lzhpo
+ */
+@Getter
+public final class LoggerExpressionKey {
+
+    private final Method method;
+    private final Class<?> targetClass;
+    private final LoggerAttribute attribute;
+    private final String expression;
+    private final int hashCode;
+
+    public LoggerExpressionKey(Method method, Class<?> targetClass, LoggerAttribute attribute, String expression) {
+        this.method = method;
+        this.targetClass = targetClass;
+        this.attribute = attribute;
+        this.expression = expression;
+        this.hashCode = Objects.hash(method, targetClass, attribute, expression);
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if (this == other) {
+            return true;
+        }
+        if (!(other instanceof LoggerExpressionKey)) {
+            return false;
+        }
+        LoggerExpressionKey otherKey = (LoggerExpressionKey) other;
+        return Objects.equals(method, otherKey.method)
+                && Objects.equals(targetClass, otherKey.targetClass)
+                && attribute == otherKey.attribute
+                && Objects.equals(expression, otherKey.expression);
+    }
+
+    @Override
+    public int hashCode() {
+        return hashCode;
+    }
+
+    @Override
+    public String toString() {
+        String methodName = method != null ? ClassUtils.getQualifiedMethodName(method, targetClass) : null;
+        return methodName + "#" + attribute + "[" + expression + "]";
+    }
+}
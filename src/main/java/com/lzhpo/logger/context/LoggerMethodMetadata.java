@@ -0,0 +1,199 @@
+/*
+ * Copyright lzhpo
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.lzhpo.logger.context;
+
+import com.lzhpo.logger.LoggerConstant;
+import com.lzhpo.logger.annotation.Logger;
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import lombok.AccessLevel;
+import lombok.Getter;
+
+/**
+ * The immutable metadata of a {@link Logger} annotated method, built once per method and target class.
+ *
+ * <p>So the per-call path only needs to bind arguments and evaluate the pre-parsed expressions.
+ *
+ * @author lzhpo
+ */
+@Getter
+public class LoggerMethodMetadata {
+
+    private static final Set<String> ROOT_VARIABLES = new HashSet<>(Arrays.asList("this", "root"));
+
+    /**
+     * The annotated method.
+     */
+    private final Method method;
+
+    /**
+     * The target class of method.
+     */
+    private final Class<?> targetClass;
+
+    /**
+     * The resolved {@link Logger} annotation.
+     */
+    private final Logger logger;
+
+    /**
+     * The parameter names of method, null if cannot be discovered.
+     */
+    private final String[] parameterNames;
+
+    /**
+     * The number of parameters of method.
+     */
+    private final int parameterCount;
+
+    /**
+     * The argument index of each variable name, includes aX, pX and the discovered parameter names except the reserved
+     * {@code result}.
+     */
+    @Getter(AccessLevel.NONE)
+    private final Map<String, Integer> argumentIndexes;
+
+    /**
+     * The attribute expressions.
+     */
+    private final Map<LoggerAttribute, LoggerAttributeExpression> attributeExpressions;
+
+    /**
+     * The constant-folded condition, null if the condition has to be evaluated on every invocation.
+     */
+    private final Boolean constantCondition;
+
+    /**
+     * Whether the condition only references the method arguments, so it can be evaluated before proceeding.
+     */
+    @Getter(AccessLevel.NONE)
+    private final boolean preludeCondition;
+
+    public LoggerMethodMetadata(
+            Method method,
+            Class<?> targetClass,
+            Logger logger,
+            String[] parameterNames,
+            Map<LoggerAttribute, LoggerAttributeExpression> attributeExpressions) {
+        this.method = method;
+        this.targetClass = targetClass;
+        this.logger = logger;
+        this.parameterNames = parameterNames;
+        this.parameterCount = parameterNames != null ? parameterNames.length : method.getParameterCount();
+        this.argumentIndexes = createArgumentIndexes(parameterNames, parameterCount);
+        this.attributeExpressions = Collections.unmodifiableMap(new EnumMap<>(attributeExpressions));
+        this.constantCondition = resolveConstantCondition(attributeExpressions.get(LoggerAttribute.CONDITION));
+        this.preludeCondition = resolvePreludeCondition(attributeExpressions.get(LoggerAttribute.CONDITION));
+    }
+
+    /**
+     * Get the expression of {@code attribute}.
+     *
+     * @param attribute the attribute
+     * @return {@link LoggerAttributeExpression}
+     */
+    public LoggerAttributeExpression getAttributeExpression(LoggerAttribute attribute) {
+        return attributeExpressions.get(attribute);
+    }
+
+    /**
+     * Get the argument index of variable {@code name}.
+     *
+     * @param name the variable name, e.g. {@code a0}, {@code p0} or the parameter name
+     * @return the argument index, -1 if {@code name} not refers to an argument
+     */
+    public int getArgumentIndex(String name) {
+        Integer index = argumentIndexes.get(name);
+        return index != null ? index : -1;
+    }
+
+    /**
+     * Whether the condition is a constant {@code false}, the invocation never generates log.
+     *
+     * @return the result of whether never log
+     */
+    public boolean isNeverLog() {
+        return Boolean.FALSE.equals(constantCondition);
+    }
+
+    /**
+     * Whether the condition can be evaluated before proceeding, it does not reference {@code #result}, {@code #errors}
+     * or any variable put by {@link LoggerContextHolder#putVariable(String, Object)} in the method.
+     *
+     * @return the result of whether prelude condition
+     */
+    public boolean isPreludeCondition() {
+        return preludeCondition;
+    }
+
+    /**
+     * Same with {@link Logger#prelude()}.
+     *
+     * @return prelude
+     */
+    public boolean isPrelude() {
+        return logger.prelude();
+    }
+
+    /**
+     * Same with {@link Logger#returning()}.
+     *
+     * @return returning
+     */
+    public boolean isReturning() {
+        return logger.returning();
+    }
+
+    private static Map<String, Integer> createArgumentIndexes(String[] parameterNames, int parameterCount) {
+        Map<String, Integer> argumentIndexes = new HashMap<>(parameterCount * 4);
+        for (int i = 0; i < parameterCount; i++) {
+            argumentIndexes.put(LoggerConstant.VARIABLE_ARG_A + i, i);
+            argumentIndexes.put(LoggerConstant.VARIABLE_ARG_P + i, i);
+            // #result is always the return value, even if it is null and so absent from the variables
+            if (parameterNames != null
+                    && parameterNames[i] != null
+                    && !LoggerConstant.VARIABLE_RESULT.equals(parameterNames[i])) {
+                argumentIndexes.put(parameterNames[i], i);
+            }
+        }
+        return Collections.unmodifiableMap(argumentIndexes);
+    }
+
+    private boolean resolvePreludeCondition(LoggerAttributeExpression condition) {
+        if (condition.getKind() != LoggerAttributeExpression.Kind.DYNAMIC || condition.getParseException() != null) {
+            return false;
+        }
+        return condition.getVariableNames().stream()
+                .allMatch(name -> ROOT_VARIABLES.contains(name) || getArgumentIndex(name) >= 0);
+    }
+
+    private static Boolean resolveConstantCondition(LoggerAttributeExpression condition) {
+        switch (condition.getKind()) {
+            case EMPTY:
+                return Boolean.FALSE;
+            case LITERAL:
+                return Boolean.parseBoolean(condition.getLiteralValue());
+            default:
+                return null;
+        }
+    }
+}
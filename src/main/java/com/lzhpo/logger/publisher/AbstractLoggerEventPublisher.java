@@ -0,0 +1,466 @@
+/*
+ * Copyright lzhpo
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.lzhpo.logger.publisher;
+
+import cn.hutool.core.thread.ThreadFactoryBuilder;
+import com.lzhpo.logger.LoggerEvent;
+import com.lzhpo.logger.LoggerPublisherProperties;
+import com.lzhpo.logger.LoggerPublisherProperties.OverflowPolicy;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.util.Assert;
+
+/**
+ * The base {@link LoggerEventPublisher}, admit events into the queue of subclass, apply the {@link OverflowPolicy} when
+ * the queue is full, dispatch events to listeners and record the metrics.
+ *
+ * <p>The queue is bounded by the number of events in subclass, and by the estimated bytes here if
+ * {@link LoggerPublisherProperties.Overflow#getMaxBytes()} configured.
+ *
+ * <p>On shutdown, stop accepting new events and drain the queue within
+ * {@link LoggerPublisherProperties#getShutdownTimeout()}. It stops after the web server and message listeners, which
+ * are in the phases near {@link Integer#MAX_VALUE}, so the events of their last requests are still published.
+ *
+ * @author lzhpo
+ */
+@Slf4j
+public abstract class AbstractLoggerEventPublisher implements LoggerEventPublisher, SmartLifecycle, DisposableBean {
+
+    /**
+     * The phase of {@link SmartLifecycle}.
+     */
+    public static final int PHASE = 0;
+
+    private static final int MAX_EVICT_TRIES = 16;
+
+    protected final LoggerPublisherProperties publisherProperties;
+    private final LoggerEventDispatcher dispatcher;
+    private final LoggerPublisherProperties.Overflow overflow;
+    private final long maxBytes;
+    private final boolean virtualThreads;
+    private final AtomicLong queuedBytes = new AtomicLong();
+
+    private final LongAdder publishedCount = new LongAdder();
+    private final LongAdder failedCount = new LongAdder();
+    private final LongAdder rejectedCount = new LongAdder();
+    private final LongAdder totalLatencyNanos = new LongAdder();
+    private final LongAccumulator maxLatencyNanos = new LongAccumulator(Math::max, 0);
+    private final Map<OverflowPolicy, LongAdder> droppedCounts = new EnumMap<>(OverflowPolicy.class);
+    private final LongAdder shutdownFlushedCount = new LongAdder();
+    private final LongAdder shutdownDroppedCount = new LongAdder();
+    private final AtomicBoolean stopped = new AtomicBoolean();
+    private final ReentrantLock capacityLock = new ReentrantLock();
+    private final Condition capacityFreed = capacityLock.newCondition();
+    private final AtomicInteger blockedCount = new AtomicInteger();
+
+    protected AbstractLoggerEventPublisher(
+            LoggerEventDispatcher dispatcher, LoggerPublisherProperties publisherProperties) {
+        LoggerPublisherProperties.Overflow overflow = publisherProperties.getOverflow();
+        Assert.isTrue(publisherProperties.getPoolSize() > 0, "The poolSize of publisher must be greater than 0.");
+        Assert.notNull(overflow.getPolicy(), "The overflow policy of publisher must not be null.");
+        Assert.notNull(overflow.getBlockTimeout(), "The blockTimeout of publisher must not be null.");
+        Assert.notNull(publisherProperties.getShutdownTimeout(), "The shutdownTimeout of publisher must not be null.");
+        Assert.isTrue(
+                overflow.getSampleThreshold() >= 0 && overflow.getSampleThreshold() <= 1,
+                "The sampleThreshold of publisher must be between 0 and 1.");
+        Assert.isTrue(
+                overflow.getSampleRate() >= 0 && overflow.getSampleRate() <= 1,
+                "The sampleRate of publisher must be between 0 and 1.");
+        this.dispatcher = dispatcher;
+        this.publisherProperties = publisherProperties;
+        this.overflow = overflow;
+        this.maxBytes =
+                overflow.getMaxBytes() == null ? 0 : overflow.getMaxBytes().toBytes();
+        this.virtualThreads = publisherProperties.isVirtualThreads() && LoggerVirtualThreads.isSupported();
+        if (publisherProperties.isVirtualThreads() && !this.virtualThreads) {
+            log.warn("Virtual threads require JDK 21 or later, fallback to platform threads.");
+        }
+        for (OverflowPolicy policy : OverflowPolicy.values()) {
+            droppedCounts.put(policy, new LongAdder());
+        }
+    }
+
+    @Override
+    public void publish(LoggerEvent event) {
+        long submitNanos = System.nanoTime();
+        if (!isRunning()) {
+            rejectedCount.increment();
+            shutdownDroppedCount.increment();
+            log.warn("The publisher has been shutdown, discarded LoggerEvent.");
+            return;
+        }
+
+        long bytes = maxBytes > 0 && isHeapQueue() ? LoggerEventSizeEstimator.estimate(event) : 0;
+        if (tryAdmit(event, submitNanos, bytes)) {
+            return;
+        }
+
+        rejectedCount.increment();
+        OverflowPolicy policy = overflow.getPolicy();
+        switch (policy) {
+            case BLOCK:
+                block(event, submitNanos, bytes);
+                break;
+            case DROP_OLDEST:
+                dropOldest(event, submitNanos, bytes);
+                break;
+            case CALLER_RUNS:
+                log.debug("The publisher queue is full, publish LoggerEvent in caller thread.");
+                dispatch(event, submitNanos, 0);
+                break;
+            default:
+                log.debug("The publisher queue is full, discarded LoggerEvent by {}.", policy);
+                dropped(policy);
+                break;
+        }
+    }
+
+    @Override
+    public long getPublishedCount() {
+        return publishedCount.sum();
+    }
+
+    @Override
+    public long getFailedCount() {
+        return failedCount.sum();
+    }
+
+    @Override
+    public long getRejectedCount() {
+        return rejectedCount.sum();
+    }
+
+    @Override
+    public long getDroppedCount() {
+        long droppedCount = 0;
+        for (LongAdder count : droppedCounts.values()) {
+            droppedCount += count.sum();
+        }
+        return droppedCount;
+    }
+
+    @Override
+    public Map<OverflowPolicy, Long> getDroppedCounts() {
+        Map<OverflowPolicy, Long> counts = new EnumMap<>(OverflowPolicy.class);
+        droppedCounts.forEach((policy, count) -> counts.put(policy, count.sum()));
+        return counts;
+    }
+
+    @Override
+    public long getShutdownFlushedCount() {
+        return shutdownFlushedCount.sum();
+    }
+
+    @Override
+    public long getShutdownDroppedCount() {
+        return shutdownDroppedCount.sum();
+    }
+
+    @Override
+    public Duration getAverageLatency() {
+        long count = publishedCount.sum() + failedCount.sum();
+        return count == 0 ? Duration.ZERO : Duration.ofNanos(totalLatencyNanos.sum() / count);
+    }
+
+    @Override
+    public Duration getMaxLatency() {
+        return Duration.ofNanos(maxLatencyNanos.get());
+    }
+
+    @Override
+    public void start() {
+        // Started on construction, so that events published while the context refreshing are not lost
+    }
+
+    @Override
+    public void stop() {
+        if (!stopped.compareAndSet(false, true)) {
+            return;
+        }
+
+        Duration shutdownTimeout = publisherProperties.getShutdownTimeout();
+        int queued = getQueueDepth();
+        long publishedBefore = publishedCount.sum() + failedCount.sum();
+        long startNanos = System.nanoTime();
+        int notPublished;
+        try {
+            notPublished = shutdown(shutdownTimeout.toNanos());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            notPublished = getQueueDepth();
+        }
+        long flushed = publishedCount.sum() + failedCount.sum() - publishedBefore;
+        shutdownFlushedCount.add(flushed);
+        shutdownDroppedCount.add(notPublished);
+
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+        if (notPublished > 0) {
+            log.warn(
+                    "The publisher did not drain {} queued events in {}, flushed {}, dropped {}.",
+                    queued,
+                    shutdownTimeout,
+                    flushed,
+                    notPublished);
+        } else {
+            log.info("The publisher drained {} queued events in {}ms, flushed {}.", queued, elapsedMillis, flushed);
+        }
+    }
+
+    @Override
+    public int getPhase() {
+        return PHASE;
+    }
+
+    @Override
+    public void destroy() {
+        stop();
+    }
+
+    /**
+     * Stop accepting new events and publish the queued events, wait for them at most {@code timeoutNanos}.
+     *
+     * @param timeoutNanos the maximum nanoseconds to wait
+     * @return the number of queued events not published
+     * @throws InterruptedException if interrupted while waiting
+     */
+    protected abstract int shutdown(long timeoutNanos) throws InterruptedException;
+
+    /**
+     * Put {@code event} into the queue without waiting.
+     *
+     * @param event       {@link LoggerEvent}
+     * @param submitNanos the {@link System#nanoTime()} when the event submitted
+     * @param bytes       the estimated bytes of event, must be passed back to {@link #dispatch}
+     * @return false if the queue is full or shutdown
+     */
+    protected abstract boolean offer(LoggerEvent event, long submitNanos, long bytes);
+
+    /**
+     * Remove the oldest event waiting in the queue which {@code event} would be put into.
+     *
+     * @param event the {@link LoggerEvent} being published
+     * @return the estimated bytes of the removed event, -1 if nothing removed
+     */
+    protected abstract long pollOldest(LoggerEvent event);
+
+    /**
+     * Whether the publisher accepts new events.
+     *
+     * @return false if shutdown
+     */
+    @Override
+    public abstract boolean isRunning();
+
+    /**
+     * Whether the queued events are held in the heap, only then the queue is bounded by
+     * {@link LoggerPublisherProperties.Overflow#getMaxBytes()}.
+     *
+     * @return true by default
+     */
+    protected boolean isHeapQueue() {
+        return true;
+    }
+
+    /**
+     * Dispatch {@code event} to listeners in the current thread by {@link LoggerEventDispatcher}.
+     *
+     * @param event       {@link LoggerEvent}
+     * @param submitNanos the {@link System#nanoTime()} when the event submitted
+     * @param bytes       the estimated bytes of event passed to {@link #offer}
+     * @return false if the listeners failed
+     */
+    protected boolean dispatch(LoggerEvent event, long submitNanos, long bytes) {
+        return dispatch(event, submitNanos, bytes, null);
+    }
+
+    /**
+     * Dispatch {@code event} to listeners in the current thread by {@link LoggerEventDispatcher}, skip the listeners
+     * already received it in {@code delivery}.
+     *
+     * @param event       {@link LoggerEvent}
+     * @param submitNanos the {@link System#nanoTime()} when the event submitted
+     * @param bytes       the estimated bytes of event passed to {@link #offer}
+     * @param delivery    the progress of delivering {@code event} kept across retries, null if never retried
+     * @return false if the listeners failed
+     */
+    protected boolean dispatch(LoggerEvent event, long submitNanos, long bytes, LoggerDelivery delivery) {
+        release(bytes);
+        signalFreed();
+        try {
+            if (delivery == null) {
+                dispatcher.dispatch(event);
+            } else {
+                dispatcher.dispatch(event, delivery);
+            }
+            publishedCount.increment();
+            log.debug("Published LoggerEvent.");
+            return true;
+        } catch (Exception e) {
+            failedCount.increment();
+            log.error("Publishing LoggerEvent error: {}", e.getMessage(), e);
+            return false;
+        } finally {
+            long latencyNanos = System.nanoTime() - submitNanos;
+            totalLatencyNanos.add(latencyNanos);
+            maxLatencyNanos.accumulate(latencyNanos);
+        }
+    }
+
+    /**
+     * Wake up the threads waiting for a free slot by {@link OverflowPolicy#BLOCK}, called once an event left the queue.
+     * {@link #dispatch} calls it already, subclasses call it only if the slot is freed after dispatching.
+     */
+    protected void signalFreed() {
+        if (blockedCount.get() == 0) {
+            return;
+        }
+        capacityLock.lock();
+        try {
+            capacityFreed.signalAll();
+        } finally {
+            capacityLock.unlock();
+        }
+    }
+
+    /**
+     * Create the factory of publishing threads, virtual threads if {@link LoggerPublisherProperties#isVirtualThreads()}
+     * and supported by the JVM.
+     *
+     * @return {@link ThreadFactory}
+     */
+    protected ThreadFactory createThreadFactory() {
+        if (isVirtualThreads()) {
+            return LoggerVirtualThreads.newThreadFactory(publisherProperties.getThreadNamePrefix());
+        }
+        return createPlatformThreadFactory();
+    }
+
+    /**
+     * Create the factory of publishing threads, always platform threads.
+     *
+     * @return {@link ThreadFactory}
+     */
+    protected ThreadFactory createPlatformThreadFactory() {
+        return ThreadFactoryBuilder.create()
+                .setNamePrefix(publisherProperties.getThreadNamePrefix())
+                .setDaemon(true)
+                .build();
+    }
+
+    /**
+     * Whether the publishing threads are virtual threads.
+     *
+     * @return true if {@link LoggerPublisherProperties#isVirtualThreads()} and supported by the JVM
+     */
+    protected boolean isVirtualThreads() {
+        return virtualThreads;
+    }
+
+    private boolean tryAdmit(LoggerEvent event, long submitNanos, long bytes) {
+        if (overflow.getPolicy() == OverflowPolicy.SAMPLE
+                && getQueueDepth() >= overflow.getSampleThreshold() * getQueueCapacity()
+                && ThreadLocalRandom.current().nextDouble() >= overflow.getSampleRate()) {
+            return false;
+        }
+        if (!reserve(bytes)) {
+            return false;
+        }
+        if (offer(event, submitNanos, bytes)) {
+            return true;
+        }
+        release(bytes);
+        return false;
+    }
+
+    private void block(LoggerEvent event, long submitNanos, long bytes) {
+        long remainingNanos = submitNanos + overflow.getBlockTimeout().toNanos() - System.nanoTime();
+        capacityLock.lock();
+        // Retry under the lock after counted as blocked, so a slot freed meanwhile is either seen or signaled
+        blockedCount.incrementAndGet();
+        try {
+            while (remainingNanos > 0 && isRunning()) {
+                if (tryAdmit(event, submitNanos, bytes)) {
+                    return;
+                }
+                remainingNanos = capacityFreed.awaitNanos(remainingNanos);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            blockedCount.decrementAndGet();
+            capacityLock.unlock();
+        }
+        log.debug("The publisher queue is still full after {}, discarded LoggerEvent.", overflow.getBlockTimeout());
+        dropped(OverflowPolicy.BLOCK);
+    }
+
+    private void dropOldest(LoggerEvent event, long submitNanos, long bytes) {
+        for (int i = 0; i < MAX_EVICT_TRIES; i++) {
+            long evictedBytes = pollOldest(event);
+            if (evictedBytes < 0) {
+                break;
+            }
+            release(evictedBytes);
+            dropped(OverflowPolicy.DROP_OLDEST);
+            log.debug("The publisher queue is full, discarded the oldest LoggerEvent.");
+            if (tryAdmit(event, submitNanos, bytes)) {
+                return;
+            }
+        }
+        // Gave up evicting, it is the event being published dropped
+        log.debug("The publisher queue is still full, discarded LoggerEvent.");
+        dropped(OverflowPolicy.DROP_NEWEST);
+    }
+
+    private boolean reserve(long bytes) {
+        if (bytes == 0) {
+            return true;
+        }
+        long current;
+        do {
+            current = queuedBytes.get();
+            // An empty queue always admits one event, otherwise an event larger than maxBytes never published
+            if (current > 0 && current + bytes > maxBytes) {
+                return false;
+            }
+        } while (!queuedBytes.compareAndSet(current, current + bytes));
+        return true;
+    }
+
+    private void release(long bytes) {
+        if (bytes != 0) {
+            queuedBytes.addAndGet(-bytes);
+        }
+    }
+
+    private void dropped(OverflowPolicy policy) {
+        droppedCounts.get(policy).increment();
+    }
+}
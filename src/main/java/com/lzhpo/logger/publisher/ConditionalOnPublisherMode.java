@@ -0,0 +1,43 @@
+/*
+ * Copyright lzhpo
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.lzhpo.logger.publisher;
+
+import com.lzhpo.logger.LoggerPublisherProperties;
+import java.lang.annotation.*;
+import org.springframework.context.annotation.Conditional;
+
+/**
+ * Match when {@code logger.publisher.mode} binds to {@link #value()}.
+ *
+ * <p>The property is bound as {@link LoggerPublisherProperties.Mode} with the relaxed binding of
+ * {@link LoggerPublisherProperties}, so {@code ring_buffer}, {@code ring-buffer} and {@code RING_BUFFER} select the
+ * same publisher.
+ *
+ * @author lzhpo
+ */
+@Documented
+@Target(ElementType.TYPE)
+@Retention(RetentionPolicy.RUNTIME)
+@Conditional(OnPublisherModeCondition.class)
+@interface ConditionalOnPublisherMode {
+
+    /**
+     * The mode of publisher.
+     *
+     * @return the mode
+     */
+    LoggerPublisherProperties.Mode value();
+}
@@ -0,0 +1,443 @@
+/*
+ * Copyright lzhpo
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.lzhpo.logger.publisher;
+
+import com.lzhpo.logger.LoggerBatchListener;
+import com.lzhpo.logger.LoggerEvent;
+import com.lzhpo.logger.LoggerPublisherProperties;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.aop.scope.ScopedProxyUtils;
+import org.springframework.beans.factory.BeanFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.ApplicationEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.context.event.GenericApplicationListener;
+import org.springframework.context.event.GenericApplicationListenerAdapter;
+import org.springframework.context.event.SmartApplicationListener;
+import org.springframework.context.support.AbstractApplicationContext;
+import org.springframework.core.Ordered;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.annotation.AnnotationAwareOrderComparator;
+import org.springframework.core.annotation.OrderUtils;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+/**
+ * Deliver {@link LoggerEvent} to the Spring application listeners and the {@link LoggerBatchListener}s.
+ *
+ * <p>With {@link LoggerPublisherProperties.DispatchMode#DIRECT}, the listeners of {@link LoggerEvent}, including the
+ * {@link org.springframework.context.event.EventListener} methods, are resolved into an array after all singletons
+ * instantiated and called directly, bypassing the {@link org.springframework.context.event.ApplicationEventMulticaster}.
+ * The listeners of any {@link ApplicationEvent} are not the listeners of {@link LoggerEvent}, so they are skipped.
+ * Until resolved, events are published through the {@link ApplicationContext}.
+ *
+ * <p>Like the {@link org.springframework.context.event.ApplicationEventMulticaster}, the listener beans not instantiated
+ * yet, e.g. the lazy-init and prototype ones, are resolved by bean name and fetched from the bean factory on every event,
+ * ordered by their {@link org.springframework.core.annotation.Order}, and
+ * {@link SmartApplicationListener#supportsSourceType(Class)} is checked on every event. If such a bean is a
+ * {@link SmartApplicationListener}, the events it supports cannot be known before it is instantiated, so the events are
+ * published through the {@link ApplicationContext} instead.
+ *
+ * <p>With {@link LoggerPublisherProperties.Isolation#isEnabled()}, each listener is called by its own
+ * {@link ExecutorLoggerEventPublisher}, so that a slow listener never delays the others.
+ *
+ * <p>The {@link LoggerBatchListener}s are discovered after all singletons instantiated, so discovering them never
+ * instantiates beans too early.
+ *
+ * <p>On shutdown, the isolated listeners and the {@link LoggerBatchListener}s are drained in {@link #stop()}, after the
+ * publishers stopped in {@link AbstractLoggerEventPublisher#PHASE} and before any bean is destroyed, so the sinks
+ * closing their resources on destroy still receive the last events.
+ *
+ * @author lzhpo
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class DefaultLoggerEventDispatcher
+        implements LoggerEventDispatcher, SmartInitializingSingleton, SmartLifecycle, DisposableBean {
+
+    /**
+     * The phase of {@link SmartLifecycle}, stopped after the publishers.
+     */
+    public static final int PHASE = AbstractLoggerEventPublisher.PHASE - 1;
+
+    private static final ResolvableType LOGGER_EVENT_TYPE = ResolvableType.forClass(LoggerEvent.class);
+    private static final ResolvableType APPLICATION_EVENT_TYPE = ResolvableType.forClass(ApplicationEvent.class);
+
+    private final ApplicationContext applicationContext;
+    private final ObjectProvider<LoggerBatchListener> batchListenerObjectProvider;
+    private final LoggerPublisherProperties publisherProperties;
+
+    private volatile LoggerBatchAccumulator batchAccumulator;
+    private volatile ApplicationListener<LoggerEvent>[] listeners;
+    private volatile SmartApplicationListener[] sourceTypeFilters;
+    private volatile Map<String, ExecutorLoggerEventPublisher> isolatedListeners = Collections.emptyMap();
+    private volatile boolean running;
+    private final AtomicBoolean stopped = new AtomicBoolean();
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        List<LoggerBatchListener> batchListeners =
+                batchListenerObjectProvider.orderedStream().collect(Collectors.toList());
+        log.debug("Found {} LoggerBatchListener.", batchListeners.size());
+        if (!batchListeners.isEmpty()) {
+            LoggerPublisherProperties.Batch batch = publisherProperties.getBatch();
+            batchAccumulator =
+                    new LoggerBatchAccumulator(batchListeners, batch.getMaxBatchSize(), batch.getMaxLatency());
+        }
+
+        if (publisherProperties.getDispatchMode() == LoggerPublisherProperties.DispatchMode.DIRECT) {
+            if (applicationContext instanceof AbstractApplicationContext) {
+                Map<String, ApplicationListener<LoggerEvent>> resolvedListeners =
+                        resolveListeners((AbstractApplicationContext) applicationContext);
+                if (resolvedListeners == null) {
+                    return;
+                }
+                log.debug(
+                        "Resolved {} listeners of LoggerEvent: {}",
+                        resolvedListeners.size(),
+                        resolvedListeners.keySet());
+                sourceTypeFilters = resolvedListeners.values().stream()
+                        .map(DefaultLoggerEventDispatcher::getSourceTypeFilter)
+                        .toArray(SmartApplicationListener[]::new);
+                if (publisherProperties.getIsolation().isEnabled()) {
+                    isolatedListeners = isolateListeners(resolvedListeners);
+                    resolvedListeners = new LinkedHashMap<>();
+                    for (Map.Entry<String, ExecutorLoggerEventPublisher> entry : isolatedListeners.entrySet()) {
+                        resolvedListeners.put(entry.getKey(), entry.getValue()::publish);
+                    }
+                }
+                listeners = resolvedListeners.values().toArray(new ApplicationListener[0]);
+            } else {
+                log.warn("Cannot resolve the listeners of LoggerEvent, fallback to publishing through Spring.");
+            }
+        }
+    }
+
+    @Override
+    public void dispatch(LoggerEvent event) {
+        deliver(event, null);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>The targets are the {@link LoggerBatchListener}s as a whole, and each listener called directly, or all
+     * listeners as a whole if publishing through Spring.
+     */
+    @Override
+    public void dispatch(LoggerEvent event, LoggerDelivery delivery) {
+        deliver(event, delivery);
+    }
+
+    private void deliver(LoggerEvent event, LoggerDelivery delivery) {
+        LoggerBatchAccumulator accumulator = batchAccumulator;
+        if (accumulator != null && (delivery == null || !delivery.isDelivered(0))) {
+            accumulator.add(event);
+            markDelivered(delivery, 0);
+        }
+
+        ApplicationListener<LoggerEvent>[] resolvedListeners = listeners;
+        if (resolvedListeners == null) {
+            if (delivery == null || !delivery.isDelivered(1)) {
+                applicationContext.publishEvent(event);
+                markDelivered(delivery, 1);
+            }
+            return;
+        }
+
+        SmartApplicationListener[] filters = sourceTypeFilters;
+        Class<?> sourceType = event.getSource().getClass();
+        RuntimeException error = null;
+        for (int i = 0; i < resolvedListeners.length; i++) {
+            if (delivery != null && delivery.isDelivered(i + 1)) {
+                continue;
+            }
+            if (filters[i] != null && !filters[i].supportsSourceType(sourceType)) {
+                continue;
+            }
+            ApplicationListener<LoggerEvent> listener = resolvedListeners[i];
+            try {
+                listener.onApplicationEvent(event);
+                markDelivered(delivery, i + 1);
+            } catch (RuntimeException e) {
+                log.error("Listener [{}] handle LoggerEvent error: {}", listener, e.getMessage(), e);
+                error = error == null ? e : error;
+            }
+        }
+        if (error != null) {
+            throw error;
+        }
+    }
+
+    private static void markDelivered(LoggerDelivery delivery, int target) {
+        if (delivery != null) {
+            delivery.markDelivered(target);
+        }
+    }
+
+    /**
+     * Get the listeners called directly, empty if publishing through Spring.
+     *
+     * @return the listeners of {@link LoggerEvent}
+     */
+    public List<ApplicationListener<LoggerEvent>> getListeners() {
+        ApplicationListener<LoggerEvent>[] resolvedListeners = listeners;
+        return resolvedListeners == null
+                ? Collections.emptyList()
+                : Collections.unmodifiableList(Arrays.asList(resolvedListeners));
+    }
+
+    /**
+     * Get the publishers of each isolated listener, with the queue depth, latency and throughput of the listener.
+     *
+     * @return the publishers of isolated listeners, keyed by listener id
+     */
+    public Map<String, LoggerEventPublisher> getIsolatedListeners() {
+        return Collections.unmodifiableMap(isolatedListeners);
+    }
+
+    @Override
+    public void start() {
+        running = true;
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        if (!stopped.compareAndSet(false, true)) {
+            return;
+        }
+        for (ExecutorLoggerEventPublisher isolatedListener : isolatedListeners.values()) {
+            isolatedListener.destroy();
+        }
+        LoggerBatchAccumulator accumulator = batchAccumulator;
+        if (accumulator != null) {
+            log.debug("Flushing {} LoggerEvent to LoggerBatchListener.", accumulator.getPendingCount());
+            accumulator.close(publisherProperties.getShutdownTimeout());
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public int getPhase() {
+        return PHASE;
+    }
+
+    @Override
+    public void destroy() {
+        // Not stopped as a lifecycle if the context failed to refresh
+        stop();
+    }
+
+    private Map<String, ExecutorLoggerEventPublisher> isolateListeners(
+            Map<String, ApplicationListener<LoggerEvent>> resolvedListeners) {
+        LoggerPublisherProperties.Isolation isolation = publisherProperties.getIsolation();
+        Map<String, ExecutorLoggerEventPublisher> isolatedPublishers = new LinkedHashMap<>();
+        resolvedListeners.forEach((listenerId, listener) -> {
+            LoggerPublisherProperties.ListenerQueue listenerQueue =
+                    isolation.getListeners().getOrDefault(listenerId, isolation.getDefaults());
+            LoggerPublisherProperties listenerProperties = new LoggerPublisherProperties();
+            listenerProperties.setPoolSize(listenerQueue.getConcurrency());
+            listenerProperties.setQueueCapacity(listenerQueue.getQueueCapacity());
+            listenerProperties.setOverflow(listenerQueue.getOverflow());
+            listenerProperties.setThreadNamePrefix(publisherProperties.getThreadNamePrefix() + listenerId + "-");
+            listenerProperties.setVirtualThreads(publisherProperties.isVirtualThreads());
+            listenerProperties.setShutdownTimeout(publisherProperties.getShutdownTimeout());
+            isolatedPublishers.put(
+                    listenerId, new ExecutorLoggerEventPublisher(listener::onApplicationEvent, listenerProperties));
+        });
+        return isolatedPublishers;
+    }
+
+    /**
+     * Resolve the listeners of {@link LoggerEvent} in {@code context} and its parents.
+     *
+     * @param context the application context
+     * @return the listeners keyed by listener id, null if they cannot be resolved before instantiated
+     */
+    @SuppressWarnings("unchecked")
+    private static Map<String, ApplicationListener<LoggerEvent>> resolveListeners(AbstractApplicationContext context) {
+        Map<String, ApplicationListener<LoggerEvent>> resolvedListeners = new LinkedHashMap<>();
+        // Same as Spring, the listeners of parent context also receive the events published in child context
+        for (ApplicationContext current = context; current != null; current = current.getParent()) {
+            if (current instanceof AbstractApplicationContext) {
+                AbstractApplicationContext currentContext = (AbstractApplicationContext) current;
+                ConfigurableListableBeanFactory beanFactory = currentContext.getBeanFactory();
+                Map<Object, String> beanNames = getListenerBeanNames(beanFactory);
+                List<ApplicationListener<?>> candidates = new ArrayList<>();
+                for (ApplicationListener<?> listener : currentContext.getApplicationListeners()) {
+                    if (supportsLoggerEvent(listener, beanFactory, beanNames.get(listener))) {
+                        candidates.add(listener);
+                    }
+                }
+                // The listener beans not instantiated are only known by bean name
+                for (String beanName : beanFactory.getBeanNamesForType(ApplicationListener.class, true, false)) {
+                    if (beanFactory.containsSingleton(beanName) || ScopedProxyUtils.isScopedTarget(beanName)) {
+                        continue;
+                    }
+                    Class<?> listenerType = beanFactory.getType(beanName, false);
+                    if (listenerType == null || SmartApplicationListener.class.isAssignableFrom(listenerType)) {
+                        log.warn(
+                                "Cannot resolve the events supported by listener [{}] before instantiated, "
+                                        + "fallback to publishing through Spring.",
+                                beanName);
+                        return null;
+                    }
+                    if (supportsLoggerEvent(listenerType, beanFactory, beanName)) {
+                        BeanNameListener listener = new BeanNameListener(beanFactory, beanName, listenerType);
+                        beanNames.put(listener, beanName);
+                        candidates.add(listener);
+                    }
+                }
+                AnnotationAwareOrderComparator.sort(candidates);
+                for (ApplicationListener<?> listener : candidates) {
+                    String listenerId = getListenerId(listener, beanNames.get(listener));
+                    String uniqueId = listenerId;
+                    for (int i = 1; resolvedListeners.containsKey(uniqueId); i++) {
+                        uniqueId = listenerId + "#" + i;
+                    }
+                    resolvedListeners.put(uniqueId, (ApplicationListener<LoggerEvent>) listener);
+                }
+            }
+        }
+        return resolvedListeners;
+    }
+
+    private static boolean supportsLoggerEvent(
+            ApplicationListener<?> listener, ConfigurableListableBeanFactory beanFactory, String beanName) {
+        GenericApplicationListener genericListener = listener instanceof GenericApplicationListener
+                ? (GenericApplicationListener) listener
+                : new GenericApplicationListenerAdapter(listener);
+        boolean supportsLoggerEvent = genericListener.supportsEventType(LOGGER_EVENT_TYPE);
+        boolean supportsApplicationEvent = genericListener.supportsEventType(APPLICATION_EVENT_TYPE);
+
+        // The event type of lambda cannot be resolved from its class, resolve it from the bean definition like Spring
+        if (supportsApplicationEvent
+                && beanName != null
+                && beanFactory.containsBeanDefinition(beanName)
+                && !(listener instanceof SmartApplicationListener)) {
+            Class<?> eventType = beanFactory
+                    .getMergedBeanDefinition(beanName)
+                    .getResolvableType()
+                    .as(ApplicationListener.class)
+                    .getGeneric()
+                    .resolve();
+            if (eventType != null) {
+                supportsLoggerEvent = eventType.isAssignableFrom(LoggerEvent.class);
+                supportsApplicationEvent = eventType.isAssignableFrom(ApplicationEvent.class);
+            }
+        }
+        return supportsLoggerEvent && !supportsApplicationEvent;
+    }
+
+    private static boolean supportsLoggerEvent(
+            Class<?> listenerType, ConfigurableListableBeanFactory beanFactory, String beanName) {
+        ResolvableType eventType = ResolvableType.NONE;
+        if (beanFactory.containsBeanDefinition(beanName)) {
+            eventType = beanFactory
+                    .getMergedBeanDefinition(beanName)
+                    .getResolvableType()
+                    .as(ApplicationListener.class)
+                    .getGeneric();
+        }
+        if (eventType.resolve() == null) {
+            eventType = ResolvableType.forClass(listenerType)
+                    .as(ApplicationListener.class)
+                    .getGeneric();
+        }
+        // A raw listener receives any ApplicationEvent, so it is not a listener of LoggerEvent
+        Class<?> eventClass = eventType.resolve();
+        return eventClass != null
+                && eventClass.isAssignableFrom(LoggerEvent.class)
+                && !eventClass.isAssignableFrom(ApplicationEvent.class);
+    }
+
+    private static SmartApplicationListener getSourceTypeFilter(ApplicationListener<?> listener) {
+        return listener instanceof SmartApplicationListener ? (SmartApplicationListener) listener : null;
+    }
+
+    private static String getListenerId(ApplicationListener<?> listener, String beanName) {
+        if (beanName != null) {
+            return beanName;
+        }
+        if (listener instanceof SmartApplicationListener) {
+            String listenerId = ((SmartApplicationListener) listener).getListenerId();
+            if (StringUtils.hasText(listenerId)) {
+                return listenerId;
+            }
+        }
+        return listener.getClass().getName();
+    }
+
+    private static Map<Object, String> getListenerBeanNames(ConfigurableListableBeanFactory beanFactory) {
+        Map<Object, String> beanNames = new IdentityHashMap<>();
+        for (String beanName : beanFactory.getBeanNamesForType(ApplicationListener.class, false, false)) {
+            Object listener = beanFactory.getSingleton(beanName);
+            if (listener != null) {
+                beanNames.put(listener, beanName);
+            }
+        }
+        return beanNames;
+    }
+
+    /**
+     * The listener bean not instantiated yet, fetched from the bean factory on every event like
+     * {@link org.springframework.context.event.ApplicationEventMulticaster}.
+     */
+    @RequiredArgsConstructor
+    private static class BeanNameListener implements ApplicationListener<LoggerEvent>, Ordered {
+
+        private final BeanFactory beanFactory;
+        private final String beanName;
+        private final Class<?> listenerType;
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public void onApplicationEvent(LoggerEvent event) {
+            beanFactory.getBean(beanName, ApplicationListener.class).onApplicationEvent(event);
+        }
+
+        @Override
+        public int getOrder() {
+            return OrderUtils.getOrder(listenerType, Ordered.LOWEST_PRECEDENCE);
+        }
+
+        @Override
+        public String toString() {
+            return beanName;
+        }
+    }
+}
@@ -0,0 +1,112 @@
+/*
+ * Copyright lzhpo
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.lzhpo.logger.publisher;
+
+import com.lzhpo.logger.LoggerEvent;
+import com.lzhpo.logger.LoggerPublisherProperties;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import org.springframework.util.Assert;
+
+/**
+ * Publish {@link LoggerEvent} asynchronously on a dedicated bounded thread pool, one task per event.
+ *
+ * <p>With virtual threads, the pool size is the maximum number of events published concurrently, it can be thousands
+ * for blocking listeners, idle threads exit after a while.
+ *
+ * @author lzhpo
+ */
+@Component
+@ConditionalOnPublisherMode(LoggerPublisherProperties.Mode.EXECUTOR)
+public class ExecutorLoggerEventPublisher extends AbstractLoggerEventPublisher {
+
+    private static final long VIRTUAL_KEEP_ALIVE_SECONDS = 60;
+
+    private final ThreadPoolExecutor executor;
+
+    public ExecutorLoggerEventPublisher(
+            LoggerEventDispatcher dispatcher, LoggerPublisherProperties publisherProperties) {
+        super(dispatcher, publisherProperties);
+        Assert.isTrue(
+                publisherProperties.getQueueCapacity() > 0, "The queueCapacity of publisher must be greater than 0.");
+        this.executor = new ThreadPoolExecutor(
+                publisherProperties.getPoolSize(),
+                publisherProperties.getPoolSize(),
+                0L,
+                TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(publisherProperties.getQueueCapacity()),
+                createThreadFactory(),
+                (task, threadPoolExecutor) -> ((PublishTask) task).rejected = true);
+        if (isVirtualThreads()) {
+            executor.setKeepAliveTime(VIRTUAL_KEEP_ALIVE_SECONDS, TimeUnit.SECONDS);
+            executor.allowCoreThreadTimeOut(true);
+        }
+    }
+
+    @Override
+    protected boolean offer(LoggerEvent event, long submitNanos, long bytes) {
+        PublishTask task = new PublishTask(event, submitNanos, bytes);
+        executor.execute(task);
+        return !task.rejected;
+    }
+
+    @Override
+    protected long pollOldest(LoggerEvent event) {
+        PublishTask task = (PublishTask) executor.getQueue().poll();
+        return task == null ? -1 : task.bytes;
+    }
+
+    @Override
+    public int getQueueCapacity() {
+        return publisherProperties.getQueueCapacity();
+    }
+
+    @Override
+    public boolean isRunning() {
+        return !executor.isShutdown();
+    }
+
+    @Override
+    public int getQueueDepth() {
+        return executor.getQueue().size();
+    }
+
+    @Override
+    protected int shutdown(long timeoutNanos) throws InterruptedException {
+        executor.shutdown();
+        if (executor.awaitTermination(timeoutNanos, TimeUnit.NANOSECONDS)) {
+            return 0;
+        }
+        return executor.shutdownNow().size();
+    }
+
+    @RequiredArgsConstructor
+    private class PublishTask implements Runnable {
+
+        private final LoggerEvent event;
+        private final long submitNanos;
+        private final long bytes;
+        private boolean rejected;
+
+        @Override
+        public void run() {
+            dispatch(event, submitNanos, bytes);
+        }
+    }
+}
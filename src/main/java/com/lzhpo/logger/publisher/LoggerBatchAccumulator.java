@@ -0,0 +1,224 @@
+/*
+ * Copyright lzhpo
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.lzhpo.logger.publisher;
+
+import cn.hutool.core.thread.ThreadFactoryBuilder;
+import com.lzhpo.logger.LoggerBatchListener;
+import com.lzhpo.logger.LoggerEvent;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.util.Assert;
+
+/**
+ * Accumulate {@link LoggerEvent} and deliver them to {@link LoggerBatchListener} by size or time window.
+ *
+ * <p>Until closed, all batches are delivered by a single deliverer thread, so the batches arrive in the order their
+ * events were added and {@link LoggerBatchListener#onEvents(List)} is never called concurrently. A full batch is
+ * handed over to the deliverer, the thread adding events waits only if {@value #MAX_PENDING_BATCHES} full batches are
+ * still waiting for it.
+ *
+ * @author lzhpo
+ */
+@Slf4j
+public class LoggerBatchAccumulator {
+
+    private static final int MAX_PENDING_BATCHES = 4;
+
+    private final List<LoggerBatchListener> listeners;
+    private final int maxBatchSize;
+    private final long maxLatencyNanos;
+    private final Thread deliverer;
+
+    private final Object lock = new Object();
+    private final Deque<List<LoggerEvent>> fullBatches = new ArrayDeque<>();
+    private List<LoggerEvent> buffer;
+    private long firstEventNanos;
+    private int pendingCount;
+    private boolean flushRequested;
+    private boolean closed;
+
+    public LoggerBatchAccumulator(List<LoggerBatchListener> listeners, int maxBatchSize, Duration maxLatency) {
+        Assert.isTrue(maxBatchSize > 0, "The maxBatchSize of batch must be greater than 0.");
+        Assert.isTrue(maxLatency != null && !maxLatency.isNegative(), "The maxLatency of batch must not be negative.");
+        this.listeners = listeners;
+        this.maxBatchSize = maxBatchSize;
+        this.maxLatencyNanos = maxLatency.toNanos();
+        this.buffer = new ArrayList<>(maxBatchSize);
+        this.deliverer = ThreadFactoryBuilder.create()
+                .setNamePrefix("logger-batch-deliverer-")
+                .setDaemon(true)
+                .build()
+                .newThread(this::deliverLoop);
+        this.deliverer.start();
+    }
+
+    /**
+     * Add {@code event} to the current batch, hand the batch over to the deliverer if it is full.
+     *
+     * <p>Once closed, the event is delivered alone in the current thread.
+     *
+     * @param event {@link LoggerEvent}
+     */
+    public void add(LoggerEvent event) {
+        synchronized (lock) {
+            boolean interrupted = false;
+            while (!closed && fullBatches.size() >= MAX_PENDING_BATCHES) {
+                try {
+                    lock.wait();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+            if (!closed) {
+                if (buffer.isEmpty()) {
+                    firstEventNanos = System.nanoTime();
+                }
+                buffer.add(event);
+                pendingCount++;
+                if (buffer.size() >= maxBatchSize) {
+                    fullBatches.add(swap());
+                }
+                lock.notifyAll();
+                return;
+            }
+        }
+        deliver(Collections.singletonList(event));
+    }
+
+    /**
+     * Hand the current batch over to the deliverer whatever its size.
+     */
+    public void flush() {
+        synchronized (lock) {
+            flushRequested = true;
+            lock.notifyAll();
+        }
+    }
+
+    /**
+     * Deliver the remaining events and stop the deliverer, wait for it at most {@code timeout}.
+     *
+     * @param timeout the maximum duration to wait
+     * @return true if all events delivered within {@code timeout}
+     */
+    public boolean close(Duration timeout) {
+        synchronized (lock) {
+            closed = true;
+            lock.notifyAll();
+        }
+        try {
+            deliverer.join(Math.max(1, timeout.toMillis()));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (deliverer.isAlive()) {
+            log.warn("The LoggerBatchListener did not receive {} LoggerEvent in {}.", getPendingCount(), timeout);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Get the number of events waiting to be delivered.
+     *
+     * @return the pending count
+     */
+    public int getPendingCount() {
+        synchronized (lock) {
+            return pendingCount;
+        }
+    }
+
+    private void deliverLoop() {
+        List<LoggerEvent> batch;
+        while ((batch = takeBatch()) != null) {
+            deliver(batch);
+            synchronized (lock) {
+                pendingCount -= batch.size();
+            }
+        }
+    }
+
+    /**
+     * Wait for the next batch, a full batch, or the current batch once its oldest event waited {@code maxLatency},
+     * flushed or closed.
+     *
+     * @return the batch, null if closed and nothing left
+     */
+    private List<LoggerEvent> takeBatch() {
+        synchronized (lock) {
+            while (true) {
+                if (!fullBatches.isEmpty()) {
+                    List<LoggerEvent> batch = fullBatches.poll();
+                    lock.notifyAll();
+                    return batch;
+                }
+                if (buffer.isEmpty()) {
+                    flushRequested = false;
+                    if (closed) {
+                        return null;
+                    }
+                    waitQuietly(0);
+                    continue;
+                }
+                long remainingNanos = maxLatencyNanos - (System.nanoTime() - firstEventNanos);
+                if (remainingNanos <= 0 || flushRequested || closed) {
+                    flushRequested = false;
+                    return swap();
+                }
+                waitQuietly(remainingNanos);
+            }
+        }
+    }
+
+    private void waitQuietly(long timeoutNanos) {
+        try {
+            if (timeoutNanos > 0) {
+                TimeUnit.NANOSECONDS.timedWait(lock, timeoutNanos);
+            } else {
+                lock.wait();
+            }
+        } catch (InterruptedException e) {
+            // Only the close stops the deliverer, so that no batch is lost
+            log.debug("The batch deliverer interrupted, continue waiting.");
+        }
+    }
+
+    private List<LoggerEvent> swap() {
+        List<LoggerEvent> batch = buffer;
+        buffer = new ArrayList<>(maxBatchSize);
+        return Collections.unmodifiableList(batch);
+    }
+
+    private void deliver(List<LoggerEvent> batch) {
+        for (LoggerBatchListener listener : listeners) {
+            try {
+                listener.onEvents(batch);
+            } catch (Exception e) {
+                log.error("Delivering {} LoggerEvent to {} error: {}", batch.size(), listener, e.getMessage(), e);
+            }
+        }
+    }
+}
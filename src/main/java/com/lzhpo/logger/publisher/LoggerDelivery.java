@@ -0,0 +1,52 @@
+/*
+ * Copyright lzhpo
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.lzhpo.logger.publisher;
+
+import com.lzhpo.logger.LoggerEvent;
+import java.util.BitSet;
+
+/**
+ * The progress of delivering one {@link LoggerEvent}, kept across retries, so a retry only delivers the event to the
+ * targets that failed and never to the ones that already received it.
+ *
+ * <p>The targets are numbered by the {@link LoggerEventDispatcher}, it is not thread-safe, an event is retried by one
+ * thread at a time.
+ *
+ * @author lzhpo
+ */
+public class LoggerDelivery {
+
+    private final BitSet delivered = new BitSet();
+
+    /**
+     * Whether the event has been delivered to {@code target}.
+     *
+     * @param target the number of target
+     * @return true if delivered
+     */
+    public boolean isDelivered(int target) {
+        return delivered.get(target);
+    }
+
+    /**
+     * Record the event has been delivered to {@code target}.
+     *
+     * @param target the number of target
+     */
+    public void markDelivered(int target) {
+        delivered.set(target);
+    }
+}
@@ -0,0 +1,546 @@
+/*
+ * Copyright lzhpo
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.lzhpo.logger.publisher;
+
+import cn.hutool.json.JSONUtil;
+import com.lzhpo.logger.LoggerEvent;
+import com.lzhpo.logger.diff.DiffFieldResult;
+import com.lzhpo.logger.diff.DiffObjectResult;
+import com.lzhpo.logger.diff.DiffState;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.Buffer;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import lombok.experimental.UtilityClass;
+
+/**
+ * Encode a batch of {@link LoggerEvent} into bytes and decode it back, the first byte is the version of format.
+ *
+ * <p>The format of version 2 is {@code [version][event count][events]}, the lengths, counts and times are varints,
+ * the {@code createTime} is the delta from the previous event, the {@code count}, {@code firstTime} and
+ * {@code lastTime} are only written for the aggregated events. The values repeating across events, like the category,
+ * the tag, the operator id and the names of diff fields, are written once per batch, the later occurrences refer to the
+ * first one by its index in the dictionary of batch.
+ *
+ * <p>The result, the errors and the values of diff fields are arbitrary objects, they are decoded as text: the result
+ * and the values as their JSON, the errors as {@link Exception} with the {@link Throwable#toString()} of the original
+ * as message.
+ *
+ * <p>The format of version 1, a single event with fixed-size lengths, is still decoded.
+ *
+ * @author lzhpo
+ */
+@UtilityClass
+public class LoggerEventCodec {
+
+    /**
+     * The version of format written by {@link #encode(LoggerEvent)} and {@link #encodeBatch(List)}.
+     */
+    public static final byte VERSION = 2;
+
+    private static final byte VERSION_1 = 1;
+    private static final long NULL_LONG = Long.MIN_VALUE;
+    private static final int INITIAL_CAPACITY = 256;
+
+    // The tag of dictionary string: null, a new value appended to the dictionary, or a reference to an existing value
+    private static final int NULL_STRING = 0;
+    private static final int NEW_STRING = 1;
+    private static final int STRING_REFERENCE = 2;
+
+    private static final int CONDITION = 1;
+    private static final int SUCCESS = 1 << 1;
+    private static final int HAS_CREATE_TIME = 1 << 2;
+    private static final int HAS_TAKE_TIME = 1 << 3;
+    private static final int AGGREGATED = 1 << 4;
+
+    /**
+     * Encode {@code event} into bytes.
+     *
+     * @param event {@link LoggerEvent}
+     * @return the encoded bytes
+     */
+    public static byte[] encode(LoggerEvent event) {
+        return encodeBatch(Collections.singletonList(event));
+    }
+
+    /**
+     * Encode {@code events} into bytes, the repeating values are written once.
+     *
+     * @param events the batch of {@link LoggerEvent}
+     * @return the encoded bytes
+     */
+    public static byte[] encodeBatch(List<LoggerEvent> events) {
+        ByteBuffer buffer = encodeBatch(events, ByteBuffer.allocate(INITIAL_CAPACITY));
+        ((Buffer) buffer).flip();
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.get(bytes);
+        return bytes;
+    }
+
+    /**
+     * Encode {@code events} into {@code buffer} from its position, a larger buffer of the same kind (direct or heap) is
+     * allocated if it is not enough.
+     *
+     * @param events the batch of {@link LoggerEvent}
+     * @param buffer the buffer to write into
+     * @return the buffer written, positioned after the encoded bytes
+     */
+    public static ByteBuffer encodeBatch(List<LoggerEvent> events, ByteBuffer buffer) {
+        Writer writer = new Writer(buffer);
+        writer.writeByte(VERSION);
+        writer.writeVarLong(events.size() + 1L);
+        long previousCreateTime = 0;
+        for (LoggerEvent event : events) {
+            Date createTime = event.getCreateTime();
+            Long takeTime = event.getTakeTime();
+            int flags = (event.isCondition() ? CONDITION : 0)
+                    | (event.isSuccess() ? SUCCESS : 0)
+                    | (createTime != null ? HAS_CREATE_TIME : 0)
+                    | (takeTime != null ? HAS_TAKE_TIME : 0)
+                    | (isAggregated(event) ? AGGREGATED : 0);
+            writer.writeByte(flags);
+            if (createTime != null) {
+                writer.writeZigZag(createTime.getTime() - previousCreateTime);
+                previousCreateTime = createTime.getTime();
+            }
+            if (takeTime != null) {
+                writer.writeZigZag(takeTime);
+            }
+            if ((flags & AGGREGATED) != 0) {
+                writer.writeVarLong(event.getCount());
+                writer.writeZigZag(toMillis(event.getFirstTime()));
+                writer.writeZigZag(toMillis(event.getLastTime()));
+            }
+            writer.writeString(event.getLogId());
+            writer.writeString(event.getMessage());
+            writer.writeDictionaryString(event.getOperatorId());
+            writer.writeString(event.getBusinessId());
+            writer.writeDictionaryString(event.getCategory());
+            writer.writeDictionaryString(event.getTag());
+            writer.writeString(event.getAdditional());
+            writer.writeString(toText(event.getResult()));
+
+            List<Exception> errors = event.getErrors();
+            writer.writeCount(errors);
+            if (errors != null) {
+                for (Exception error : errors) {
+                    writer.writeString(error == null ? null : error.toString());
+                }
+            }
+
+            List<DiffObjectResult> diffResults = event.getDiffResults();
+            writer.writeCount(diffResults);
+            if (diffResults != null) {
+                for (DiffObjectResult diffResult : diffResults) {
+                    writeDiffResult(writer, diffResult);
+                }
+            }
+        }
+        return writer.buffer;
+    }
+
+    /**
+     * Decode the bytes encoded by {@link #encode(LoggerEvent)}.
+     *
+     * @param bytes  the encoded bytes
+     * @param source the source of decoded {@link LoggerEvent}
+     * @return {@link LoggerEvent}
+     * @throws IllegalArgumentException if the version of format not supported, or the bytes are not a single event
+     */
+    public static LoggerEvent decode(byte[] bytes, Object source) {
+        if (bytes.length > 0 && bytes[0] == VERSION_1) {
+            return decodeVersion1(bytes, source);
+        }
+        List<LoggerEvent> events = decodeBatch(bytes, source);
+        if (events.size() != 1) {
+            throw new IllegalArgumentException("Expected 1 LoggerEvent but got " + events.size());
+        }
+        return events.get(0);
+    }
+
+    /**
+     * Decode the bytes encoded by {@link #encodeBatch(List)}.
+     *
+     * @param bytes  the encoded bytes
+     * @param source the source of decoded {@link LoggerEvent}
+     * @return the batch of {@link LoggerEvent}
+     * @throws IllegalArgumentException if the version of format not supported or the bytes are malformed
+     */
+    public static List<LoggerEvent> decodeBatch(byte[] bytes, Object source) {
+        return decodeBatch(ByteBuffer.wrap(bytes), source);
+    }
+
+    /**
+     * Decode the bytes encoded by {@link #encodeBatch(List, ByteBuffer)} from the position of {@code buffer}.
+     *
+     * @param buffer the buffer to read from, positioned after the decoded bytes
+     * @param source the source of decoded {@link LoggerEvent}
+     * @return the batch of {@link LoggerEvent}
+     * @throws IllegalArgumentException if the version of format not supported or the bytes are malformed
+     */
+    public static List<LoggerEvent> decodeBatch(ByteBuffer buffer, Object source) {
+        try {
+            byte version = buffer.get();
+            if (version != VERSION) {
+                throw new IllegalArgumentException("Unsupported LoggerEvent format version: " + version);
+            }
+
+            Reader reader = new Reader(buffer);
+            int count = reader.readCount();
+            if (count < 0) {
+                throw new IllegalArgumentException("Malformed count of LoggerEvent: " + count);
+            }
+            List<LoggerEvent> events = new ArrayList<>(count);
+            long previousCreateTime = 0;
+            for (int i = 0; i < count; i++) {
+                LoggerEvent event = new LoggerEvent(source);
+                int flags = buffer.get();
+                event.setCondition((flags & CONDITION) != 0);
+                event.setSuccess((flags & SUCCESS) != 0);
+                if ((flags & HAS_CREATE_TIME) != 0) {
+                    previousCreateTime += reader.readZigZag();
+                    event.setCreateTime(new Date(previousCreateTime));
+                }
+                if ((flags & HAS_TAKE_TIME) != 0) {
+                    event.setTakeTime(reader.readZigZag());
+                }
+                if ((flags & AGGREGATED) != 0) {
+                    event.setCount((int) reader.readVarLong());
+                    event.setFirstTime(toDate(reader.readZigZag()));
+                    event.setLastTime(toDate(reader.readZigZag()));
+                }
+                event.setLogId(reader.readString());
+                event.setMessage(reader.readString());
+                event.setOperatorId(reader.readDictionaryString());
+                event.setBusinessId(reader.readString());
+                event.setCategory(reader.readDictionaryString());
+                event.setTag(reader.readDictionaryString());
+                event.setAdditional(reader.readString());
+                event.setResult(reader.readString());
+
+                int errorCount = reader.readCount();
+                if (errorCount >= 0) {
+                    List<Exception> errors = new ArrayList<>(errorCount);
+                    for (int j = 0; j < errorCount; j++) {
+                        String error = reader.readString();
+                        errors.add(error == null ? null : new Exception(error));
+                    }
+                    event.setErrors(errors);
+                }
+
+                int diffResultCount = reader.readCount();
+                if (diffResultCount >= 0) {
+                    List<DiffObjectResult> diffResults = new ArrayList<>(diffResultCount);
+                    for (int j = 0; j < diffResultCount; j++) {
+                        diffResults.add(readDiffResult(reader));
+                    }
+                    event.setDiffResults(diffResults);
+                }
+                events.add(event);
+            }
+            return events;
+        } catch (BufferUnderflowException e) {
+            throw new IllegalArgumentException("The encoded LoggerEvent is truncated.", e);
+        }
+    }
+
+    private static boolean isAggregated(LoggerEvent event) {
+        return event.getCount() != 1 || event.getFirstTime() != null || event.getLastTime() != null;
+    }
+
+    private static long toMillis(Date date) {
+        return date != null ? date.getTime() : NULL_LONG;
+    }
+
+    private static Date toDate(long millis) {
+        return millis != NULL_LONG ? new Date(millis) : null;
+    }
+
+    private static void writeDiffResult(Writer writer, DiffObjectResult diffResult) {
+        writer.writeDictionaryString(diffResult.getOldObjectName());
+        writer.writeDictionaryString(diffResult.getNewObjectName());
+        List<DiffFieldResult> fieldResults = diffResult.getFieldResults();
+        writer.writeCount(fieldResults);
+        if (fieldResults != null) {
+            for (DiffFieldResult fieldResult : fieldResults) {
+                writer.writeDictionaryString(fieldResult.getFieldName());
+                writer.writeDictionaryString(
+                        fieldResult.getState() == null
+                                ? null
+                                : fieldResult.getState().name());
+                writer.writeDictionaryString(fieldResult.getOldTitle());
+                writer.writeString(toText(fieldResult.getOldValue()));
+                writer.writeDictionaryString(fieldResult.getNewTitle());
+                writer.writeString(toText(fieldResult.getNewValue()));
+            }
+        }
+    }
+
+    private static DiffObjectResult readDiffResult(Reader reader) {
+        DiffObjectResult diffResult = new DiffObjectResult();
+        diffResult.setOldObjectName(reader.readDictionaryString());
+        diffResult.setNewObjectName(reader.readDictionaryString());
+        int fieldResultCount = reader.readCount();
+        if (fieldResultCount >= 0) {
+            List<DiffFieldResult> fieldResults = new ArrayList<>(fieldResultCount);
+            for (int i = 0; i < fieldResultCount; i++) {
+                String fieldName = reader.readDictionaryString();
+                String state = reader.readDictionaryString();
+                fieldResults.add(DiffFieldResult.builder()
+                        .fieldName(fieldName)
+                        .state(state == null ? null : DiffState.valueOf(state))
+                        .oldTitle(reader.readDictionaryString())
+                        .oldValue(reader.readString())
+                        .newTitle(reader.readDictionaryString())
+                        .newValue(reader.readString())
+                        .build());
+            }
+            diffResult.setFieldResults(fieldResults);
+        }
+        return diffResult;
+    }
+
+    /**
+     * Convert an arbitrary value into the text kept by the codec, {@link CharSequence}, {@link Number} and
+     * {@link Boolean} as their {@code toString()}, others as their JSON.
+     *
+     * @param value the value
+     * @return the text, null if {@code value} is null
+     */
+    public static String toText(Object value) {
+        if (value == null || value instanceof CharSequence || value instanceof Number || value instanceof Boolean) {
+            return value == null ? null : value.toString();
+        }
+        return JSONUtil.toJsonStr(value);
+    }
+
+    private static LoggerEvent decodeVersion1(byte[] bytes, Object source) {
+        try (DataInputStream input = new DataInputStream(new ByteArrayInputStream(bytes, 1, bytes.length - 1))) {
+            LoggerEvent event = new LoggerEvent(source);
+            event.setLogId(readVersion1String(input));
+            event.setMessage(readVersion1String(input));
+            event.setOperatorId(readVersion1String(input));
+            event.setBusinessId(readVersion1String(input));
+            event.setCategory(readVersion1String(input));
+            event.setTag(readVersion1String(input));
+            event.setAdditional(readVersion1String(input));
+            long createTime = input.readLong();
+            event.setCreateTime(createTime == NULL_LONG ? null : new Date(createTime));
+            long takeTime = input.readLong();
+            event.setTakeTime(takeTime == NULL_LONG ? null : takeTime);
+            event.setCondition(input.readBoolean());
+            event.setSuccess(input.readBoolean());
+            event.setResult(readVersion1String(input));
+
+            int errorCount = input.readInt();
+            if (errorCount >= 0) {
+                List<Exception> errors = new ArrayList<>(errorCount);
+                for (int i = 0; i < errorCount; i++) {
+                    String error = readVersion1String(input);
+                    errors.add(error == null ? null : new Exception(error));
+                }
+                event.setErrors(errors);
+            }
+
+            int diffResultCount = input.readInt();
+            if (diffResultCount >= 0) {
+                List<DiffObjectResult> diffResults = new ArrayList<>(diffResultCount);
+                for (int i = 0; i < diffResultCount; i++) {
+                    diffResults.add(readVersion1DiffResult(input));
+                }
+                event.setDiffResults(diffResults);
+            }
+            return event;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static DiffObjectResult readVersion1DiffResult(DataInputStream input) throws IOException {
+        DiffObjectResult diffResult = new DiffObjectResult();
+        diffResult.setOldObjectName(readVersion1String(input));
+        diffResult.setNewObjectName(readVersion1String(input));
+        int fieldResultCount = input.readInt();
+        if (fieldResultCount >= 0) {
+            List<DiffFieldResult> fieldResults = new ArrayList<>(fieldResultCount);
+            for (int i = 0; i < fieldResultCount; i++) {
+                String fieldName = readVersion1String(input);
+                String state = readVersion1String(input);
+                fieldResults.add(DiffFieldResult.builder()
+                        .fieldName(fieldName)
+                        .state(state == null ? null : DiffState.valueOf(state))
+                        .oldTitle(readVersion1String(input))
+                        .oldValue(readVersion1String(input))
+                        .newTitle(readVersion1String(input))
+                        .newValue(readVersion1String(input))
+                        .build());
+            }
+            diffResult.setFieldResults(fieldResults);
+        }
+        return diffResult;
+    }
+
+    private static String readVersion1String(DataInputStream input) throws IOException {
+        int length = input.readInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        input.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static class Writer {
+
+        private final Map<String, Integer> dictionary = new HashMap<>();
+        private ByteBuffer buffer;
+
+        Writer(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        void writeByte(int value) {
+            ensureCapacity(1);
+            buffer.put((byte) value);
+        }
+
+        void writeVarLong(long value) {
+            ensureCapacity(10);
+            while ((value & ~0x7FL) != 0) {
+                buffer.put((byte) ((value & 0x7F) | 0x80));
+                value >>>= 7;
+            }
+            buffer.put((byte) value);
+        }
+
+        void writeZigZag(long value) {
+            writeVarLong((value << 1) ^ (value >> 63));
+        }
+
+        void writeCount(List<?> values) {
+            writeVarLong(values == null ? 0 : values.size() + 1L);
+        }
+
+        void writeString(String value) {
+            if (value == null) {
+                writeVarLong(0);
+                return;
+            }
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            writeVarLong(bytes.length + 1L);
+            ensureCapacity(bytes.length);
+            buffer.put(bytes);
+        }
+
+        void writeDictionaryString(String value) {
+            if (value == null) {
+                writeVarLong(NULL_STRING);
+                return;
+            }
+            Integer index = dictionary.get(value);
+            if (index != null) {
+                writeVarLong(STRING_REFERENCE + (long) index);
+                return;
+            }
+            dictionary.put(value, dictionary.size());
+            writeVarLong(NEW_STRING);
+            writeString(value);
+        }
+
+        private void ensureCapacity(int bytes) {
+            if (buffer.remaining() >= bytes) {
+                return;
+            }
+            int capacity = Math.max(buffer.capacity() * 2, buffer.position() + bytes);
+            ByteBuffer grown = buffer.isDirect() ? ByteBuffer.allocateDirect(capacity) : ByteBuffer.allocate(capacity);
+            ((Buffer) buffer).flip();
+            grown.put(buffer);
+            buffer = grown;
+        }
+    }
+
+    private static class Reader {
+
+        private final List<String> dictionary = new ArrayList<>();
+        private final ByteBuffer buffer;
+
+        Reader(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        long readVarLong() {
+            long value = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                byte b = buffer.get();
+                value |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return value;
+                }
+            }
+            throw new IllegalArgumentException("Malformed varint of LoggerEvent.");
+        }
+
+        long readZigZag() {
+            long value = readVarLong();
+            return (value >>> 1) ^ -(value & 1);
+        }
+
+        int readCount() {
+            long count = readVarLong() - 1;
+            if (count > buffer.remaining()) {
+                throw new IllegalArgumentException("Malformed length of LoggerEvent: " + count);
+            }
+            return (int) count;
+        }
+
+        String readString() {
+            int length = readCount();
+            if (length < 0) {
+                return null;
+            }
+            byte[] bytes = new byte[length];
+            buffer.get(bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        String readDictionaryString() {
+            long tag = readVarLong();
+            if (tag == NULL_STRING) {
+                return null;
+            }
+            if (tag == NEW_STRING) {
+                String value = readString();
+                dictionary.add(value);
+                return value;
+            }
+            long index = tag - STRING_REFERENCE;
+            if (index >= dictionary.size()) {
+                throw new IllegalArgumentException("Malformed dictionary reference of LoggerEvent: " + index);
+            }
+            return dictionary.get((int) index);
+        }
+    }
+}
@@ -0,0 +1,50 @@
+/*
+ * Copyright lzhpo
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.lzhpo.logger.publisher;
+
+import com.lzhpo.logger.LoggerEvent;
+
+/**
+ * Deliver {@link LoggerEvent} to the listeners, called by {@link LoggerEventPublisher} in its publishing threads.
+ *
+ * @author lzhpo
+ */
+@FunctionalInterface
+public interface LoggerEventDispatcher {
+
+    /**
+     * Deliver {@code event} to the listeners in the current thread.
+     *
+     * @param event {@link LoggerEvent}
+     */
+    void dispatch(LoggerEvent event);
+
+    /**
+     * Deliver {@code event} to the listeners in the current thread, skip the listeners already received it in
+     * {@code delivery}, used to retry a failed event.
+     *
+     * <p>By default, all listeners are one target, the event is delivered again to all of them unless succeeded.
+     *
+     * @param event    {@link LoggerEvent}
+     * @param delivery the progress of delivering {@code event}
+     */
+    default void dispatch(LoggerEvent event, LoggerDelivery delivery) {
+        if (!delivery.isDelivered(0)) {
+            dispatch(event);
+            delivery.markDelivered(0);
+        }
+    }
+}
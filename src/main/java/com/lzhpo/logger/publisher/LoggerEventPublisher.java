@@ -0,0 +1,124 @@
+/*
+ * Copyright lzhpo
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.lzhpo.logger.publisher;
+
+import com.lzhpo.logger.LoggerEvent;
+import com.lzhpo.logger.LoggerPublisherProperties.OverflowPolicy;
+import java.time.Duration;
+import java.util.Map;
+
+/**
+ * Publish {@link LoggerEvent} asynchronously.
+ *
+ * @author lzhpo
+ */
+public interface LoggerEventPublisher {
+
+    /**
+     * Publish {@code event} asynchronously.
+     *
+     * @param event {@link LoggerEvent}
+     */
+    void publish(LoggerEvent event);
+
+    /**
+     * Get the number of events waiting to be published.
+     *
+     * @return the queue depth
+     */
+    int getQueueDepth();
+
+    /**
+     * Get the maximum number of events waiting to be published.
+     *
+     * @return the queue capacity
+     */
+    int getQueueCapacity();
+
+    /**
+     * Get the occupied ratio of the queue, between 0 and 1.
+     *
+     * @return the queue occupancy, 0 if the capacity is unknown
+     */
+    default double getQueueOccupancy() {
+        int capacity = getQueueCapacity();
+        return capacity > 0 ? Math.min(1, (double) getQueueDepth() / capacity) : 0;
+    }
+
+    /**
+     * Get the number of published events.
+     *
+     * @return the published count
+     */
+    long getPublishedCount();
+
+    /**
+     * Get the number of events which listeners threw an exception.
+     *
+     * @return the failed count
+     */
+    long getFailedCount();
+
+    /**
+     * Get the number of events rejected because the queue was full.
+     *
+     * @return the rejected count
+     */
+    long getRejectedCount();
+
+    /**
+     * Get the number of events dropped by the {@link OverflowPolicy}.
+     *
+     * @return the dropped count
+     */
+    long getDroppedCount();
+
+    /**
+     * Get the number of events dropped by each {@link OverflowPolicy}.
+     *
+     * @return the dropped counts
+     */
+    Map<OverflowPolicy, Long> getDroppedCounts();
+
+    /**
+     * Get the number of events published while draining the queue on shutdown.
+     *
+     * @return the flushed count
+     */
+    long getShutdownFlushedCount();
+
+    /**
+     * Get the number of events dropped on shutdown, not published within the shutdown timeout or published after
+     * shutdown.
+     *
+     * @return the dropped count
+     */
+    long getShutdownDroppedCount();
+
+    /**
+     * Get the average latency from submitted to published.
+     *
+     * @return the average latency
+     */
+    Duration getAverageLatency();
+
+    /**
+     * Get the maximum latency from submitted to published.
+     *
+     * @return the maximum latency
+     */
+    Duration getMaxLatency();
+}
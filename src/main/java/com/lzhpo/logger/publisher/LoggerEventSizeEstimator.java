@@ -0,0 +1,89 @@
+/*
+ * Copyright lzhpo
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.lzhpo.logger.publisher;
+
+import com.lzhpo.logger.LoggerEvent;
+import com.lzhpo.logger.diff.DiffFieldResult;
+import com.lzhpo.logger.diff.DiffObjectResult;
+import java.util.List;
+import lombok.experimental.UtilityClass;
+
+/**
+ * Estimate the heap bytes retained by a {@link LoggerEvent}, cheap and rough, only for bounding the queue.
+ *
+ * <p>Strings are counted by their length, the result and the values of diff fields are opaque objects, so they are
+ * counted as a fixed size.
+ *
+ * @author lzhpo
+ */
+@UtilityClass
+public class LoggerEventSizeEstimator {
+
+    private static final int EVENT_SIZE = 256;
+    private static final int STRING_SIZE = 40;
+    private static final int OBJECT_SIZE = 64;
+    private static final int ERROR_SIZE = 1024;
+    private static final int DIFF_OBJECT_SIZE = 64;
+    private static final int DIFF_FIELD_SIZE = 64;
+
+    /**
+     * Estimate the bytes retained by {@code event}.
+     *
+     * @param event {@link LoggerEvent}
+     * @return the estimated bytes
+     */
+    public static long estimate(LoggerEvent event) {
+        long size = EVENT_SIZE
+                + sizeOf(event.getLogId())
+                + sizeOf(event.getMessage())
+                + sizeOf(event.getOperatorId())
+                + sizeOf(event.getBusinessId())
+                + sizeOf(event.getCategory())
+                + sizeOf(event.getTag())
+                + sizeOf(event.getAdditional());
+        if (event.getResult() != null) {
+            size += OBJECT_SIZE;
+        }
+        if (event.getErrors() != null) {
+            size += (long) event.getErrors().size() * ERROR_SIZE;
+        }
+        if (event.getDiffResults() != null) {
+            for (DiffObjectResult diffResult : event.getDiffResults()) {
+                size += sizeOf(diffResult);
+            }
+        }
+        return size;
+    }
+
+    private static long sizeOf(DiffObjectResult diffResult) {
+        long size = DIFF_OBJECT_SIZE + sizeOf(diffResult.getOldObjectName()) + sizeOf(diffResult.getNewObjectName());
+        List<DiffFieldResult> fieldResults = diffResult.getFieldResults();
+        if (fieldResults != null) {
+            for (DiffFieldResult fieldResult : fieldResults) {
+                size += DIFF_FIELD_SIZE
+                        + sizeOf(fieldResult.getFieldName())
+                        + sizeOf(fieldResult.getOldTitle())
+                        + sizeOf(fieldResult.getNewTitle())
+                        + 2L * OBJECT_SIZE;
+            }
+        }
+        return size;
+    }
+
+    private static long sizeOf(String value) {
+        return value == null ? 0 : STRING_SIZE + 2L * value.length();
+    }
+}
@@ -0,0 +1,212 @@
+/*
+ * Copyright lzhpo
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.lzhpo.logger.publisher;
+
+import com.lzhpo.logger.LoggerEvent;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import org.springframework.util.Assert;
+
+/**
+ * A preallocated lock-free ring buffer, multiple producers put {@link LoggerEvent} and multiple consumers take them
+ * in batches.
+ *
+ * <p>All positions are sequence counters which only increase:
+ * <ul>
+ *     <li>{@code cursor}: the last sequence claimed by producers.</li>
+ *     <li>{@code published}: the sequence published into each slot, the slot is readable once it equals the sequence.</li>
+ *     <li>{@code workSequence}: the last sequence claimed by consumers, producers never overwrite a slot beyond it.</li>
+ *     <li>{@code consumerSequences}: while a consumer copying events out, it has no slots in use up to its sequence and
+ *     producers never overwrite a slot beyond it, otherwise {@link Long#MAX_VALUE} so that it never holds producers
+ *     back. The last one is for evicting the oldest event.</li>
+ * </ul>
+ *
+ * @author lzhpo
+ */
+public class LoggerRingBuffer {
+
+    private static final long INITIAL_SEQUENCE = -1L;
+    private static final long IDLE_SEQUENCE = Long.MAX_VALUE;
+
+    private final int bufferSize;
+    private final int mask;
+    private final AtomicReferenceArray<LoggerEvent> entries;
+    private final long[] submitNanos;
+    private final long[] bytes;
+    private final AtomicLongArray published;
+
+    private final AtomicLong cursor = new AtomicLong(INITIAL_SEQUENCE);
+    private final AtomicLong gatingSequenceCache = new AtomicLong(INITIAL_SEQUENCE);
+    private final AtomicLong workSequence = new AtomicLong(INITIAL_SEQUENCE);
+    private final AtomicLong[] consumerSequences;
+    private final int evictor;
+
+    public LoggerRingBuffer(int bufferSize, int consumers) {
+        Assert.isTrue(
+                bufferSize > 0 && Integer.bitCount(bufferSize) == 1,
+                "The bufferSize of ring buffer must be a power of 2.");
+        Assert.isTrue(consumers > 0, "The consumers of ring buffer must be greater than 0.");
+        this.bufferSize = bufferSize;
+        this.mask = bufferSize - 1;
+        this.entries = new AtomicReferenceArray<>(bufferSize);
+        this.submitNanos = new long[bufferSize];
+        this.bytes = new long[bufferSize];
+        this.published = new AtomicLongArray(bufferSize);
+        for (int i = 0; i < bufferSize; i++) {
+            published.set(i, INITIAL_SEQUENCE);
+        }
+        this.evictor = consumers;
+        this.consumerSequences = new AtomicLong[consumers + 1];
+        for (int i = 0; i < consumerSequences.length; i++) {
+            consumerSequences[i] = new AtomicLong(IDLE_SEQUENCE);
+        }
+    }
+
+    /**
+     * Put {@code event} into the next slot.
+     *
+     * @param event       {@link LoggerEvent}
+     * @param eventNanos  the {@link System#nanoTime()} when the event submitted
+     * @param eventBytes  the estimated bytes of event
+     * @return false if the buffer is full
+     */
+    public boolean tryPublish(LoggerEvent event, long eventNanos, long eventBytes) {
+        long current;
+        long next;
+        do {
+            current = cursor.get();
+            next = current + 1;
+            long wrapPoint = next - bufferSize;
+            if (wrapPoint > gatingSequenceCache.get()) {
+                long gatingSequence = getMinimumConsumerSequence(current);
+                if (wrapPoint > gatingSequence) {
+                    return false;
+                }
+                gatingSequenceCache.set(gatingSequence);
+            }
+        } while (!cursor.compareAndSet(current, next));
+
+        int index = (int) next & mask;
+        submitNanos[index] = eventNanos;
+        bytes[index] = eventBytes;
+        entries.lazySet(index, event);
+        published.set(index, next);
+        return true;
+    }
+
+    /**
+     * Take the published events in order, up to {@code maxBatchSize}.
+     *
+     * <p>The slots are released as soon as the events are copied out, before the batch is dispatched.
+     *
+     * @param consumer     the consumer index
+     * @param maxBatchSize the maximum number of events to take
+     * @param events       the taken events
+     * @param eventNanos   the {@link System#nanoTime()} when the taken events submitted
+     * @param eventBytes   the estimated bytes of the taken events
+     * @return the number of taken events, 0 if nothing published
+     */
+    public int drain(int consumer, int maxBatchSize, List<LoggerEvent> events, long[] eventNanos, long[] eventBytes) {
+        AtomicLong consumerSequence = consumerSequences[consumer];
+        long current;
+        long high;
+        try {
+            do {
+                // Nothing in use by this consumer, everything up to workSequence is claimed by the others
+                current = workSequence.get();
+                consumerSequence.set(current);
+                long low = current + 1;
+                if (!isPublished(low)) {
+                    return 0;
+                }
+                high = low;
+                while (high - low + 1 < maxBatchSize && isPublished(high + 1)) {
+                    high++;
+                }
+            } while (!workSequence.compareAndSet(current, high));
+
+            int count = 0;
+            for (long sequence = current + 1; sequence <= high; sequence++) {
+                int index = (int) sequence & mask;
+                events.add(entries.get(index));
+                eventNanos[count] = submitNanos[index];
+                eventBytes[count++] = bytes[index];
+                entries.lazySet(index, null);
+            }
+            return count;
+        } finally {
+            consumerSequence.set(IDLE_SEQUENCE);
+        }
+    }
+
+    /**
+     * Take the oldest published event and discard it, to make room for a newer one.
+     *
+     * @return the estimated bytes of the discarded event, -1 if nothing published
+     */
+    public synchronized long evictOldest() {
+        AtomicLong evictorSequence = consumerSequences[evictor];
+        long current;
+        try {
+            do {
+                current = workSequence.get();
+                evictorSequence.set(current);
+                if (!isPublished(current + 1)) {
+                    return -1;
+                }
+            } while (!workSequence.compareAndSet(current, current + 1));
+
+            int index = (int) (current + 1) & mask;
+            entries.lazySet(index, null);
+            return bytes[index];
+        } finally {
+            evictorSequence.set(IDLE_SEQUENCE);
+        }
+    }
+
+    /**
+     * Get the number of events published but not taken by consumers yet.
+     *
+     * @return the size
+     */
+    public int size() {
+        return (int) Math.max(0, cursor.get() - workSequence.get());
+    }
+
+    /**
+     * Get the number of slots.
+     *
+     * @return the buffer size
+     */
+    public int getBufferSize() {
+        return bufferSize;
+    }
+
+    private boolean isPublished(long sequence) {
+        return published.get((int) sequence & mask) == sequence;
+    }
+
+    private long getMinimumConsumerSequence(long minimum) {
+        // Read workSequence first, a consumer still idle here only claims sequences beyond it
+        minimum = Math.min(minimum, workSequence.get());
+        for (AtomicLong consumerSequence : consumerSequences) {
+            minimum = Math.min(minimum, consumerSequence.get());
+        }
+        return minimum;
+    }
+}
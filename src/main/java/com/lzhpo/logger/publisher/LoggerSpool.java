@@ -0,0 +1,378 @@
+/*
+ * Copyright lzhpo
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.lzhpo.logger.publisher;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.CRC32;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.util.Assert;
+
+/**
+ * An append-only journal of records on memory-mapped segment files, multiple writers and a single reader.
+ *
+ * <p>Each record is {@code [length][crc32][write time millis][payload]}, a segment ends with the length
+ * {@link #END_OF_SEGMENT} once the writers moved to the next segment, the zero length means not written yet. The reader
+ * checkpoints the position of next record into a memory-mapped checkpoint file after each record committed, deletes
+ * the segments it finished, and continues from the checkpoint after restart.
+ *
+ * <p>The records survive the process crash once appended, since the mapped pages belong to the operating system, they
+ * are forced to the disk on {@link #close()} only.
+ *
+ * @author lzhpo
+ */
+@Slf4j
+public class LoggerSpool implements Closeable {
+
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SEGMENT_SUFFIX = ".spool";
+    private static final String CHECKPOINT_FILE = "checkpoint";
+    private static final int CHECKPOINT_SIZE = 12;
+    private static final int HEADER_SIZE = 16;
+    private static final int END_OF_SEGMENT = -1;
+    private static final int END_OF_SEGMENT_SIZE = 4;
+
+    private final Path directory;
+    private final int segmentSize;
+    private final int maxSegments;
+    private final ConcurrentNavigableMap<Long, Segment> segments = new ConcurrentSkipListMap<>();
+    private final FileChannel checkpointChannel;
+    private final MappedByteBuffer checkpoint;
+    private final AtomicLong pendingCount = new AtomicLong();
+
+    // Guarded by this, volatile for getUsedBytes()
+    private volatile Segment writeSegment;
+
+    // Only accessed by the reader, readPosition is volatile for getUsedBytes()
+    private Segment readSegment;
+    private volatile int readPosition;
+    private int peekedSize;
+
+    public LoggerSpool(Path directory, int segmentSize, int maxSegments) throws IOException {
+        Assert.isTrue(
+                segmentSize > HEADER_SIZE + END_OF_SEGMENT_SIZE,
+                "The segmentSize of spool must be greater than " + (HEADER_SIZE + END_OF_SEGMENT_SIZE) + ".");
+        Assert.isTrue(maxSegments > 1, "The maxSegments of spool must be greater than 1.");
+        this.directory = Files.createDirectories(directory);
+        this.segmentSize = segmentSize;
+        this.maxSegments = maxSegments;
+        this.checkpointChannel = FileChannel.open(
+                directory.resolve(CHECKPOINT_FILE),
+                StandardOpenOption.CREATE,
+                StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        this.checkpoint = checkpointChannel.map(FileChannel.MapMode.READ_WRITE, 0, CHECKPOINT_SIZE);
+        recover(checkpoint.getLong(0), checkpoint.getInt(8));
+    }
+
+    /**
+     * Append a record.
+     *
+     * @param payload     the payload of record
+     * @param writeMillis the {@link System#currentTimeMillis()} when the record written
+     * @return false if the spool is full or the record is larger than a segment
+     */
+    public synchronized boolean append(byte[] payload, long writeMillis) {
+        int recordSize = HEADER_SIZE + payload.length;
+        if (recordSize + END_OF_SEGMENT_SIZE > segmentSize) {
+            log.warn("The record of {} bytes is larger than the segment of spool.", payload.length);
+            return false;
+        }
+
+        Segment segment = writeSegment;
+        int position = segment.committed;
+        if (position + recordSize + END_OF_SEGMENT_SIZE > segment.capacity) {
+            if (segments.size() >= maxSegments) {
+                return false;
+            }
+            Segment next;
+            try {
+                next = openSegment(segment.id + 1);
+            } catch (IOException e) {
+                log.error("Create spool segment error: {}", e.getMessage(), e);
+                return false;
+            }
+            // The next segment must be visible to the reader once it sees the end of this segment
+            segments.put(next.id, next);
+            segment.buffer.putInt(position, END_OF_SEGMENT);
+            segment.committed = position + END_OF_SEGMENT_SIZE;
+            writeSegment = segment = next;
+            position = 0;
+        }
+
+        CRC32 crc = new CRC32();
+        crc.update(payload, 0, payload.length);
+        ByteBuffer buffer = segment.writeBuffer;
+        buffer.putInt(position + 4, (int) crc.getValue());
+        buffer.putLong(position + 8, writeMillis);
+        ((Buffer) buffer).position(position + HEADER_SIZE);
+        buffer.put(payload);
+        buffer.putInt(position, payload.length);
+        pendingCount.incrementAndGet();
+        segment.committed = position + recordSize;
+        return true;
+    }
+
+    /**
+     * Read the next record without committing it, the same record is returned until {@link #commit()}.
+     *
+     * @return the next record, null if nothing appended
+     */
+    public Record peek() {
+        while (true) {
+            Segment segment = readSegment;
+            if (readPosition >= segment.committed) {
+                return null;
+            }
+
+            ByteBuffer buffer = segment.readBuffer;
+            int length = buffer.getInt(readPosition);
+            if (length == END_OF_SEGMENT) {
+                nextSegment();
+                continue;
+            }
+
+            int crc = buffer.getInt(readPosition + 4);
+            long writeMillis = buffer.getLong(readPosition + 8);
+            byte[] payload = new byte[length];
+            ((Buffer) buffer).position(readPosition + HEADER_SIZE);
+            buffer.get(payload);
+            peekedSize = HEADER_SIZE + length;
+            if (crc != checksum(payload)) {
+                log.error("Skipped the corrupted record of spool at {}:{}.", segment.path, readPosition);
+                commit();
+                continue;
+            }
+            return new Record(payload, writeMillis);
+        }
+    }
+
+    /**
+     * Commit the record returned by {@link #peek()} and checkpoint the position of next record.
+     */
+    public void commit() {
+        Assert.state(peekedSize > 0, "No record peeked.");
+        readPosition += peekedSize;
+        peekedSize = 0;
+        pendingCount.decrementAndGet();
+        writeCheckpoint();
+    }
+
+    /**
+     * Get the number of records appended but not committed.
+     *
+     * @return the number of records
+     */
+    public long size() {
+        return pendingCount.get();
+    }
+
+    /**
+     * Get the bytes which cannot be reused until the records are committed, from the next record to read to the end of
+     * the last record appended, including the unused tail of the full segments.
+     *
+     * @return the used bytes
+     */
+    public long getUsedBytes() {
+        Segment write = writeSegment;
+        long usedBytes = 0;
+        for (Segment segment : segments.values()) {
+            usedBytes += segment == write ? segment.committed : segment.capacity;
+        }
+        return Math.max(0, usedBytes - readPosition);
+    }
+
+    /**
+     * Get the bytes of all segments once the spool is full.
+     *
+     * @return the capacity bytes
+     */
+    public long getCapacityBytes() {
+        return (long) segmentSize * maxSegments;
+    }
+
+    /**
+     * Get the number of segment files.
+     *
+     * @return the number of segments
+     */
+    public int getSegmentCount() {
+        return segments.size();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        checkpoint.force();
+        checkpointChannel.close();
+        for (Segment segment : segments.values()) {
+            segment.buffer.force();
+            segment.channel.close();
+        }
+    }
+
+    private void recover(long checkpointSegmentId, int checkpointPosition) throws IOException {
+        try (DirectoryStream<Path> paths = Files.newDirectoryStream(directory, SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)) {
+            for (Path path : paths) {
+                String fileName = path.getFileName().toString();
+                long segmentId = Long.parseLong(
+                        fileName.substring(SEGMENT_PREFIX.length(), fileName.length() - SEGMENT_SUFFIX.length()));
+                if (segmentId < checkpointSegmentId) {
+                    Files.delete(path);
+                } else {
+                    segments.put(segmentId, openSegment(segmentId));
+                }
+            }
+        }
+        if (segments.isEmpty()) {
+            segments.put(checkpointSegmentId, openSegment(checkpointSegmentId));
+        }
+
+        for (Map.Entry<Long, Segment> entry : segments.entrySet()) {
+            Segment segment = entry.getValue();
+            boolean last = entry.getKey().equals(segments.lastKey());
+            int startPosition = segment.id == checkpointSegmentId ? checkpointPosition : 0;
+            int records = scan(segment, startPosition);
+            if (!last && segment.buffer.getInt(segment.committed) != END_OF_SEGMENT) {
+                // Crashed while moving to the next segment
+                segment.buffer.putInt(segment.committed, END_OF_SEGMENT);
+            }
+            if (!last) {
+                segment.committed = segment.committed + END_OF_SEGMENT_SIZE;
+            }
+            pendingCount.addAndGet(records);
+        }
+
+        readSegment = segments.firstEntry().getValue();
+        readPosition = readSegment.id == checkpointSegmentId ? Math.min(checkpointPosition, readSegment.committed) : 0;
+        writeSegment = segments.lastEntry().getValue();
+        writeCheckpoint();
+        if (pendingCount.get() > 0) {
+            log.info("Recovered {} records from spool {}.", pendingCount.get(), directory);
+        }
+    }
+
+    private int scan(Segment segment, int startPosition) {
+        ByteBuffer buffer = segment.readBuffer;
+        int position = 0;
+        int records = 0;
+        while (position + HEADER_SIZE + END_OF_SEGMENT_SIZE <= segment.capacity) {
+            int length = buffer.getInt(position);
+            if (length <= 0 || position + HEADER_SIZE + length + END_OF_SEGMENT_SIZE > segment.capacity) {
+                break;
+            }
+            byte[] payload = new byte[length];
+            ((Buffer) buffer).position(position + HEADER_SIZE);
+            buffer.get(payload);
+            if (buffer.getInt(position + 4) != checksum(payload)) {
+                log.warn("Truncated the partially written record of spool at {}:{}.", segment.path, position);
+                break;
+            }
+            if (position >= startPosition) {
+                records++;
+            }
+            position += HEADER_SIZE + length;
+        }
+        segment.committed = position;
+        return records;
+    }
+
+    private void nextSegment() {
+        Segment segment = readSegment;
+        readSegment = segments.higherEntry(segment.id).getValue();
+        readPosition = 0;
+        writeCheckpoint();
+
+        segments.remove(segment.id);
+        try {
+            segment.channel.close();
+            Files.deleteIfExists(segment.path);
+        } catch (IOException e) {
+            log.warn("Delete spool segment {} error: {}", segment.path, e.getMessage());
+        }
+    }
+
+    private void writeCheckpoint() {
+        checkpoint.putLong(0, readSegment.id);
+        checkpoint.putInt(8, readPosition);
+    }
+
+    private Segment openSegment(long segmentId) throws IOException {
+        Path path = directory.resolve(String.format("%s%020d%s", SEGMENT_PREFIX, segmentId, SEGMENT_SUFFIX));
+        FileChannel channel =
+                FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        // An existing segment keeps its size, even though the segmentSize changed
+        long capacity = channel.size() > 0 ? channel.size() : segmentSize;
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+        return new Segment(segmentId, path, channel, buffer);
+    }
+
+    private static int checksum(byte[] payload) {
+        CRC32 crc = new CRC32();
+        crc.update(payload, 0, payload.length);
+        return (int) crc.getValue();
+    }
+
+    @Getter
+    @RequiredArgsConstructor
+    public static class Record {
+
+        /**
+         * The payload of record.
+         */
+        private final byte[] payload;
+
+        /**
+         * The {@link System#currentTimeMillis()} when the record written.
+         */
+        private final long writeMillis;
+    }
+
+    private static class Segment {
+
+        private final long id;
+        private final Path path;
+        private final FileChannel channel;
+        private final MappedByteBuffer buffer;
+        private final int capacity;
+        private final ByteBuffer writeBuffer;
+        private final ByteBuffer readBuffer;
+        private volatile int committed;
+
+        Segment(long id, Path path, FileChannel channel, MappedByteBuffer buffer) {
+            this.id = id;
+            this.path = path;
+            this.channel = channel;
+            this.buffer = buffer;
+            this.capacity = buffer.capacity();
+            this.writeBuffer = buffer.duplicate();
+            this.readBuffer = buffer.duplicate();
+        }
+    }
+}
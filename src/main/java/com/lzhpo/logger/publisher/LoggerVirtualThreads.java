@@ -0,0 +1,83 @@
+/*
+ * Copyright lzhpo
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.lzhpo.logger.publisher;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ThreadFactory;
+import lombok.experimental.UtilityClass;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Create virtual threads by reflection, the starter compiles to Java 8 but virtual threads are available since JDK 21.
+ *
+ * @author lzhpo
+ */
+@Slf4j
+@UtilityClass
+public class LoggerVirtualThreads {
+
+    private static final Method OF_VIRTUAL;
+    private static final Method NAME;
+    private static final Method FACTORY;
+
+    static {
+        Method ofVirtual = null;
+        Method name = null;
+        Method factory = null;
+        try {
+            Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+            ofVirtual = Thread.class.getMethod("ofVirtual");
+            name = builderClass.getMethod("name", String.class, long.class);
+            factory = builderClass.getMethod("factory");
+            // Preview on JDK 19 and 20, throws UnsupportedOperationException without --enable-preview
+            factory.invoke(ofVirtual.invoke(null));
+        } catch (Throwable e) {
+            log.debug("Virtual threads are not supported: {}", e.toString());
+            ofVirtual = null;
+        }
+        OF_VIRTUAL = ofVirtual;
+        NAME = name;
+        FACTORY = factory;
+    }
+
+    /**
+     * Whether the current JVM supports virtual threads.
+     *
+     * @return true if supported
+     */
+    public static boolean isSupported() {
+        return OF_VIRTUAL != null;
+    }
+
+    /**
+     * Create a factory of virtual threads named {@code namePrefix} with a counter.
+     *
+     * @param namePrefix the name prefix of threads
+     * @return {@link ThreadFactory}
+     * @throws UnsupportedOperationException if virtual threads not supported
+     */
+    public static ThreadFactory newThreadFactory(String namePrefix) {
+        if (!isSupported()) {
+            throw new UnsupportedOperationException("Virtual threads require JDK 21 or later.");
+        }
+        try {
+            Object builder = NAME.invoke(OF_VIRTUAL.invoke(null), namePrefix, 0L);
+            return (ThreadFactory) FACTORY.invoke(builder);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Create virtual thread factory error: " + e.getMessage(), e);
+        }
+    }
+}
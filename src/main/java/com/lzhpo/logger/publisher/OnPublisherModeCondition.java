@@ -0,0 +1,51 @@
+/*
+ * Copyright lzhpo
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.lzhpo.logger.publisher;
+
+import com.lzhpo.logger.LoggerPublisherProperties;
+import com.lzhpo.logger.LoggerPublisherProperties.Mode;
+import java.util.Map;
+import org.springframework.boot.autoconfigure.condition.ConditionMessage;
+import org.springframework.boot.autoconfigure.condition.ConditionOutcome;
+import org.springframework.boot.autoconfigure.condition.SpringBootCondition;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.ConditionContext;
+import org.springframework.core.type.AnnotatedTypeMetadata;
+import org.springframework.util.Assert;
+
+/**
+ * The condition of {@link ConditionalOnPublisherMode}.
+ *
+ * @author lzhpo
+ */
+class OnPublisherModeCondition extends SpringBootCondition {
+
+    private static final String MODE_PROPERTY = "logger.publisher.mode";
+
+    @Override
+    public ConditionOutcome getMatchOutcome(ConditionContext context, AnnotatedTypeMetadata metadata) {
+        Map<String, Object> attributes = metadata.getAnnotationAttributes(ConditionalOnPublisherMode.class.getName());
+        Assert.notNull(attributes, "The @ConditionalOnPublisherMode not found.");
+        Mode required = (Mode) attributes.get("value");
+        Mode mode = Binder.get(context.getEnvironment())
+                .bind(MODE_PROPERTY, Mode.class)
+                .orElseGet(() -> new LoggerPublisherProperties().getMode());
+
+        ConditionMessage message = ConditionMessage.forCondition(ConditionalOnPublisherMode.class, required)
+                .because(MODE_PROPERTY + " is " + mode);
+        return new ConditionOutcome(mode == required, message);
+    }
+}
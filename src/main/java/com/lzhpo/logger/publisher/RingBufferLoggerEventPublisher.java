@@ -0,0 +1,154 @@
+/*
+ * Copyright lzhpo
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.lzhpo.logger.publisher;
+
+import com.lzhpo.logger.LoggerEvent;
+import com.lzhpo.logger.LoggerPublisherProperties;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import org.springframework.stereotype.Component;
+import org.springframework.util.Assert;
+
+/**
+ * Publish {@link LoggerEvent} through a {@link LoggerRingBuffer}, consumer threads drain it in batches.
+ *
+ * @author lzhpo
+ */
+@Component
+@ConditionalOnPublisherMode(LoggerPublisherProperties.Mode.RING_BUFFER)
+public class RingBufferLoggerEventPublisher extends AbstractLoggerEventPublisher {
+
+    private static final int SPIN_TRIES = 100;
+    private static final int YIELD_TRIES = 100;
+    private static final long PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(100);
+
+    private final LoggerRingBuffer ringBuffer;
+    private final LoggerPublisherProperties.RingBuffer ringBufferProperties;
+    private final Thread[] consumers;
+    private final AtomicInteger batchedCount = new AtomicInteger();
+    private volatile boolean running = true;
+    private volatile boolean terminated;
+
+    public RingBufferLoggerEventPublisher(
+            LoggerEventDispatcher dispatcher, LoggerPublisherProperties publisherProperties) {
+        super(dispatcher, publisherProperties);
+        this.ringBufferProperties = publisherProperties.getRingBuffer();
+        Assert.isTrue(
+                ringBufferProperties.getMaxBatchSize() > 0, "The maxBatchSize of ring buffer must be greater than 0.");
+        this.ringBuffer = new LoggerRingBuffer(ringBufferProperties.getBufferSize(), publisherProperties.getPoolSize());
+        this.consumers = new Thread[publisherProperties.getPoolSize()];
+
+        // Consumers spin waiting for events, which would occupy the carrier threads of virtual threads
+        ThreadFactory threadFactory = createPlatformThreadFactory();
+        for (int i = 0; i < consumers.length; i++) {
+            int consumer = i;
+            consumers[i] = threadFactory.newThread(() -> consume(consumer));
+            consumers[i].start();
+        }
+    }
+
+    @Override
+    protected boolean offer(LoggerEvent event, long submitNanos, long bytes) {
+        return running && ringBuffer.tryPublish(event, submitNanos, bytes);
+    }
+
+    @Override
+    protected long pollOldest(LoggerEvent event) {
+        return ringBuffer.evictOldest();
+    }
+
+    @Override
+    public int getQueueCapacity() {
+        return ringBuffer.getBufferSize();
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public int getQueueDepth() {
+        return ringBuffer.size() + batchedCount.get();
+    }
+
+    @Override
+    protected int shutdown(long timeoutNanos) throws InterruptedException {
+        running = false;
+        long deadline = System.nanoTime() + timeoutNanos;
+        try {
+            for (Thread consumer : consumers) {
+                LockSupport.unpark(consumer);
+                long remainingMillis = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+                consumer.join(Math.max(1, remainingMillis));
+            }
+        } finally {
+            terminated = true;
+        }
+        return getQueueDepth();
+    }
+
+    private void consume(int consumer) {
+        int maxBatchSize = ringBufferProperties.getMaxBatchSize();
+        List<LoggerEvent> events = new ArrayList<>(maxBatchSize);
+        long[] eventNanos = new long[maxBatchSize];
+        long[] eventBytes = new long[maxBatchSize];
+        int idleCounter = 0;
+
+        while (!terminated && (running || ringBuffer.size() > 0)) {
+            int count = ringBuffer.drain(consumer, maxBatchSize, events, eventNanos, eventBytes);
+            if (count == 0) {
+                idleCounter = idle(idleCounter);
+                continue;
+            }
+
+            idleCounter = 0;
+            batchedCount.addAndGet(count);
+            for (int i = 0; i < count && !terminated; i++) {
+                batchedCount.decrementAndGet();
+                dispatch(events.get(i), eventNanos[i], eventBytes[i]);
+            }
+            events.clear();
+        }
+    }
+
+    private int idle(int counter) {
+        switch (ringBufferProperties.getWaitStrategy()) {
+            case BUSY_SPIN:
+                return counter;
+            case YIELD:
+                if (counter < SPIN_TRIES) {
+                    return counter + 1;
+                }
+                Thread.yield();
+                return counter;
+            default:
+                if (counter < SPIN_TRIES) {
+                    return counter + 1;
+                }
+                if (counter < SPIN_TRIES + YIELD_TRIES) {
+                    Thread.yield();
+                    return counter + 1;
+                }
+                LockSupport.parkNanos(PARK_NANOS);
+                return counter;
+        }
+    }
+}
@@ -0,0 +1,260 @@
+/*
+ * Copyright lzhpo
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.lzhpo.logger.publisher;
+
+import com.lzhpo.logger.LoggerEvent;
+import com.lzhpo.logger.LoggerPublisherProperties;
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.util.Assert;
+
+/**
+ * Publish {@link LoggerEvent} through a {@link LoggerSpool}, the business thread only encodes the event and copies it
+ * into the memory-mapped segment, a consumer thread publishes the events in order.
+ *
+ * <p>The event failed to publish is retried every {@link LoggerPublisherProperties.Spool#getRetryInterval()}, only to
+ * the listeners that failed, so the listeners being down only delays the events, and the events not published before
+ * shutdown are replayed after restart. The delivery is at-least-once, an event may be published again if the process
+ * crashed before its checkpoint written.
+ *
+ * <p>The event still failed after {@link LoggerPublisherProperties.Spool#getMaxAttempts()} is logged and skipped, so an
+ * event the listeners always reject does not stop the events behind it. The attempts are counted since the event was
+ * read by this process.
+ *
+ * <p>The result, the errors and the values of diff fields are replayed as text, see {@link LoggerEventCodec}.
+ *
+ * @author lzhpo
+ */
+@Slf4j
+@Component
+@ConditionalOnPublisherMode(LoggerPublisherProperties.Mode.SPOOL)
+public class SpoolLoggerEventPublisher extends AbstractLoggerEventPublisher {
+
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+    private static final long CONSUMER_STOP_TIMEOUT_MILLIS = TimeUnit.SECONDS.toMillis(1);
+
+    private final LoggerSpool spool;
+    private final long retryIntervalNanos;
+    private final int maxAttempts;
+    private final LongAdder skippedCount = new LongAdder();
+    private final Thread consumer;
+    private volatile boolean running = true;
+    private volatile boolean terminated;
+
+    public SpoolLoggerEventPublisher(LoggerEventDispatcher dispatcher, LoggerPublisherProperties publisherProperties) {
+        super(dispatcher, publisherProperties);
+        LoggerPublisherProperties.Spool spoolProperties = publisherProperties.getSpool();
+        Assert.hasText(spoolProperties.getDirectory(), "The directory of spool must not be empty.");
+        Assert.notNull(spoolProperties.getSegmentSize(), "The segmentSize of spool must not be null.");
+        Assert.isTrue(
+                spoolProperties.getSegmentSize().toBytes() <= Integer.MAX_VALUE,
+                "The segmentSize of spool must not be greater than 2GB.");
+        Assert.notNull(spoolProperties.getRetryInterval(), "The retryInterval of spool must not be null.");
+        try {
+            this.spool = new LoggerSpool(
+                    Paths.get(spoolProperties.getDirectory()),
+                    (int) spoolProperties.getSegmentSize().toBytes(),
+                    spoolProperties.getMaxSegments());
+        } catch (IOException e) {
+            throw new IllegalStateException(
+                    "Open spool " + spoolProperties.getDirectory() + " error: " + e.getMessage(), e);
+        }
+        this.retryIntervalNanos = spoolProperties.getRetryInterval().toNanos();
+        this.maxAttempts = spoolProperties.getMaxAttempts();
+        if (spool.size() > 0) {
+            log.info("Replaying {} LoggerEvent from spool {}.", spool.size(), spoolProperties.getDirectory());
+        }
+
+        // Only one consumer, so the events are published in the order they appended
+        this.consumer = createPlatformThreadFactory().newThread(this::consume);
+        this.consumer.start();
+    }
+
+    @Override
+    protected boolean offer(LoggerEvent event, long submitNanos, long bytes) {
+        if (!running) {
+            return false;
+        }
+        byte[] payload;
+        try {
+            payload = LoggerEventCodec.encode(event);
+        } catch (Exception e) {
+            log.error("Encode LoggerEvent error: {}", e.getMessage(), e);
+            return false;
+        }
+        return spool.append(payload, System.currentTimeMillis());
+    }
+
+    @Override
+    protected long pollOldest(LoggerEvent event) {
+        // The spooled events are never evicted, they are kept until published
+        return -1;
+    }
+
+    /**
+     * The spool is bounded by bytes rather than records, see {@link #getQueueOccupancy()}.
+     *
+     * @return {@link Integer#MAX_VALUE}
+     */
+    @Override
+    public int getQueueCapacity() {
+        return Integer.MAX_VALUE;
+    }
+
+    /**
+     * Get the bytes of spool occupied by the records not committed, over {@code segmentSize * maxSegments}.
+     *
+     * @return the spool occupancy
+     */
+    @Override
+    public double getQueueOccupancy() {
+        return Math.min(1, (double) spool.getUsedBytes() / spool.getCapacityBytes());
+    }
+
+    @Override
+    protected boolean isHeapQueue() {
+        return false;
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public int getQueueDepth() {
+        return (int) Math.min(spool.size(), Integer.MAX_VALUE);
+    }
+
+    /**
+     * Get the number of segment files of spool.
+     *
+     * @return the number of segments
+     */
+    public int getSegmentCount() {
+        return spool.getSegmentCount();
+    }
+
+    /**
+     * Get the number of events skipped after {@link LoggerPublisherProperties.Spool#getMaxAttempts()}.
+     *
+     * @return the skipped count
+     */
+    public long getSkippedCount() {
+        return skippedCount.sum();
+    }
+
+    @Override
+    protected int shutdown(long timeoutNanos) throws InterruptedException {
+        running = false;
+        LockSupport.unpark(consumer);
+        try {
+            consumer.join(Math.max(1, TimeUnit.NANOSECONDS.toMillis(timeoutNanos)));
+        } finally {
+            terminated = true;
+            stopConsumer();
+        }
+        if (spool.size() > 0) {
+            log.info("Kept {} LoggerEvent in spool, they will be replayed after restart.", spool.size());
+        }
+        // The rest are kept in the spool, not dropped
+        return 0;
+    }
+
+    private void consume() {
+        while (!terminated && (running || spool.size() > 0)) {
+            LoggerSpool.Record record = spool.peek();
+            if (record == null) {
+                LockSupport.parkNanos(IDLE_PARK_NANOS);
+                continue;
+            }
+
+            LoggerEvent event;
+            try {
+                event = LoggerEventCodec.decode(record.getPayload(), this);
+            } catch (Exception e) {
+                log.error("Decode spooled LoggerEvent error, skipped it: {}", e.getMessage(), e);
+                spool.commit();
+                continue;
+            }
+
+            long waitedNanos =
+                    TimeUnit.MILLISECONDS.toNanos(Math.max(0, System.currentTimeMillis() - record.getWriteMillis()));
+            // Only the listeners failed are retried, the others received the event once
+            LoggerDelivery delivery = new LoggerDelivery();
+            for (int attempts = 1; !terminated; attempts++) {
+                if (dispatch(event, System.nanoTime() - waitedNanos, 0, delivery)) {
+                    spool.commit();
+                    signalFreed();
+                    break;
+                }
+                if (maxAttempts > 0 && attempts >= maxAttempts) {
+                    skippedCount.increment();
+                    log.error(
+                            "Publishing spooled LoggerEvent failed {} times, skipped it, logId: {}, category: {}, "
+                                    + "businessId: {}, message: {}",
+                            attempts,
+                            event.getLogId(),
+                            event.getCategory(),
+                            event.getBusinessId(),
+                            event.getMessage());
+                    spool.commit();
+                    signalFreed();
+                    break;
+                }
+                LockSupport.parkNanos(retryIntervalNanos);
+            }
+        }
+    }
+
+    /**
+     * Stop the consumer and close the spool once it exited, the consumer may be reading the mapped segments or writing
+     * the checkpoint, they must not be unmapped under it.
+     */
+    private void stopConsumer() {
+        boolean interrupted = false;
+        if (consumer.isAlive()) {
+            // Still publishing after the shutdown timeout, e.g. blocked in a listener
+            consumer.interrupt();
+            try {
+                consumer.join(CONSUMER_STOP_TIMEOUT_MILLIS);
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (consumer.isAlive()) {
+            log.warn("The spool consumer did not exit, leave the spool open, the events are replayed after restart.");
+        } else {
+            closeSpool();
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void closeSpool() {
+        try {
+            spool.close();
+        } catch (IOException e) {
+            log.error("Close spool error: {}", e.getMessage(), e);
+        }
+    }
+}
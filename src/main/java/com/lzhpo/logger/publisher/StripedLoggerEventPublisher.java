@@ -0,0 +1,151 @@
+/*
+ * Copyright lzhpo
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.lzhpo.logger.publisher;
+
+import com.lzhpo.logger.LoggerEvent;
+import com.lzhpo.logger.LoggerPublisherProperties;
+import com.lzhpo.logger.LoggerPublisherProperties.OverflowPolicy;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import org.springframework.util.Assert;
+
+/**
+ * Publish {@link LoggerEvent} on single-threaded lanes, the key of event decides its lane, so the events with the same
+ * key are published in the order they submitted, and the events with different keys are published in parallel.
+ *
+ * <p>The events without key are spread over the lanes in turn. {@link OverflowPolicy#CALLER_RUNS} is rejected, it
+ * would publish the event ahead of the events with the same key waiting in the lane.
+ *
+ * @author lzhpo
+ */
+@Component
+@ConditionalOnPublisherMode(LoggerPublisherProperties.Mode.STRIPED)
+public class StripedLoggerEventPublisher extends AbstractLoggerEventPublisher {
+
+    private final ThreadPoolExecutor[] lanes;
+    private final int laneCapacity;
+    private final AtomicInteger nextLane = new AtomicInteger();
+
+    public StripedLoggerEventPublisher(
+            LoggerEventDispatcher dispatcher, LoggerPublisherProperties publisherProperties) {
+        super(dispatcher, publisherProperties);
+        Assert.notNull(publisherProperties.getStriped().getKey(), "The key of striped lanes must not be null.");
+        Assert.isTrue(
+                publisherProperties.getQueueCapacity() > 0, "The queueCapacity of publisher must be greater than 0.");
+        // Publishing in the caller thread overtakes the events of the same key waiting in the lane
+        Assert.isTrue(
+                publisherProperties.getOverflow().getPolicy() != OverflowPolicy.CALLER_RUNS,
+                "The overflow policy CALLER_RUNS breaks the order of striped lanes, use BLOCK instead.");
+        this.lanes = new ThreadPoolExecutor[publisherProperties.getPoolSize()];
+        this.laneCapacity = Math.max(1, publisherProperties.getQueueCapacity() / lanes.length);
+
+        ThreadFactory threadFactory = createThreadFactory();
+        for (int i = 0; i < lanes.length; i++) {
+            lanes[i] = new ThreadPoolExecutor(
+                    1,
+                    1,
+                    0L,
+                    TimeUnit.MILLISECONDS,
+                    new LinkedBlockingQueue<>(laneCapacity),
+                    threadFactory,
+                    (task, executor) -> ((PublishTask) task).rejected = true);
+        }
+    }
+
+    @Override
+    protected boolean offer(LoggerEvent event, long submitNanos, long bytes) {
+        PublishTask task = new PublishTask(event, submitNanos, bytes);
+        getLane(event).execute(task);
+        return !task.rejected;
+    }
+
+    @Override
+    protected long pollOldest(LoggerEvent event) {
+        PublishTask task = (PublishTask) getLane(event).getQueue().poll();
+        return task == null ? -1 : task.bytes;
+    }
+
+    @Override
+    public int getQueueCapacity() {
+        return laneCapacity * lanes.length;
+    }
+
+    @Override
+    public boolean isRunning() {
+        return !lanes[0].isShutdown();
+    }
+
+    @Override
+    public int getQueueDepth() {
+        int queueDepth = 0;
+        for (ThreadPoolExecutor lane : lanes) {
+            queueDepth += lane.getQueue().size();
+        }
+        return queueDepth;
+    }
+
+    @Override
+    protected int shutdown(long timeoutNanos) throws InterruptedException {
+        for (ThreadPoolExecutor lane : lanes) {
+            lane.shutdown();
+        }
+        long deadline = System.nanoTime() + timeoutNanos;
+        int notPublished = 0;
+        for (ThreadPoolExecutor lane : lanes) {
+            if (!lane.awaitTermination(deadline - System.nanoTime(), TimeUnit.NANOSECONDS)) {
+                notPublished += lane.shutdownNow().size();
+            }
+        }
+        return notPublished;
+    }
+
+    private ThreadPoolExecutor getLane(LoggerEvent event) {
+        String key = getKey(event);
+        if (key == null) {
+            return lanes[Math.floorMod(nextLane.getAndIncrement(), lanes.length)];
+        }
+        int hash = key.hashCode();
+        return lanes[Math.floorMod(hash ^ (hash >>> 16), lanes.length)];
+    }
+
+    private String getKey(LoggerEvent event) {
+        switch (publisherProperties.getStriped().getKey()) {
+            case OPERATOR_ID:
+                return event.getOperatorId();
+            default:
+                return event.getBusinessId();
+        }
+    }
+
+    @RequiredArgsConstructor
+    private class PublishTask implements Runnable {
+
+        private final LoggerEvent event;
+        private final long submitNanos;
+        private final long bytes;
+        private boolean rejected;
+
+        @Override
+        public void run() {
+            dispatch(event, submitNanos, bytes);
+        }
+    }
+}
@@ -0,0 +1,107 @@
+/*
+ * Copyright lzhpo
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.lzhpo.logger.sampling;
+
+import com.lzhpo.logger.LoggerSamplingProperties;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import lombok.Getter;
+
+/**
+ * Decide whether an invocation is sampled by a {@link LoggerSamplingProperties.Rule}, the invocation is sampled with
+ * the probability of {@code rate}, then limited by a lock-free token bucket of {@code permitsPerSecond}.
+ *
+ * <p>The token bucket keeps the theoretical arrival time of the next permit in an {@link AtomicLong}, each permit
+ * moves it forward by the emission interval, up to one second of permits can be burst after idle.
+ *
+ * @author lzhpo
+ */
+public class LoggerSampler {
+
+    private static final long BURST_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    /**
+     * The name of rule.
+     */
+    @Getter
+    private final String name;
+
+    private final double rate;
+    private final long intervalNanos;
+    private final AtomicLong nextPermitNanos;
+    private final LongAdder sampledCount = new LongAdder();
+    private final LongAdder skippedCount = new LongAdder();
+
+    public LoggerSampler(String name, double rate, double permitsPerSecond) {
+        this.name = name;
+        this.rate = rate;
+        this.intervalNanos = permitsPerSecond > 0 ? Math.max(1, Math.round(BURST_NANOS / permitsPerSecond)) : 0;
+        this.nextPermitNanos = new AtomicLong(System.nanoTime() - BURST_NANOS);
+    }
+
+    /**
+     * Whether the current invocation is sampled.
+     *
+     * @return true if sampled
+     */
+    public boolean trySample() {
+        boolean sampled = (rate >= 1 || ThreadLocalRandom.current().nextDouble() < rate) && tryAcquire();
+        if (sampled) {
+            sampledCount.increment();
+        } else {
+            skippedCount.increment();
+        }
+        return sampled;
+    }
+
+    /**
+     * Get the number of sampled invocations.
+     *
+     * @return the number of sampled invocations
+     */
+    public long getSampledCount() {
+        return sampledCount.sum();
+    }
+
+    /**
+     * Get the number of skipped invocations, includes the failed invocations logged anyway.
+     *
+     * @return the number of skipped invocations
+     */
+    public long getSkippedCount() {
+        return skippedCount.sum();
+    }
+
+    private boolean tryAcquire() {
+        if (intervalNanos == 0) {
+            return true;
+        }
+        long nowNanos = System.nanoTime();
+        while (true) {
+            long next = nextPermitNanos.get();
+            // Never fall behind more than the burst, or the idle time would be accumulated as permits
+            long permitNanos = next - (nowNanos - BURST_NANOS) > 0 ? next : nowNanos - BURST_NANOS;
+            if (permitNanos - nowNanos > 0) {
+                return false;
+            }
+            if (nextPermitNanos.compareAndSet(next, permitNanos + intervalNanos)) {
+                return true;
+            }
+        }
+    }
+}
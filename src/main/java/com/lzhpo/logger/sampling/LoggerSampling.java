@@ -0,0 +1,139 @@
+/*
+ * Copyright lzhpo
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.lzhpo.logger.sampling;
+
+import com.lzhpo.logger.LoggerSamplingProperties;
+import com.lzhpo.logger.annotation.Logger;
+import com.lzhpo.logger.context.LoggerAttribute;
+import com.lzhpo.logger.context.LoggerAttributeExpression;
+import com.lzhpo.logger.context.LoggerMethodMetadata;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.util.Assert;
+import org.springframework.util.PatternMatchUtils;
+import org.springframework.util.StringUtils;
+
+/**
+ * Decide whether an invocation of {@link Logger} method is sampled, by the {@link LoggerSampler} of the rule applied to
+ * the method.
+ *
+ * <p>The rule of each method is resolved once from its {@link LoggerMethodMetadata}, so the decision only costs a map
+ * lookup and the sampler, nothing is evaluated or allocated.
+ *
+ * @author lzhpo
+ */
+@Slf4j
+@Component
+public class LoggerSampling {
+
+    private final Map<String, LoggerSamplingProperties.Rule> rules;
+    private final Map<String, LoggerSampler> samplers;
+    private final Map<LoggerMethodMetadata, Optional<LoggerSampler>> methodSamplers = new ConcurrentHashMap<>();
+
+    public LoggerSampling(LoggerSamplingProperties samplingProperties) {
+        this.rules = new LinkedHashMap<>(samplingProperties.getRules());
+        Map<String, LoggerSampler> samplers = new LinkedHashMap<>(rules.size());
+        rules.forEach((name, rule) -> {
+            Assert.isTrue(
+                    rule.getRate() >= 0 && rule.getRate() <= 1,
+                    "The rate of sampling rule " + name + " must be between 0 and 1.");
+            Assert.isTrue(
+                    rule.getPermitsPerSecond() >= 0,
+                    "The permitsPerSecond of sampling rule " + name + " must not be negative.");
+            samplers.put(name, new LoggerSampler(name, rule.getRate(), rule.getPermitsPerSecond()));
+        });
+        this.samplers = Collections.unmodifiableMap(samplers);
+    }
+
+    /**
+     * Whether the current invocation of method is sampled, always true if no rule applied to the method.
+     *
+     * @param metadata {@link LoggerMethodMetadata}
+     * @return true if sampled
+     */
+    public boolean isSampled(LoggerMethodMetadata metadata) {
+        Optional<LoggerSampler> sampler = methodSamplers.get(metadata);
+        if (sampler == null) {
+            sampler = methodSamplers.computeIfAbsent(metadata, this::resolveSampler);
+        }
+        return !sampler.isPresent() || sampler.get().trySample();
+    }
+
+    /**
+     * Get the sampler of rule.
+     *
+     * @param name the name of rule
+     * @return {@link LoggerSampler}, null if the rule not exists
+     */
+    public LoggerSampler getSampler(String name) {
+        return samplers.get(name);
+    }
+
+    /**
+     * Get the samplers by the name of rule.
+     *
+     * @return the samplers
+     */
+    public Map<String, LoggerSampler> getSamplers() {
+        return samplers;
+    }
+
+    private Optional<LoggerSampler> resolveSampler(LoggerMethodMetadata metadata) {
+        String name = metadata.getLogger().sampling();
+        if (StringUtils.hasText(name)) {
+            LoggerSampler sampler = samplers.get(name);
+            if (sampler == null) {
+                log.warn(
+                        "The sampling rule {} of @Logger on {}#{} not exists, it will not be sampled.",
+                        name,
+                        metadata.getTargetClass().getName(),
+                        metadata.getMethod().getName());
+            }
+            return Optional.ofNullable(sampler);
+        }
+
+        return rules.entrySet().stream()
+                .filter(entry -> matches(entry.getValue(), metadata))
+                .findFirst()
+                .map(entry -> samplers.get(entry.getKey()));
+    }
+
+    private static boolean matches(LoggerSamplingProperties.Rule rule, LoggerMethodMetadata metadata) {
+        if (!StringUtils.hasText(rule.getMethod())
+                && !StringUtils.hasText(rule.getCategory())
+                && !StringUtils.hasText(rule.getTag())) {
+            return false;
+        }
+        String method =
+                metadata.getTargetClass().getName() + "#" + metadata.getMethod().getName();
+        return (!StringUtils.hasText(rule.getMethod()) || PatternMatchUtils.simpleMatch(rule.getMethod(), method))
+                && matchesLiteral(rule.getCategory(), metadata.getAttributeExpression(LoggerAttribute.CATEGORY))
+                && matchesLiteral(rule.getTag(), metadata.getAttributeExpression(LoggerAttribute.TAG));
+    }
+
+    private static boolean matchesLiteral(String value, LoggerAttributeExpression expression) {
+        if (!StringUtils.hasText(value)) {
+            return true;
+        }
+        return expression.getKind() == LoggerAttributeExpression.Kind.LITERAL
+                && value.equals(expression.getLiteralValue());
+    }
+}
@@ -0,0 +1,189 @@
+/*
+ * Copyright lzhpo
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.lzhpo.logger.shedding;
+
+import cn.hutool.core.thread.ThreadFactoryBuilder;
+import com.lzhpo.logger.LoggerSheddingProperties;
+import com.lzhpo.logger.publisher.LoggerEventPublisher;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.stereotype.Component;
+import org.springframework.util.Assert;
+
+/**
+ * Adapt the {@link LoggerSheddingLevel} to the pressure, which is the publisher queue occupancy and the average aspect
+ * overhead per logged invocation since the last check.
+ *
+ * <p>The level steps up once either reached its high watermark, and steps down once both are below their low
+ * watermarks, so it does not flap between two levels when the pressure stays around a watermark.
+ *
+ * @author lzhpo
+ */
+@Slf4j
+@Component
+public class LoggerLoadShedding implements DisposableBean {
+
+    private static final LoggerSheddingLevel[] LEVELS = LoggerSheddingLevel.values();
+
+    private final LoggerSheddingProperties sheddingProperties;
+    private final LoggerEventPublisher publisher;
+    private final long overheadHighWatermarkNanos;
+    private final long overheadLowWatermarkNanos;
+    private final ScheduledExecutorService checker;
+
+    private final LongAdder overheadNanos = new LongAdder();
+    private final LongAdder overheadCount = new LongAdder();
+    private final LongAdder shedCount = new LongAdder();
+    private volatile LoggerSheddingLevel level = LoggerSheddingLevel.NONE;
+    private volatile long averageOverheadNanos;
+
+    public LoggerLoadShedding(LoggerSheddingProperties sheddingProperties, LoggerEventPublisher publisher) {
+        this.sheddingProperties = sheddingProperties;
+        this.publisher = publisher;
+        LoggerSheddingProperties.Queue queue = sheddingProperties.getQueue();
+        LoggerSheddingProperties.Overhead overhead = sheddingProperties.getOverhead();
+        Assert.isTrue(
+                queue.getLowWatermark() <= queue.getHighWatermark(),
+                "The queue lowWatermark of shedding must not be greater than highWatermark.");
+        Assert.isTrue(
+                overhead.getLowWatermark().compareTo(overhead.getHighWatermark()) <= 0,
+                "The overhead lowWatermark of shedding must not be greater than highWatermark.");
+        Assert.isTrue(
+                sheddingProperties.getSampleRate() >= 0 && sheddingProperties.getSampleRate() <= 1,
+                "The sampleRate of shedding must be between 0 and 1.");
+        this.overheadHighWatermarkNanos = overhead.getHighWatermark().toNanos();
+        this.overheadLowWatermarkNanos = overhead.getLowWatermark().toNanos();
+
+        if (sheddingProperties.isEnabled()) {
+            long checkIntervalNanos = sheddingProperties.getCheckInterval().toNanos();
+            this.checker = Executors.newSingleThreadScheduledExecutor(ThreadFactoryBuilder.create()
+                    .setNamePrefix("logger-shedding-checker-")
+                    .setDaemon(true)
+                    .build());
+            this.checker.scheduleWithFixedDelay(
+                    this::check, checkIntervalNanos, checkIntervalNanos, TimeUnit.NANOSECONDS);
+        } else {
+            this.checker = null;
+        }
+    }
+
+    /**
+     * Get the current shedding level.
+     *
+     * @return {@link LoggerSheddingLevel}
+     */
+    public LoggerSheddingLevel getLevel() {
+        return level;
+    }
+
+    /**
+     * Get the average aspect overhead per logged invocation measured by the last check.
+     *
+     * @return the average overhead in nanoseconds
+     */
+    public long getAverageOverheadNanos() {
+        return averageOverheadNanos;
+    }
+
+    /**
+     * Get the number of successful invocations not logged because of {@link LoggerSheddingLevel#SAMPLE}.
+     *
+     * @return the number of shed invocations
+     */
+    public long getShedCount() {
+        return shedCount.sum();
+    }
+
+    /**
+     * Record the aspect overhead of a logged invocation.
+     *
+     * @param nanos the overhead in nanoseconds, excludes the method itself
+     */
+    public void recordOverhead(long nanos) {
+        if (checker != null) {
+            overheadNanos.add(nanos);
+            overheadCount.increment();
+        }
+    }
+
+    /**
+     * Whether the current invocation is sampled, always true below {@link LoggerSheddingLevel#SAMPLE}.
+     *
+     * @return true if sampled
+     */
+    public boolean isSampled() {
+        if (!level.isAtLeast(LoggerSheddingLevel.SAMPLE)
+                || ThreadLocalRandom.current().nextDouble() < sheddingProperties.getSampleRate()) {
+            return true;
+        }
+        shedCount.increment();
+        return false;
+    }
+
+    /**
+     * Whether the {@code message} and {@code additional} of {@code category} should be evaluated at {@code level}.
+     *
+     * @param level    the shedding level of the invocation
+     * @param category the evaluated category
+     * @return true if the details should be evaluated
+     */
+    public boolean isDetailed(LoggerSheddingLevel level, String category) {
+        return !level.isAtLeast(LoggerSheddingLevel.SKIP_DETAILS)
+                || !sheddingProperties.getLowPriorityCategories().contains(category);
+    }
+
+    @Override
+    public void destroy() {
+        if (checker != null) {
+            checker.shutdownNow();
+        }
+    }
+
+    private void check() {
+        try {
+            long count = overheadCount.sumThenReset();
+            long nanos = overheadNanos.sumThenReset();
+            averageOverheadNanos = count > 0 ? nanos / count : 0;
+            double occupancy = publisher.getQueueOccupancy();
+
+            LoggerSheddingProperties.Queue queue = sheddingProperties.getQueue();
+            LoggerSheddingLevel current = level;
+            LoggerSheddingLevel next = current;
+            if (occupancy >= queue.getHighWatermark() || averageOverheadNanos >= overheadHighWatermarkNanos) {
+                next = LEVELS[Math.min(current.ordinal() + 1, LEVELS.length - 1)];
+            } else if (occupancy < queue.getLowWatermark() && averageOverheadNanos < overheadLowWatermarkNanos) {
+                next = LEVELS[Math.max(current.ordinal() - 1, 0)];
+            }
+
+            if (next != current) {
+                level = next;
+                log.info(
+                        "Changed shedding level from {} to {}, queue occupancy: {}, average overhead: {}ns.",
+                        current,
+                        next,
+                        String.format("%.2f", occupancy),
+                        averageOverheadNanos);
+            }
+        } catch (Exception e) {
+            log.error("Check shedding pressure error: {}", e.getMessage(), e);
+        }
+    }
+}
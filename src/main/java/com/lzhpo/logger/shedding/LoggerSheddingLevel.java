@@ -0,0 +1,54 @@
+/*
+ * Copyright lzhpo
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.lzhpo.logger.shedding;
+
+/**
+ * The shedding levels, each level also sheds what the lower levels shed.
+ *
+ * @author lzhpo
+ */
+public enum LoggerSheddingLevel {
+
+    /**
+     * Full fidelity, nothing is shed.
+     */
+    NONE,
+
+    /**
+     * The diff results are not attached to the event.
+     */
+    DROP_DIFFS,
+
+    /**
+     * The {@code message} and {@code additional} of the low-priority categories are not evaluated.
+     */
+    SKIP_DETAILS,
+
+    /**
+     * Only a sample of the successful invocations are logged, the failures are always logged.
+     */
+    SAMPLE;
+
+    /**
+     * Whether this level sheds what {@code level} sheds.
+     *
+     * @param level the other level
+     * @return true if this level is equal or higher
+     */
+    public boolean isAtLeast(LoggerSheddingLevel level) {
+        return compareTo(level) >= 0;
+    }
+}
@@ -0,0 +1,367 @@
+/*
+ * Copyright lzhpo
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.lzhpo.logger.sink;
+
+import cn.hutool.core.thread.ThreadFactoryBuilder;
+import cn.hutool.json.JSONUtil;
+import com.lzhpo.logger.LoggerBatchListener;
+import com.lzhpo.logger.LoggerEvent;
+import com.lzhpo.logger.LoggerSinkProperties;
+import com.lzhpo.logger.diff.DiffFieldResult;
+import com.lzhpo.logger.diff.DiffObjectResult;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.util.Assert;
+
+/**
+ * Append {@link LoggerEvent} to a file as JSON lines, one event per line.
+ *
+ * <p>The lines of a batch are encoded into a reused direct buffer and written by one {@link FileChannel#write} per
+ * buffer, then forced once per batch if {@link LoggerSinkProperties.File#isForce()}, instead of per event.
+ *
+ * <p>The file is rotated by size and time, the rotated file is renamed with the time of rotation as suffix, and
+ * compressed with gzip in background if {@link LoggerSinkProperties.File#isGzip()}.
+ *
+ * @author lzhpo
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "logger.sink.file", name = "enabled", havingValue = "true")
+public class FileLoggerSink implements LoggerBatchListener, DisposableBean {
+
+    private static final String ROTATED_TIME_PATTERN = "yyyyMMdd-HHmmss";
+    private static final long COMPRESS_TIMEOUT_SECONDS = 30;
+
+    private final Path path;
+    private final boolean force;
+    private final long maxFileSize;
+    private final long rotationIntervalMillis;
+    private final ExecutorService compressor;
+    private final ByteBuffer buffer;
+    private final StringBuilder line = new StringBuilder(512);
+
+    // Guarded by this
+    private FileChannel channel;
+    private long fileSize;
+    private long openedMillis;
+
+    public FileLoggerSink(LoggerSinkProperties sinkProperties) {
+        LoggerSinkProperties.File fileProperties = sinkProperties.getFile();
+        Assert.hasText(fileProperties.getPath(), "The path of file sink must not be empty.");
+        Assert.isTrue(
+                fileProperties.getBufferSize() != null
+                        && fileProperties.getBufferSize().toBytes() > 0,
+                "The bufferSize of file sink must be greater than 0.");
+        Assert.isTrue(
+                fileProperties.getMaxFileSize() != null
+                        && fileProperties.getMaxFileSize().toBytes() > 0,
+                "The maxFileSize of file sink must be greater than 0.");
+        this.path = Paths.get(fileProperties.getPath()).toAbsolutePath();
+        this.force = fileProperties.isForce();
+        this.maxFileSize = fileProperties.getMaxFileSize().toBytes();
+        this.rotationIntervalMillis = fileProperties.getRotationInterval() == null
+                ? 0
+                : fileProperties.getRotationInterval().toMillis();
+        this.buffer = ByteBuffer.allocateDirect(
+                (int) Math.min(fileProperties.getBufferSize().toBytes(), Integer.MAX_VALUE));
+        this.compressor = fileProperties.isGzip()
+                ? Executors.newSingleThreadExecutor(ThreadFactoryBuilder.create()
+                        .setNamePrefix("logger-file-compressor-")
+                        .setDaemon(true)
+                        .build())
+                : null;
+    }
+
+    @Override
+    public synchronized void onEvents(List<LoggerEvent> events) {
+        try {
+            rotateIfNeeded();
+            for (LoggerEvent event : events) {
+                byte[] bytes = toJsonLine(event);
+                if (bytes.length > buffer.remaining()) {
+                    writeBuffer();
+                }
+                if (bytes.length > buffer.capacity()) {
+                    writeFully(ByteBuffer.wrap(bytes));
+                } else {
+                    buffer.put(bytes);
+                }
+            }
+            writeBuffer();
+            if (force) {
+                channel.force(false);
+            }
+        } catch (IOException e) {
+            ((Buffer) buffer).clear();
+            closeChannel();
+            throw new UncheckedIOException("Write LoggerEvent to " + path + " error: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Get the path of the file being written.
+     *
+     * @return the path
+     */
+    public Path getPath() {
+        return path;
+    }
+
+    @Override
+    public synchronized void destroy() throws InterruptedException {
+        closeChannel();
+        if (compressor != null) {
+            compressor.shutdown();
+            if (!compressor.awaitTermination(COMPRESS_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                log.warn("Compressing the rotated files of {} did not finish in {}s.", path, COMPRESS_TIMEOUT_SECONDS);
+            }
+        }
+    }
+
+    private void rotateIfNeeded() throws IOException {
+        if (channel == null) {
+            open();
+        }
+        boolean full = fileSize >= maxFileSize;
+        boolean expired = rotationIntervalMillis > 0
+                && fileSize > 0
+                && System.currentTimeMillis() - openedMillis >= rotationIntervalMillis;
+        if (!full && !expired) {
+            return;
+        }
+
+        closeChannel();
+        Path rotated = getRotatedPath();
+        Files.move(path, rotated);
+        log.debug("Rotated {} to {}.", path, rotated);
+        if (compressor != null && !compressor.isShutdown()) {
+            compressor.execute(() -> compress(rotated));
+        }
+        open();
+    }
+
+    private void open() throws IOException {
+        Path parent = path.getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        channel =
+                FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        fileSize = channel.size();
+        openedMillis = System.currentTimeMillis();
+    }
+
+    private void closeChannel() {
+        if (channel == null) {
+            return;
+        }
+        try {
+            channel.close();
+        } catch (IOException e) {
+            log.warn("Close {} error: {}", path, e.getMessage());
+        }
+        channel = null;
+    }
+
+    private void writeBuffer() throws IOException {
+        ((Buffer) buffer).flip();
+        writeFully(buffer);
+        ((Buffer) buffer).clear();
+    }
+
+    private void writeFully(ByteBuffer source) throws IOException {
+        while (source.hasRemaining()) {
+            fileSize += channel.write(source);
+        }
+    }
+
+    private Path getRotatedPath() {
+        String suffix = new SimpleDateFormat(ROTATED_TIME_PATTERN).format(new Date());
+        Path rotated = path.resolveSibling(path.getFileName() + "." + suffix);
+        for (int i = 1;
+                Files.exists(rotated) || Files.exists(rotated.resolveSibling(rotated.getFileName() + ".gz"));
+                i++) {
+            rotated = path.resolveSibling(path.getFileName() + "." + suffix + "." + i);
+        }
+        return rotated;
+    }
+
+    private static void compress(Path rotated) {
+        Path compressed = rotated.resolveSibling(rotated.getFileName() + ".gz");
+        try (InputStream input = Files.newInputStream(rotated);
+                OutputStream output = new GZIPOutputStream(Files.newOutputStream(compressed))) {
+            byte[] bytes = new byte[8192];
+            int read;
+            while ((read = input.read(bytes)) >= 0) {
+                output.write(bytes, 0, read);
+            }
+        } catch (IOException e) {
+            log.error("Compress {} error: {}", rotated, e.getMessage(), e);
+            return;
+        }
+        try {
+            Files.delete(rotated);
+        } catch (IOException e) {
+            log.warn("Delete {} error: {}", rotated, e.getMessage());
+        }
+    }
+
+    private byte[] toJsonLine(LoggerEvent event) {
+        line.setLength(0);
+        line.append('{');
+        appendField("logId", event.getLogId());
+        appendField("message", event.getMessage());
+        appendField("operatorId", event.getOperatorId());
+        appendField("businessId", event.getBusinessId());
+        appendField("category", event.getCategory());
+        appendField("tag", event.getTag());
+        appendField("additional", event.getAdditional());
+        appendField(
+                "createTime",
+                event.getCreateTime() == null ? null : event.getCreateTime().getTime());
+        appendField("takeTime", event.getTakeTime());
+        appendField("condition", event.isCondition());
+        appendField("success", event.isSuccess());
+        appendField("result", event.getResult());
+        if (event.getCount() != 1 || event.getFirstTime() != null || event.getLastTime() != null) {
+            appendField("count", event.getCount());
+            appendField(
+                    "firstTime",
+                    event.getFirstTime() == null ? null : event.getFirstTime().getTime());
+            appendField(
+                    "lastTime",
+                    event.getLastTime() == null ? null : event.getLastTime().getTime());
+        }
+
+        List<Exception> errors = event.getErrors();
+        if (errors != null) {
+            line.append(",\"errors\":[");
+            for (int i = 0; i < errors.size(); i++) {
+                if (i > 0) {
+                    line.append(',');
+                }
+                appendValue(errors.get(i) == null ? null : errors.get(i).toString());
+            }
+            line.append(']');
+        }
+
+        List<DiffObjectResult> diffResults = event.getDiffResults();
+        if (diffResults != null) {
+            line.append(",\"diffResults\":[");
+            for (int i = 0; i < diffResults.size(); i++) {
+                if (i > 0) {
+                    line.append(',');
+                }
+                appendDiffResult(diffResults.get(i));
+            }
+            line.append(']');
+        }
+        line.append("}\n");
+        return line.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private void appendDiffResult(DiffObjectResult diffResult) {
+        line.append('{');
+        appendField("oldObjectName", diffResult.getOldObjectName());
+        appendField("newObjectName", diffResult.getNewObjectName());
+        List<DiffFieldResult> fieldResults = diffResult.getFieldResults();
+        if (fieldResults != null) {
+            line.append(",\"fieldResults\":[");
+            for (int i = 0; i < fieldResults.size(); i++) {
+                DiffFieldResult fieldResult = fieldResults.get(i);
+                line.append(i > 0 ? ",{" : "{");
+                appendField("fieldName", fieldResult.getFieldName());
+                appendField(
+                        "state",
+                        fieldResult.getState() == null
+                                ? null
+                                : fieldResult.getState().name());
+                appendField("oldTitle", fieldResult.getOldTitle());
+                appendField("oldValue", fieldResult.getOldValue());
+                appendField("newTitle", fieldResult.getNewTitle());
+                appendField("newValue", fieldResult.getNewValue());
+                line.append('}');
+            }
+            line.append(']');
+        }
+        line.append('}');
+    }
+
+    private void appendField(String name, Object value) {
+        if (line.charAt(line.length() - 1) != '{') {
+            line.append(',');
+        }
+        line.append('"').append(name).append("\":");
+        appendValue(value);
+    }
+
+    /**
+     * Append {@code value} as JSON, NaN and Infinity are not valid JSON numbers, they are appended as strings.
+     *
+     * @param value the value
+     */
+    private void appendValue(Object value) {
+        if (value instanceof Double || value instanceof Float) {
+            if (Double.isFinite(((Number) value).doubleValue())) {
+                line.append(value);
+            } else {
+                line.append('"').append(value).append('"');
+            }
+        } else if (value == null || value instanceof Number || value instanceof Boolean) {
+            line.append(value);
+        } else if (value instanceof CharSequence) {
+            line.append(JSONUtil.quote(value.toString()));
+        } else {
+            appendJson(value);
+        }
+    }
+
+    private void appendJson(Object value) {
+        String json;
+        try {
+            json = JSONUtil.toJsonStr(value);
+        } catch (RuntimeException e) {
+            // e.g. a non-finite number nested in the value, rejected by JSONUtil
+            log.debug(
+                    "Write {} as JSON error, write it as string: {}",
+                    value.getClass().getName(),
+                    e.getMessage());
+            json = JSONUtil.quote(value.toString());
+        }
+        line.append(json);
+    }
+}
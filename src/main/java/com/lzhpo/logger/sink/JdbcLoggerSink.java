@@ -0,0 +1,205 @@
+/*
+ * Copyright lzhpo
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.lzhpo.logger.sink;
+
+import com.lzhpo.logger.LoggerBatchListener;
+import com.lzhpo.logger.LoggerEvent;
+import com.lzhpo.logger.LoggerSinkProperties;
+import com.lzhpo.logger.diff.DiffFieldResult;
+import com.lzhpo.logger.diff.DiffObjectResult;
+import com.lzhpo.logger.publisher.LoggerEventCodec;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.stream.Collectors;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.Assert;
+import org.springframework.util.CollectionUtils;
+
+/**
+ * Write {@link LoggerEvent} and its diff fields into the tables of {@code classpath:com/lzhpo/logger/sink/schema.sql}
+ * in batches, each batch of events is written by one {@link JdbcTemplate#batchUpdate} per table, the prepared
+ * statement is reused for all rows of the table.
+ *
+ * <p>Both tables of a batch are written in one transaction of the {@link JdbcTemplate#getDataSource()}, separate from
+ * the transaction of caller if any, so an event is never written without its diff fields.
+ *
+ * <p>The events may be delivered again, e.g. replayed by the spool after a crash. If a batch violates the primary key
+ * of {@code log_id}, it is written again event by event, each in its own transaction, and the events already written
+ * are skipped.
+ *
+ * <p>The result and the values of diff fields are written as text, see {@link LoggerEventCodec#toText(Object)}, the
+ * errors as their {@link Throwable#toString()} joined by line breaks.
+ *
+ * @author lzhpo
+ */
+@Slf4j
+@Component
+@ConditionalOnClass(name = "org.springframework.jdbc.core.JdbcTemplate")
+@ConditionalOnProperty(prefix = "logger.sink.jdbc", name = "enabled", havingValue = "true")
+public class JdbcLoggerSink implements LoggerBatchListener {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final int batchSize;
+    private final String insertEventSql;
+    private final String insertDiffSql;
+
+    public JdbcLoggerSink(JdbcTemplate jdbcTemplate, LoggerSinkProperties sinkProperties) {
+        LoggerSinkProperties.Jdbc jdbcProperties = sinkProperties.getJdbc();
+        Assert.hasText(jdbcProperties.getEventTable(), "The eventTable of JDBC sink must not be empty.");
+        Assert.hasText(jdbcProperties.getDiffTable(), "The diffTable of JDBC sink must not be empty.");
+        Assert.isTrue(jdbcProperties.getBatchSize() > 0, "The batchSize of JDBC sink must be greater than 0.");
+        Assert.notNull(jdbcTemplate.getDataSource(), "The JdbcTemplate of JDBC sink must have a DataSource.");
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate =
+                new TransactionTemplate(new DataSourceTransactionManager(jdbcTemplate.getDataSource()));
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.batchSize = jdbcProperties.getBatchSize();
+        this.insertEventSql = "INSERT INTO " + jdbcProperties.getEventTable()
+                + " (log_id, message, operator_id, business_id, category, tag, additional, create_time, take_time,"
+                + " log_condition, success, result, errors, event_count, first_time, last_time)"
+                + " VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+        this.insertDiffSql = "INSERT INTO " + jdbcProperties.getDiffTable()
+                + " (log_id, object_index, field_index, old_object_name, new_object_name, field_name, state,"
+                + " old_title, old_value, new_title, new_value) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    }
+
+    @Override
+    public void onEvents(List<LoggerEvent> events) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> write(events));
+        } catch (DuplicateKeyException e) {
+            log.debug("Some LoggerEvent have been written, write the batch event by event: {}", e.getMessage());
+            int skipped = 0;
+            for (LoggerEvent event : events) {
+                try {
+                    transactionTemplate.executeWithoutResult(status -> write(Collections.singletonList(event)));
+                } catch (DuplicateKeyException ex) {
+                    skipped++;
+                }
+            }
+            log.info("Skipped {} LoggerEvent which have been written.", skipped);
+        }
+    }
+
+    private void write(List<LoggerEvent> events) {
+        jdbcTemplate.batchUpdate(insertEventSql, events, batchSize, this::setEventValues);
+
+        List<DiffRow> diffRows = getDiffRows(events);
+        if (!diffRows.isEmpty()) {
+            jdbcTemplate.batchUpdate(insertDiffSql, diffRows, batchSize, this::setDiffValues);
+        }
+        log.debug("Wrote {} LoggerEvent with {} diff fields.", events.size(), diffRows.size());
+    }
+
+    private void setEventValues(PreparedStatement statement, LoggerEvent event) throws SQLException {
+        statement.setString(1, event.getLogId());
+        statement.setString(2, event.getMessage());
+        statement.setString(3, event.getOperatorId());
+        statement.setString(4, event.getBusinessId());
+        statement.setString(5, event.getCategory());
+        statement.setString(6, event.getTag());
+        statement.setString(7, event.getAdditional());
+        setTimestamp(statement, 8, event.getCreateTime());
+        if (event.getTakeTime() == null) {
+            statement.setNull(9, Types.BIGINT);
+        } else {
+            statement.setLong(9, event.getTakeTime());
+        }
+        statement.setBoolean(10, event.isCondition());
+        statement.setBoolean(11, event.isSuccess());
+        statement.setString(12, LoggerEventCodec.toText(event.getResult()));
+        statement.setString(
+                13,
+                CollectionUtils.isEmpty(event.getErrors())
+                        ? null
+                        : event.getErrors().stream().map(String::valueOf).collect(Collectors.joining("\n")));
+        statement.setInt(14, event.getCount());
+        setTimestamp(statement, 15, event.getFirstTime());
+        setTimestamp(statement, 16, event.getLastTime());
+    }
+
+    private static void setTimestamp(PreparedStatement statement, int index, Date date) throws SQLException {
+        if (date == null) {
+            statement.setNull(index, Types.TIMESTAMP);
+        } else {
+            statement.setTimestamp(index, new Timestamp(date.getTime()));
+        }
+    }
+
+    private void setDiffValues(PreparedStatement statement, DiffRow row) throws SQLException {
+        DiffFieldResult fieldResult = row.fieldResult;
+        statement.setString(1, row.logId);
+        statement.setInt(2, row.objectIndex);
+        statement.setInt(3, row.fieldIndex);
+        statement.setString(4, row.objectResult.getOldObjectName());
+        statement.setString(5, row.objectResult.getNewObjectName());
+        statement.setString(6, fieldResult.getFieldName());
+        statement.setString(
+                7,
+                fieldResult.getState() == null ? null : fieldResult.getState().name());
+        statement.setString(8, fieldResult.getOldTitle());
+        statement.setString(9, LoggerEventCodec.toText(fieldResult.getOldValue()));
+        statement.setString(10, fieldResult.getNewTitle());
+        statement.setString(11, LoggerEventCodec.toText(fieldResult.getNewValue()));
+    }
+
+    private static List<DiffRow> getDiffRows(List<LoggerEvent> events) {
+        List<DiffRow> rows = new ArrayList<>();
+        for (LoggerEvent event : events) {
+            List<DiffObjectResult> diffResults = event.getDiffResults();
+            if (CollectionUtils.isEmpty(diffResults)) {
+                continue;
+            }
+            for (int i = 0; i < diffResults.size(); i++) {
+                DiffObjectResult objectResult = diffResults.get(i);
+                List<DiffFieldResult> fieldResults = objectResult.getFieldResults();
+                if (CollectionUtils.isEmpty(fieldResults)) {
+                    continue;
+                }
+                for (int j = 0; j < fieldResults.size(); j++) {
+                    rows.add(new DiffRow(event.getLogId(), i, j, objectResult, fieldResults.get(j)));
+                }
+            }
+        }
+        return rows;
+    }
+
+    @RequiredArgsConstructor
+    private static class DiffRow {
+
+        private final String logId;
+        private final int objectIndex;
+        private final int fieldIndex;
+        private final DiffObjectResult objectResult;
+        private final DiffFieldResult fieldResult;
+    }
+}
@@ -0,0 +1,40 @@
+-- The tables of JdbcLoggerSink, adjust the types and lengths for your database if needed.
+
+CREATE TABLE logger_event
+(
+    log_id        VARCHAR(64)  NOT NULL PRIMARY KEY,
+    message       TEXT,
+    operator_id   VARCHAR(128),
+    business_id   VARCHAR(128),
+    category      VARCHAR(128),
+    tag           VARCHAR(128),
+    additional    TEXT,
+    create_time   TIMESTAMP,
+    take_time     BIGINT,
+    log_condition BOOLEAN      NOT NULL,
+    success       BOOLEAN      NOT NULL,
+    result        TEXT,
+    errors        TEXT,
+    event_count   INT          NOT NULL,
+    first_time    TIMESTAMP,
+    last_time     TIMESTAMP
+);
+
+CREATE INDEX idx_logger_event_business_id ON logger_event (business_id);
+CREATE INDEX idx_logger_event_create_time ON logger_event (create_time);
+
+CREATE TABLE logger_diff
+(
+    log_id          VARCHAR(64)  NOT NULL,
+    object_index    INT          NOT NULL,
+    field_index     INT          NOT NULL,
+    old_object_name VARCHAR(128),
+    new_object_name VARCHAR(128),
+    field_name      VARCHAR(128),
+    state           VARCHAR(16),
+    old_title       VARCHAR(128),
+    old_value       TEXT,
+    new_title       VARCHAR(128),
+    new_value       TEXT,
+    PRIMARY KEY (log_id, object_index, field_index)
+);
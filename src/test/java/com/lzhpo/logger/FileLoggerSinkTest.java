@@ -0,0 +1,245 @@
+/*
+ * Copyright lzhpo
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.lzhpo.logger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.*;
+
+import cn.hutool.json.JSONArray;
+import cn.hutool.json.JSONObject;
+import cn.hutool.json.JSONUtil;
+import com.lzhpo.logger.diff.DiffFieldResult;
+import com.lzhpo.logger.diff.DiffObjectResult;
+import com.lzhpo.logger.diff.DiffState;
+import com.lzhpo.logger.publisher.LoggerEventPublisher;
+import com.lzhpo.logger.sink.FileLoggerSink;
+import java.io.BufferedReader;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.boot.autoconfigure.AutoConfigurations;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+import org.springframework.util.unit.DataSize;
+
+/**
+ * @author lzhpo
+ */
+class FileLoggerSinkTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void writeJsonLines() throws Exception {
+        LoggerSinkProperties properties = createProperties();
+        properties.getFile().setForce(true);
+        // Smaller than a line, written directly
+        properties.getFile().setBufferSize(DataSize.ofBytes(64));
+        FileLoggerSink sink = new FileLoggerSink(properties);
+
+        LoggerEvent event = createEvent(0);
+        event.setMessage("中文 \"quoted\"\nline");
+        event.setErrors(Collections.singletonList(new IllegalStateException("failed")));
+        sink.onEvents(Collections.singletonList(event));
+        sink.onEvents(createEvents(1, 3));
+        sink.destroy();
+
+        List<String> lines = Files.readAllLines(sink.getPath(), StandardCharsets.UTF_8);
+        assertEquals(4, lines.size());
+        JSONObject json = JSONUtil.parseObj(lines.get(0));
+        assertEquals("log-0", json.getStr("logId"));
+        assertEquals("中文 \"quoted\"\nline", json.getStr("message"));
+        assertEquals(1000L, json.getLong("createTime"));
+        assertEquals(20L, json.getLong("takeTime"));
+        assertTrue(json.getBool("success"));
+        assertEquals(0, json.getJSONObject("result").getInt("id"));
+        assertEquals(
+                "java.lang.IllegalStateException: failed",
+                json.getJSONArray("errors").getStr(0));
+        assertTrue(json.isNull("tag"));
+
+        JSONArray fieldResults =
+                json.getJSONArray("diffResults").getJSONObject(0).getJSONArray("fieldResults");
+        assertEquals("status", fieldResults.getJSONObject(0).getStr("fieldName"));
+        assertEquals("UPDATED", fieldResults.getJSONObject(0).getStr("state"));
+        assertEquals(1, fieldResults.getJSONObject(0).getInt("oldValue"));
+        assertEquals("log-3", JSONUtil.parseObj(lines.get(3)).getStr("logId"));
+    }
+
+    @Test
+    void appendAfterRestart() throws Exception {
+        FileLoggerSink sink = new FileLoggerSink(createProperties());
+        sink.onEvents(createEvents(0, 2));
+        sink.destroy();
+
+        FileLoggerSink restarted = new FileLoggerSink(createProperties());
+        restarted.onEvents(createEvents(2, 2));
+        restarted.destroy();
+        assertEquals(4, Files.readAllLines(restarted.getPath()).size());
+    }
+
+    @Test
+    void rotateBySizeWithGzip() throws Exception {
+        LoggerSinkProperties properties = createProperties();
+        properties.getFile().setMaxFileSize(DataSize.ofKilobytes(1));
+        properties.getFile().setGzip(true);
+        FileLoggerSink sink = new FileLoggerSink(properties);
+        for (int i = 0; i < 20; i++) {
+            sink.onEvents(createEvents(i * 5, 5));
+        }
+        sink.destroy();
+
+        List<Path> rotated = listFiles(".gz");
+        assertThat(rotated).isNotEmpty();
+        assertThat(listFiles(".jsonl")).containsExactly(sink.getPath());
+
+        List<String> logIds = new ArrayList<>();
+        for (Path path : rotated) {
+            logIds.addAll(readLogIds(Files.newInputStream(path), true));
+        }
+        logIds.addAll(readLogIds(Files.newInputStream(sink.getPath()), false));
+        assertEquals(100, logIds.size());
+        assertEquals(100, logIds.stream().distinct().count());
+    }
+
+    @Test
+    void rotateByTime() throws Exception {
+        LoggerSinkProperties properties = createProperties();
+        properties.getFile().setRotationInterval(Duration.ofMillis(10));
+        FileLoggerSink sink = new FileLoggerSink(properties);
+        sink.onEvents(createEvents(0, 1));
+        TimeUnit.MILLISECONDS.sleep(20);
+        sink.onEvents(createEvents(1, 1));
+        sink.destroy();
+
+        assertEquals(2, listFiles("").size());
+        assertEquals(1, Files.readAllLines(sink.getPath()).size());
+    }
+
+    @Test
+    void writeNonFiniteNumbers() throws Exception {
+        FileLoggerSink sink = new FileLoggerSink(createProperties());
+        LoggerEvent event = createEvent(0);
+        event.setResult(Collections.singletonMap("rate", Double.NaN));
+        DiffFieldResult fieldResult =
+                event.getDiffResults().get(0).getFieldResults().get(0);
+        fieldResult.setOldValue(Double.POSITIVE_INFINITY);
+        fieldResult.setNewValue(Float.NEGATIVE_INFINITY);
+        sink.onEvents(Collections.singletonList(event));
+        sink.destroy();
+
+        // Still a valid JSON line
+        List<String> lines = Files.readAllLines(sink.getPath(), StandardCharsets.UTF_8);
+        JSONObject json = JSONUtil.parseObj(lines.get(0));
+        JSONObject field = json.getJSONArray("diffResults")
+                .getJSONObject(0)
+                .getJSONArray("fieldResults")
+                .getJSONObject(0);
+        assertEquals("Infinity", field.getStr("oldValue"));
+        assertEquals("-Infinity", field.getStr("newValue"));
+        assertEquals("{rate=NaN}", json.getStr("result"));
+    }
+
+    @Test
+    void writeThroughBatchListener() {
+        Path path = directory.resolve("context/events.jsonl");
+        new ApplicationContextRunner()
+                .withConfiguration(AutoConfigurations.of(LoggerAutoConfiguration.class))
+                .withPropertyValues(
+                        "logger.sink.file.enabled=true",
+                        "logger.sink.file.path=" + path,
+                        "logger.publisher.batch.max-latency=1h")
+                .run(context -> {
+                    assertThat(context).hasSingleBean(FileLoggerSink.class);
+                    LoggerEventPublisher publisher = context.getBean(LoggerEventPublisher.class);
+                    for (int i = 0; i < 3; i++) {
+                        publisher.publish(createEvent(i));
+                    }
+                });
+        // Flushed on shutdown, before the sink closes its file
+        assertDoesNotThrow(() -> assertEquals(3, Files.readAllLines(path).size()));
+    }
+
+    private List<Path> listFiles(String suffix) throws Exception {
+        try (Stream<Path> paths = Files.list(directory)) {
+            return paths.filter(path -> path.getFileName().toString().endsWith(suffix))
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+    }
+
+    private static List<String> readLogIds(InputStream input, boolean gzip) throws Exception {
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(gzip ? new GZIPInputStream(input) : input, StandardCharsets.UTF_8))) {
+            return reader.lines()
+                    .map(line -> JSONUtil.parseObj(line).getStr("logId"))
+                    .collect(Collectors.toList());
+        }
+    }
+
+    private LoggerSinkProperties createProperties() {
+        LoggerSinkProperties properties = new LoggerSinkProperties();
+        properties.getFile().setPath(directory.resolve("events.jsonl").toString());
+        return properties;
+    }
+
+    private List<LoggerEvent> createEvents(int from, int count) {
+        List<LoggerEvent> events = new ArrayList<>(count);
+        for (int i = from; i < from + count; i++) {
+            events.add(createEvent(i));
+        }
+        return events;
+    }
+
+    private LoggerEvent createEvent(int index) {
+        LoggerEvent event = new LoggerEvent(this);
+        event.setLogId("log-" + index);
+        event.setMessage("message " + index);
+        event.setOperatorId("1001");
+        event.setBusinessId("B" + index);
+        event.setCategory("order");
+        event.setCreateTime(new Date(1000L + index));
+        event.setTakeTime(20L);
+        event.setCondition(true);
+        event.setSuccess(true);
+        event.setResult(Collections.singletonMap("id", index));
+
+        DiffObjectResult diffResult = new DiffObjectResult();
+        diffResult.setOldObjectName("Order");
+        diffResult.setNewObjectName("Order");
+        diffResult.setFieldResults(Collections.singletonList(DiffFieldResult.builder()
+                .fieldName("status")
+                .state(DiffState.UPDATED)
+                .oldValue(1)
+                .newValue(2)
+                .build()));
+        event.setDiffResults(Collections.singletonList(diffResult));
+        return event;
+    }
+}
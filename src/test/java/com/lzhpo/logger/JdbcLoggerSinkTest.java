@@ -0,0 +1,213 @@
+/*
+ * Copyright lzhpo
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.lzhpo.logger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.lzhpo.logger.diff.DiffFieldResult;
+import com.lzhpo.logger.diff.DiffObjectResult;
+import com.lzhpo.logger.diff.DiffState;
+import com.lzhpo.logger.publisher.LoggerEventPublisher;
+import com.lzhpo.logger.sink.JdbcLoggerSink;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import javax.sql.DataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.autoconfigure.AutoConfigurations;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+
+/**
+ * @author lzhpo
+ */
+class JdbcLoggerSinkTest {
+
+    private EmbeddedDatabase database;
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void createDatabase() {
+        database = new EmbeddedDatabaseBuilder()
+                .setType(EmbeddedDatabaseType.H2)
+                .generateUniqueName(true)
+                .addScript("classpath:com/lzhpo/logger/sink/schema.sql")
+                .build();
+        jdbcTemplate = new JdbcTemplate(database);
+    }
+
+    @AfterEach
+    void shutdownDatabase() {
+        database.shutdown();
+    }
+
+    @Test
+    void writeEventsAndDiffs() {
+        LoggerSinkProperties properties = new LoggerSinkProperties();
+        // Split into multiple JDBC batches
+        properties.getJdbc().setBatchSize(3);
+        JdbcLoggerSink sink = new JdbcLoggerSink(jdbcTemplate, properties);
+
+        List<LoggerEvent> events = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            events.add(createEvent(i));
+        }
+        LoggerEvent failed = events.get(0);
+        failed.setSuccess(false);
+        failed.setTakeTime(null);
+        failed.setErrors(Arrays.asList(new IllegalStateException("first"), new IllegalStateException("second")));
+        sink.onEvents(events);
+
+        assertEquals(10, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM logger_event", Integer.class));
+        assertEquals(20, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM logger_diff", Integer.class));
+
+        Map<String, Object> row = jdbcTemplate.queryForMap("SELECT * FROM logger_event WHERE log_id = 'log-1'");
+        assertEquals("message 1", row.get("MESSAGE"));
+        assertEquals("1001", row.get("OPERATOR_ID"));
+        assertEquals("order", row.get("CATEGORY"));
+        assertEquals(20L, row.get("TAKE_TIME"));
+        assertEquals(true, row.get("SUCCESS"));
+        assertEquals("{\"id\":1}", row.get("RESULT"));
+        assertNull(row.get("ERRORS"));
+        assertEquals(1000L + 1, ((Timestamp) row.get("CREATE_TIME")).getTime());
+
+        Map<String, Object> failedRow = jdbcTemplate.queryForMap("SELECT * FROM logger_event WHERE log_id = 'log-0'");
+        assertEquals(false, failedRow.get("SUCCESS"));
+        assertNull(failedRow.get("TAKE_TIME"));
+        assertEquals(
+                "java.lang.IllegalStateException: first\njava.lang.IllegalStateException: second",
+                failedRow.get("ERRORS"));
+
+        Map<String, Object> diffRow = jdbcTemplate.queryForMap(
+                "SELECT * FROM logger_diff WHERE log_id = 'log-1' AND object_index = 0 AND field_index = 1");
+        assertEquals("name", diffRow.get("FIELD_NAME"));
+        assertEquals("UPDATED", diffRow.get("STATE"));
+        assertEquals("Old 1", diffRow.get("OLD_VALUE"));
+        assertEquals("New 1", diffRow.get("NEW_VALUE"));
+    }
+
+    @Test
+    void writeEventsWithDiffsAtomically() {
+        JdbcLoggerSink sink = new JdbcLoggerSink(jdbcTemplate, new LoggerSinkProperties());
+        List<LoggerEvent> events = Arrays.asList(createEvent(0), createEvent(1));
+        // Longer than the field_name column, the diff rows cannot be written
+        events.get(1)
+                .getDiffResults()
+                .get(0)
+                .getFieldResults()
+                .get(0)
+                .setFieldName(String.join("", Collections.nCopies(200, "x")));
+
+        assertThrows(DataIntegrityViolationException.class, () -> sink.onEvents(events));
+        assertEquals(0, countEvents());
+        assertEquals(0, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM logger_diff", Integer.class));
+    }
+
+    @Test
+    void skipWrittenEvents() {
+        JdbcLoggerSink sink = new JdbcLoggerSink(jdbcTemplate, new LoggerSinkProperties());
+        List<LoggerEvent> events = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            events.add(createEvent(i));
+        }
+        sink.onEvents(events.subList(0, 5));
+
+        // Delivered again with new events, e.g. replayed by the spool after a crash
+        sink.onEvents(events.subList(3, 8));
+        assertEquals(8, countEvents());
+        assertEquals(16, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM logger_diff", Integer.class));
+    }
+
+    @Test
+    void writeThroughBatchListener() {
+        new ApplicationContextRunner()
+                .withConfiguration(AutoConfigurations.of(LoggerAutoConfiguration.class))
+                .withBean(DataSource.class, () -> database)
+                .withBean(JdbcTemplate.class, () -> jdbcTemplate)
+                .withPropertyValues("logger.sink.jdbc.enabled=true", "logger.publisher.batch.max-batch-size=4")
+                .run(context -> {
+                    assertThat(context).hasSingleBean(JdbcLoggerSink.class);
+                    LoggerEventPublisher publisher = context.getBean(LoggerEventPublisher.class);
+                    for (int i = 0; i < 10; i++) {
+                        publisher.publish(createEvent(i));
+                    }
+                    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+                    while (countEvents() < 8 && System.nanoTime() - deadline < 0) {
+                        TimeUnit.MILLISECONDS.sleep(5);
+                    }
+                    assertEquals(8, countEvents());
+                });
+        // The rest are flushed on shutdown
+        assertEquals(10, countEvents());
+    }
+
+    @Test
+    void disabledByDefault() {
+        new ApplicationContextRunner()
+                .withConfiguration(AutoConfigurations.of(LoggerAutoConfiguration.class))
+                .withBean(JdbcTemplate.class, () -> jdbcTemplate)
+                .run(context -> assertThat(context).doesNotHaveBean(JdbcLoggerSink.class));
+    }
+
+    private int countEvents() {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM logger_event", Integer.class);
+    }
+
+    private LoggerEvent createEvent(int index) {
+        LoggerEvent event = new LoggerEvent(this);
+        event.setLogId("log-" + index);
+        event.setMessage("message " + index);
+        event.setOperatorId("1001");
+        event.setBusinessId("B" + index);
+        event.setCategory("order");
+        event.setCreateTime(new Date(1000L + index));
+        event.setTakeTime(20L);
+        event.setCondition(true);
+        event.setSuccess(true);
+        event.setResult(Collections.singletonMap("id", index));
+
+        DiffObjectResult diffResult = new DiffObjectResult();
+        diffResult.setOldObjectName("Order");
+        diffResult.setNewObjectName("Order");
+        diffResult.setFieldResults(Arrays.asList(
+                DiffFieldResult.builder()
+                        .fieldName("status")
+                        .state(DiffState.UPDATED)
+                        .oldValue(1)
+                        .newValue(2)
+                        .build(),
+                DiffFieldResult.builder()
+                        .fieldName("name")
+                        .state(DiffState.UPDATED)
+                        .oldValue("Old " + index)
+                        .newValue("New " + index)
+                        .build()));
+        event.setDiffResults(Collections.singletonList(diffResult));
+        return event;
+    }
+}
@@ -48,6 +48,12 @@ public class LoggerAction {
         return 23;
     }
 
+    @Logger(message = "'订单' + #orderId + '状态从' + #status + '修改为' + #result + '，备注' + #p2")
+    public String updateOrderStatus(String orderId, String status, String result) {
+        LoggerContextHolder.putVariable("status", "已发货");
+        return "已完成";
+    }
+
     @Logger(message = "'当前时间为' + T(java.time.LocalDateTime).now()")
     public void systemDate() {
         // NOP
@@ -107,6 +113,21 @@ public class LoggerAction {
                 .build();
     }
 
+    @Logger(condition = "false", message = "'查询订单' + #orderId")
+    public void findOrder(String orderId) {
+        // NOP
+    }
+
+    @Logger(category = "'Operation Log'", tag = "'Create Order'", message = "'创建订单' + #orderId")
+    public void createOrder(String orderId) {
+        // NOP
+    }
+
+    @Logger(condition = "#orderId != null", message = "'取消订单' + #orderId")
+    public void cancelOrder(String orderId) {
+        // NOP
+    }
+
     @LoggerComponent
     public static class LoggerFunctions {
 
@@ -17,7 +17,10 @@ package com.lzhpo.logger;
 
 import static org.junit.jupiter.api.Assertions.*;
 
+import com.lzhpo.logger.context.LoggerExpressionCache;
+import com.lzhpo.logger.context.LoggerExpressionEvaluator;
 import com.lzhpo.logger.domain.*;
+import com.lzhpo.logger.publisher.LoggerEventPublisher;
 import lombok.extern.slf4j.Slf4j;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
@@ -40,6 +43,12 @@ class LoggerActionTest {
     @Autowired
     private LoggerAction loggerAction;
 
+    @Autowired
+    private LoggerExpressionEvaluator loggerExpressionEvaluator;
+
+    @Autowired
+    private LoggerEventPublisher loggerEventPublisher;
+
     @BeforeEach
     public void before() {
         LoggerTestSupport.setLoggerEvent(new LoggerEvent(this));
@@ -250,4 +259,67 @@ class LoggerActionTest {
         assertTrue(message.contains("[status: ] has been deleted"));
         assertTrue(message.contains("[role: admin] has been added"));
     }
+
+    @Test
+    void variablesHideArguments() {
+        loggerAction.updateOrderStatus("1", "待发货", "已取消");
+
+        // #result and the variables put in the method hide the arguments of the same name
+        String message = LoggerTestSupport.getMessage();
+        assertEquals("订单1状态从已发货修改为已完成，备注已取消", message);
+    }
+
+    @Test
+    void sharedExpressionCache() {
+        LoggerExpressionCache expressionCache = loggerExpressionEvaluator.getExpressionCache();
+        loggerAction.updateAddress("朝阳小区1号", "光明小区1号");
+        long missCount = expressionCache.getMissCount();
+        long hitCount = expressionCache.getHitCount();
+        // Wait for the first event, events may be published out of order by multiple threads
+        LoggerTestSupport.getLoggerEvent();
+
+        loggerAction.updateAddress("光明小区1号", "幸福小区1号");
+
+        String message = LoggerTestSupport.getMessage();
+        assertTrue(message.contains("将地址从光明小区1号修改为幸福小区1号"));
+        assertTrue(expressionCache.size() > 0);
+        // The metadata resolves its expressions through the cache on every invocation
+        assertEquals(missCount, expressionCache.getMissCount());
+        assertTrue(expressionCache.getHitCount() > hitCount);
+    }
+
+    @Test
+    void constantFalseCondition() {
+        // Wait for the events of the previous tests
+        LoggerEvent placeholder = LoggerTestSupport.getLoggerEvent();
+        LoggerExpressionCache expressionCache = loggerExpressionEvaluator.getExpressionCache();
+        long lookupCount = expressionCache.getHitCount() + expressionCache.getMissCount();
+        long publishedCount = loggerEventPublisher.getPublishedCount();
+
+        loggerAction.findOrder("123");
+
+        // Neither the condition nor the message is evaluated, and no event is published
+        assertEquals(lookupCount, expressionCache.getHitCount() + expressionCache.getMissCount());
+        assertSame(placeholder, LoggerTestSupport.getLoggerEvent());
+        assertEquals(publishedCount, loggerEventPublisher.getPublishedCount());
+    }
+
+    @Test
+    void literalAttributes() {
+        loggerAction.createOrder("123");
+
+        LoggerEvent event = LoggerTestSupport.getLoggerEvent();
+        assertEquals("创建订单123", event.getMessage());
+        assertEquals("Operation Log", event.getCategory());
+        assertEquals("Create Order", event.getTag());
+    }
+
+    @Test
+    void preludeCondition() {
+        loggerAction.cancelOrder(null);
+        assertNull(LoggerTestSupport.getLoggerEvent().getMessage());
+
+        loggerAction.cancelOrder("123");
+        assertEquals("取消订单123", LoggerTestSupport.getMessage());
+    }
 }
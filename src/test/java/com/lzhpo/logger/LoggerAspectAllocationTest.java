@@ -0,0 +1,227 @@
+/*
+ * Copyright lzhpo
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.lzhpo.logger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import com.lzhpo.logger.aggregation.LoggerEventAggregator;
+import com.lzhpo.logger.annotation.Logger;
+import com.lzhpo.logger.context.LoggerExpressionEvaluator;
+import com.lzhpo.logger.publisher.ExecutorLoggerEventPublisher;
+import com.lzhpo.logger.sampling.LoggerSampling;
+import com.lzhpo.logger.shedding.LoggerLoadShedding;
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.AccessibleObject;
+import java.lang.reflect.Method;
+import org.aopalliance.intercept.MethodInvocation;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.junit.jupiter.api.Test;
+import org.springframework.aop.ProxyMethodInvocation;
+import org.springframework.aop.aspectj.MethodInvocationProceedingJoinPoint;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.expression.spel.SpelCompilerMode;
+
+/**
+ * Make sure the invocations which never generate log allocate nothing beyond their budgets.
+ *
+ * <p>Spring AOP creates a {@link MethodInvocationProceedingJoinPoint} for every call, so each measured call does the
+ * same. The bytes allocated by Spring AOP for any around advice, the join point and its signature, are measured by a
+ * pass-through advice and subtracted. The reused {@link NullMethodInvocation} does not clone itself on proceed as
+ * {@code ReflectiveMethodInvocation} does, that clone is also allocated by Spring AOP for any around advice.
+ *
+ * @author lzhpo
+ */
+class LoggerAspectAllocationTest {
+
+    private static final int WARMUP_INVOCATIONS = 20000;
+    private static final int MEASURED_INVOCATIONS = 10000;
+
+    /**
+     * The prelude condition reads {@link ProceedingJoinPoint#getArgs()}, which clones the arguments once per join
+     * point, and binds the target as the root object, a {@code TypedValue}. Two small objects per invocation.
+     */
+    private static final long PRELUDE_CONDITION_BYTES = 64;
+
+    private final com.sun.management.ThreadMXBean threadMXBean =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    /**
+     * The join point of the pass-through advice, escaped so that it is allocated as the aspect's.
+     */
+    private ProceedingJoinPoint lastJoinPoint;
+
+    @Test
+    void constantFalseCondition() throws Throwable {
+        assertEquals(0, measureBytesPerInvocation("findOrder"));
+    }
+
+    @Test
+    void preludeFalseCondition() throws Throwable {
+        long bytes = measureBytesPerInvocation("cancelOrder");
+        assertTrue(bytes <= PRELUDE_CONDITION_BYTES, () -> bytes + " bytes allocated per invocation.");
+    }
+
+    @Test
+    void unsampledInvocation() throws Throwable {
+        assertEquals(0, measureBytesPerInvocation("searchOrder"));
+    }
+
+    /**
+     * Measure the bytes allocated by {@link LoggerAspect} per invocation, excluding the bytes allocated by Spring AOP.
+     *
+     * @param methodName the name of annotated method
+     * @return the bytes per invocation
+     */
+    private long measureBytesPerInvocation(String methodName) throws Throwable {
+        assumeTrue(threadMXBean.isThreadAllocatedMemorySupported());
+        threadMXBean.setThreadAllocatedMemoryEnabled(true);
+
+        LoggerExpressionProperties properties = new LoggerExpressionProperties();
+        properties.setCompilerMode(SpelCompilerMode.IMMEDIATE);
+        LoggerSamplingProperties samplingProperties = new LoggerSamplingProperties();
+        LoggerSamplingProperties.Rule rule = new LoggerSamplingProperties.Rule();
+        rule.setRate(0);
+        samplingProperties.getRules().put("never", rule);
+        ExecutorLoggerEventPublisher publisher =
+                new ExecutorLoggerEventPublisher(event -> {}, new LoggerPublisherProperties());
+        try {
+            LoggerAspect aspect = new LoggerAspect(
+                    new StaticListableBeanFactory().getBeanProvider(OperatorAware.class),
+                    new LoggerExpressionEvaluator(properties),
+                    publisher,
+                    new LoggerSampling(samplingProperties),
+                    new LoggerLoadShedding(new LoggerSheddingProperties(), publisher),
+                    new LoggerEventAggregator(new LoggerAggregationProperties(), publisher));
+
+            Method method = getClass().getDeclaredMethod(methodName, String.class);
+            Logger logger = method.getAnnotation(Logger.class);
+            ProxyMethodInvocation invocation = new NullMethodInvocation(this, method);
+
+            for (int i = 0; i < WARMUP_INVOCATIONS; i++) {
+                passThrough(new MethodInvocationProceedingJoinPoint(invocation));
+                aspect.doAround(new MethodInvocationProceedingJoinPoint(invocation), logger);
+            }
+
+            long threadId = Thread.currentThread().getId();
+            long allocatedBytes = threadMXBean.getThreadAllocatedBytes(threadId);
+            for (int i = 0; i < MEASURED_INVOCATIONS; i++) {
+                passThrough(new MethodInvocationProceedingJoinPoint(invocation));
+            }
+            long passThroughBytes = threadMXBean.getThreadAllocatedBytes(threadId) - allocatedBytes;
+
+            allocatedBytes = threadMXBean.getThreadAllocatedBytes(threadId);
+            for (int i = 0; i < MEASURED_INVOCATIONS; i++) {
+                aspect.doAround(new MethodInvocationProceedingJoinPoint(invocation), logger);
+            }
+            long aspectBytes = threadMXBean.getThreadAllocatedBytes(threadId) - allocatedBytes;
+            return Math.max(0, aspectBytes - passThroughBytes) / MEASURED_INVOCATIONS;
+        } finally {
+            publisher.destroy();
+        }
+    }
+
+    private Object passThrough(ProceedingJoinPoint joinPoint) throws Throwable {
+        lastJoinPoint = joinPoint;
+        joinPoint.getSignature();
+        return joinPoint.proceed();
+    }
+
+    @Logger(condition = "false", message = "'查询订单' + #orderId")
+    public void findOrder(String orderId) {
+        // NOP
+    }
+
+    @Logger(condition = "#orderId != null", message = "'取消订单' + #orderId")
+    public void cancelOrder(String orderId) {
+        // NOP
+    }
+
+    @Logger(message = "'搜索订单' + #orderId", sampling = "never")
+    public void searchOrder(String orderId) {
+        // NOP
+    }
+
+    /**
+     * A reusable method invocation with null argument, proceeds without invoking the method.
+     */
+    private static class NullMethodInvocation implements ProxyMethodInvocation {
+
+        private final Object target;
+        private final Method method;
+        private Object[] arguments = new Object[1];
+
+        private NullMethodInvocation(Object target, Method method) {
+            this.target = target;
+            this.method = method;
+        }
+
+        @Override
+        public Object getProxy() {
+            return target;
+        }
+
+        @Override
+        public Object getThis() {
+            return target;
+        }
+
+        @Override
+        public Method getMethod() {
+            return method;
+        }
+
+        @Override
+        public Object[] getArguments() {
+            return arguments;
+        }
+
+        @Override
+        public void setArguments(Object... arguments) {
+            this.arguments = arguments;
+        }
+
+        @Override
+        public Object proceed() {
+            return null;
+        }
+
+        @Override
+        public AccessibleObject getStaticPart() {
+            return method;
+        }
+
+        @Override
+        public MethodInvocation invocableClone() {
+            return this;
+        }
+
+        @Override
+        public MethodInvocation invocableClone(Object... arguments) {
+            return this;
+        }
+
+        @Override
+        public void setUserAttribute(String key, Object value) {
+            // NOP
+        }
+
+        @Override
+        public Object getUserAttribute(String key) {
+            return null;
+        }
+    }
+}
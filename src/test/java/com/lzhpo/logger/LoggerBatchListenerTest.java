@@ -0,0 +1,159 @@
+/*
+ * Copyright lzhpo
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.lzhpo.logger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.lzhpo.logger.publisher.LoggerBatchAccumulator;
+import com.lzhpo.logger.publisher.LoggerEventPublisher;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.autoconfigure.AutoConfigurations;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+
+/**
+ * @author lzhpo
+ */
+class LoggerBatchListenerTest {
+
+    @Test
+    void flushBySize() {
+        List<List<LoggerEvent>> batches = new CopyOnWriteArrayList<>();
+        LoggerBatchAccumulator accumulator =
+                new LoggerBatchAccumulator(singletonListener(batches), 2, Duration.ofMinutes(1));
+
+        accumulator.add(new LoggerEvent(this));
+        assertEquals(1, accumulator.getPendingCount());
+        accumulator.add(new LoggerEvent(this));
+        accumulator.add(new LoggerEvent(this));
+
+        await(() -> batches.size() == 1);
+        assertEquals(2, batches.get(0).size());
+        await(() -> accumulator.getPendingCount() == 1);
+
+        assertTrue(accumulator.close(Duration.ofSeconds(5)));
+        assertEquals(2, batches.size());
+        assertEquals(1, batches.get(1).size());
+    }
+
+    @Test
+    void flushByLatency() throws Exception {
+        CountDownLatch delivered = new CountDownLatch(1);
+        LoggerBatchAccumulator accumulator = new LoggerBatchAccumulator(
+                Collections.singletonList(events -> delivered.countDown()), 100, Duration.ofMillis(50));
+
+        accumulator.add(new LoggerEvent(this));
+        assertTrue(delivered.await(5, TimeUnit.SECONDS));
+        await(() -> accumulator.getPendingCount() == 0);
+        accumulator.close(Duration.ofSeconds(5));
+    }
+
+    @Test
+    void deliverInOrderFromOneThread() throws Exception {
+        int producers = 4;
+        int eventsPerProducer = 2000;
+        List<LoggerEvent> received = Collections.synchronizedList(new ArrayList<>());
+        Set<String> threads = ConcurrentHashMap.newKeySet();
+        AtomicInteger active = new AtomicInteger();
+        AtomicInteger maxActive = new AtomicInteger();
+        LoggerBatchListener listener = events -> {
+            maxActive.accumulateAndGet(active.incrementAndGet(), Math::max);
+            threads.add(Thread.currentThread().getName());
+            received.addAll(events);
+            active.decrementAndGet();
+        };
+        // Full batches and time-based batches interleave
+        LoggerBatchAccumulator accumulator =
+                new LoggerBatchAccumulator(Collections.singletonList(listener), 16, Duration.ofMillis(1));
+
+        List<Thread> workers = new ArrayList<>();
+        for (int p = 0; p < producers; p++) {
+            String producer = String.valueOf(p);
+            Thread worker = new Thread(() -> {
+                for (int i = 0; i < eventsPerProducer; i++) {
+                    LoggerEvent event = new LoggerEvent(this);
+                    event.setBusinessId(producer);
+                    event.setLogId(String.valueOf(i));
+                    accumulator.add(event);
+                }
+            });
+            workers.add(worker);
+            worker.start();
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        assertTrue(accumulator.close(Duration.ofSeconds(5)));
+
+        assertEquals(producers * eventsPerProducer, received.size());
+        assertEquals(1, maxActive.get());
+        assertEquals(1, threads.size());
+        Map<String, Integer> lastSequences = new HashMap<>();
+        for (LoggerEvent event : received) {
+            int sequence = Integer.parseInt(event.getLogId());
+            int last = lastSequences.getOrDefault(event.getBusinessId(), -1);
+            assertEquals(last + 1, sequence);
+            lastSequences.put(event.getBusinessId(), sequence);
+        }
+    }
+
+    @Test
+    void flushOnShutdown() {
+        List<List<LoggerEvent>> batches = new CopyOnWriteArrayList<>();
+        new ApplicationContextRunner()
+                .withConfiguration(AutoConfigurations.of(LoggerAutoConfiguration.class))
+                .withBean(LoggerBatchListener.class, () -> batches::add)
+                .withPropertyValues("logger.publisher.batch.max-latency=1h")
+                .run(context -> {
+                    LoggerEventPublisher publisher = context.getBean(LoggerEventPublisher.class);
+                    for (int i = 0; i < 3; i++) {
+                        publisher.publish(new LoggerEvent(this));
+                    }
+                });
+
+        assertEquals(1, batches.size());
+        assertEquals(3, batches.get(0).size());
+    }
+
+    private static void await(BooleanSupplier condition) {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "Condition not met in 5 seconds.");
+            try {
+                Thread.sleep(10);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                fail(e);
+            }
+        }
+    }
+
+    private static List<LoggerBatchListener> singletonListener(List<List<LoggerEvent>> batches) {
+        return Collections.singletonList(batches::add);
+    }
+}
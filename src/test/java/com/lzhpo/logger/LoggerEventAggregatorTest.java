@@ -0,0 +1,168 @@
+/*
+ * Copyright lzhpo
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.lzhpo.logger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.lzhpo.logger.aggregation.LoggerEventAggregator;
+import com.lzhpo.logger.aggregation.LoggerTimeWheel;
+import com.lzhpo.logger.annotation.Logger;
+import com.lzhpo.logger.publisher.LoggerEventPublisher;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.autoconfigure.AutoConfigurations;
+import org.springframework.boot.autoconfigure.aop.AopAutoConfiguration;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+import org.springframework.context.ApplicationListener;
+
+/**
+ * @author lzhpo
+ */
+class LoggerEventAggregatorTest {
+
+    @Test
+    void expireByTimeWheel() throws Exception {
+        long tickNanos = TimeUnit.MILLISECONDS.toNanos(10);
+        LoggerTimeWheel<String> timeWheel = new LoggerTimeWheel<>(tickNanos, TimeUnit.MILLISECONDS.toNanos(100));
+        Map<String, Long> expiredNanos = new ConcurrentHashMap<>();
+        long startNanos = System.nanoTime();
+        timeWheel.schedule("b", TimeUnit.MILLISECONDS.toNanos(80));
+        timeWheel.schedule("a", TimeUnit.MILLISECONDS.toNanos(30));
+
+        assertTrue(await(() -> {
+            timeWheel.advance(task -> expiredNanos.put(task, System.nanoTime() - startNanos));
+            return expiredNanos.size() == 2;
+        }));
+        assertTrue(expiredNanos.get("a") >= TimeUnit.MILLISECONDS.toNanos(30));
+        assertTrue(expiredNanos.get("b") >= TimeUnit.MILLISECONDS.toNanos(80));
+        assertTrue(expiredNanos.get("a") < expiredNanos.get("b"));
+    }
+
+    @Test
+    void collapseIdenticalEvents() {
+        new ApplicationContextRunner()
+                .withConfiguration(AutoConfigurations.of(AopAutoConfiguration.class, LoggerAutoConfiguration.class))
+                .withBean(AggregatedAction.class)
+                .withBean(EventCollector.class)
+                .withPropertyValues(
+                        "logger.aggregation.enabled=true",
+                        "logger.aggregation.window=200ms",
+                        "logger.aggregation.tick=10ms")
+                .run(context -> {
+                    AggregatedAction action = context.getBean(AggregatedAction.class);
+                    for (int i = 0; i < 5; i++) {
+                        action.pollOrder("1");
+                        TimeUnit.MILLISECONDS.sleep(5);
+                    }
+                    action.pollOrder("2");
+                    assertThrows(IllegalStateException.class, () -> action.pollOrder(null));
+                    assertThrows(IllegalStateException.class, () -> action.pollOrder(null));
+
+                    LoggerEventAggregator aggregator = context.getBean(LoggerEventAggregator.class);
+                    assertEquals(3, aggregator.getPendingCount());
+                    assertEquals(5, aggregator.getCollapsedCount());
+
+                    List<LoggerEvent> events = context.getBean(EventCollector.class).events;
+                    assertTrue(await(() -> events.size() >= 3));
+                    assertEquals(0, aggregator.getPendingCount());
+                    List<LoggerEvent> sorted = events.stream()
+                            .sorted(Comparator.comparing(LoggerEvent::getMessage))
+                            .collect(Collectors.toList());
+                    assertEquals(
+                            Arrays.asList("轮询订单1", "轮询订单2", "轮询订单null"),
+                            sorted.stream().map(LoggerEvent::getMessage).collect(Collectors.toList()));
+
+                    LoggerEvent collapsed = sorted.get(0);
+                    assertEquals(5, collapsed.getCount());
+                    assertEquals(collapsed.getCreateTime(), collapsed.getFirstTime());
+                    assertTrue(collapsed.getLastTime().getTime()
+                                    - collapsed.getFirstTime().getTime()
+                            >= 20);
+
+                    LoggerEvent single = sorted.get(1);
+                    assertEquals(1, single.getCount());
+                    assertNull(single.getFirstTime());
+
+                    LoggerEvent failed = sorted.get(2);
+                    assertFalse(failed.isSuccess());
+                    assertEquals(2, failed.getCount());
+                });
+    }
+
+    @Test
+    void publishOnShutdown() {
+        List<LoggerEvent> events = new ArrayList<>();
+        new ApplicationContextRunner()
+                .withConfiguration(AutoConfigurations.of(AopAutoConfiguration.class, LoggerAutoConfiguration.class))
+                .withBean(AggregatedAction.class)
+                .withBean(EventCollector.class)
+                .withPropertyValues("logger.aggregation.enabled=true", "logger.aggregation.window=1h")
+                .run(context -> {
+                    EventCollector collector = context.getBean(EventCollector.class);
+                    AggregatedAction action = context.getBean(AggregatedAction.class);
+                    for (int i = 0; i < 3; i++) {
+                        action.pollOrder("1");
+                    }
+                    assertEquals(0, context.getBean(LoggerEventPublisher.class).getPublishedCount());
+                    context.close();
+                    events.addAll(collector.events);
+                });
+
+        assertEquals(1, events.size());
+        assertEquals(3, events.get(0).getCount());
+    }
+
+    private static boolean await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean()) {
+            if (System.nanoTime() - deadline > 0) {
+                return false;
+            }
+            TimeUnit.MILLISECONDS.sleep(1);
+        }
+        return true;
+    }
+
+    static class EventCollector implements ApplicationListener<LoggerEvent> {
+
+        private final List<LoggerEvent> events = new CopyOnWriteArrayList<>();
+
+        @Override
+        public void onApplicationEvent(LoggerEvent event) {
+            events.add(event);
+        }
+    }
+
+    static class AggregatedAction {
+
+        @Logger(message = "'轮询订单' + #orderId", businessId = "#orderId")
+        public String pollOrder(String orderId) {
+            if (orderId == null) {
+                throw new IllegalStateException("The orderId must not be null.");
+            }
+            return orderId;
+        }
+    }
+}
@@ -0,0 +1,293 @@
+/*
+ * Copyright lzhpo
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.lzhpo.logger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import cn.hutool.json.JSONUtil;
+import com.lzhpo.logger.diff.DiffFieldResult;
+import com.lzhpo.logger.diff.DiffObjectResult;
+import com.lzhpo.logger.diff.DiffState;
+import com.lzhpo.logger.publisher.LoggerEventCodec;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+
+/**
+ * @author lzhpo
+ */
+@Slf4j
+class LoggerEventCodecTest {
+
+    private static final int BATCH_SIZE = 100;
+    private static final int ROUNDS = 50;
+
+    @Test
+    void roundTrip() {
+        LoggerEvent event = createEvent(0);
+        event.setMessage("中文 message");
+        event.setAdditional(null);
+        event.setResult(Collections.singletonMap("id", 1));
+        event.setErrors(Arrays.asList(new IllegalStateException("failed"), null));
+
+        LoggerEvent decoded = LoggerEventCodec.decode(LoggerEventCodec.encode(event), this);
+        assertSame(this, decoded.getSource());
+        assertEquals(event.getLogId(), decoded.getLogId());
+        assertEquals("中文 message", decoded.getMessage());
+        assertEquals(event.getOperatorId(), decoded.getOperatorId());
+        assertEquals(event.getBusinessId(), decoded.getBusinessId());
+        assertEquals(event.getCategory(), decoded.getCategory());
+        assertEquals(event.getTag(), decoded.getTag());
+        assertNull(decoded.getAdditional());
+        assertEquals(event.getCreateTime(), decoded.getCreateTime());
+        assertEquals(event.getTakeTime(), decoded.getTakeTime());
+        assertTrue(decoded.isCondition());
+        assertFalse(decoded.isSuccess());
+        assertEquals("{\"id\":1}", decoded.getResult());
+        assertEquals(
+                "java.lang.IllegalStateException: failed",
+                decoded.getErrors().get(0).getMessage());
+        assertNull(decoded.getErrors().get(1));
+
+        DiffObjectResult diffResult = decoded.getDiffResults().get(0);
+        assertEquals("old", diffResult.getOldObjectName());
+        assertEquals("new", diffResult.getNewObjectName());
+        DiffFieldResult fieldResult = diffResult.getFieldResults().get(0);
+        assertEquals("status", fieldResult.getFieldName());
+        assertEquals(DiffState.UPDATED, fieldResult.getState());
+        assertEquals("Status", fieldResult.getOldTitle());
+        assertEquals("1", fieldResult.getOldValue());
+        assertEquals("Status", fieldResult.getNewTitle());
+        assertEquals("2", fieldResult.getNewValue());
+    }
+
+    @Test
+    void roundTripNulls() {
+        LoggerEvent event = new LoggerEvent(this);
+        LoggerEvent decoded = LoggerEventCodec.decode(LoggerEventCodec.encode(event), this);
+        assertNull(decoded.getLogId());
+        assertNull(decoded.getOperatorId());
+        assertNull(decoded.getCategory());
+        assertNull(decoded.getCreateTime());
+        assertNull(decoded.getTakeTime());
+        assertNull(decoded.getResult());
+        assertNull(decoded.getErrors());
+        assertNull(decoded.getDiffResults());
+        assertFalse(decoded.isCondition());
+    }
+
+    @Test
+    void roundTripAggregated() {
+        LoggerEvent event = createEvent(0);
+        event.setCount(3);
+        event.setFirstTime(event.getCreateTime());
+        event.setLastTime(new Date(event.getCreateTime().getTime() + 100));
+        List<LoggerEvent> decoded =
+                LoggerEventCodec.decodeBatch(LoggerEventCodec.encodeBatch(Arrays.asList(event, createEvent(1))), this);
+
+        assertEquals(3, decoded.get(0).getCount());
+        assertEquals(event.getFirstTime(), decoded.get(0).getFirstTime());
+        assertEquals(event.getLastTime(), decoded.get(0).getLastTime());
+        assertEquals(1, decoded.get(1).getCount());
+        assertNull(decoded.get(1).getFirstTime());
+        assertNull(decoded.get(1).getLastTime());
+    }
+
+    @Test
+    void roundTripBatchInDirectBuffer() {
+        List<LoggerEvent> events = createEvents();
+        events.get(1).setCreateTime(new Date(0));
+
+        // Grown from a small direct buffer
+        ByteBuffer buffer = LoggerEventCodec.encodeBatch(events, ByteBuffer.allocateDirect(16));
+        assertTrue(buffer.isDirect());
+        buffer.flip();
+        List<LoggerEvent> decoded = LoggerEventCodec.decodeBatch(buffer, this);
+        assertFalse(buffer.hasRemaining());
+
+        assertEquals(events.size(), decoded.size());
+        for (int i = 0; i < events.size(); i++) {
+            assertEquals(events.get(i).getLogId(), decoded.get(i).getLogId());
+            assertEquals(events.get(i).getCategory(), decoded.get(i).getCategory());
+            assertEquals(events.get(i).getOperatorId(), decoded.get(i).getOperatorId());
+            assertEquals(events.get(i).getCreateTime(), decoded.get(i).getCreateTime());
+            assertEquals(getFieldName(events.get(i)), getFieldName(decoded.get(i)));
+        }
+    }
+
+    @Test
+    void decodeVersion1() throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream output = new DataOutputStream(bytes)) {
+            output.writeByte(1);
+            for (String value : Arrays.asList("1", "message", "1001", "B1", "order", null, null)) {
+                writeVersion1String(output, value);
+            }
+            output.writeLong(1000);
+            output.writeLong(Long.MIN_VALUE);
+            output.writeBoolean(true);
+            output.writeBoolean(true);
+            writeVersion1String(output, "result");
+            output.writeInt(-1);
+            output.writeInt(-1);
+        }
+
+        LoggerEvent decoded = LoggerEventCodec.decode(bytes.toByteArray(), this);
+        assertEquals("message", decoded.getMessage());
+        assertEquals("order", decoded.getCategory());
+        assertNull(decoded.getTag());
+        assertEquals(new Date(1000), decoded.getCreateTime());
+        assertNull(decoded.getTakeTime());
+        assertTrue(decoded.isSuccess());
+        assertEquals("result", decoded.getResult());
+        assertNull(decoded.getErrors());
+    }
+
+    @Test
+    void rejectMalformed() {
+        byte[] bytes = LoggerEventCodec.encode(createEvent(0));
+        assertThrows(
+                IllegalArgumentException.class,
+                () -> LoggerEventCodec.decode(Arrays.copyOf(bytes, bytes.length / 2), this));
+        bytes[0] = 9;
+        assertThrows(IllegalArgumentException.class, () -> LoggerEventCodec.decode(bytes, this));
+    }
+
+    @Test
+    void smallerThanJson() {
+        List<LoggerEvent> events = createEvents();
+        int jsonSize = 0;
+        int singleSize = 0;
+        for (LoggerEvent event : events) {
+            jsonSize += toJson(event).length;
+            singleSize += LoggerEventCodec.encode(event).length;
+        }
+        int batchSize = LoggerEventCodec.encodeBatch(events).length;
+
+        log.info(
+                "Encoded {} events, JSON: {} bytes, single: {} bytes, batch: {} bytes",
+                events.size(),
+                jsonSize,
+                singleSize,
+                batchSize);
+        assertTrue(singleSize * 2 < jsonSize);
+        // The repeating values are written once per batch
+        assertTrue(batchSize < singleSize * 3 / 4);
+    }
+
+    @Test
+    void fasterThanJson() {
+        List<LoggerEvent> events = createEvents();
+        long jsonNanos = Long.MAX_VALUE;
+        long codecNanos = Long.MAX_VALUE;
+        // The best of rounds, after warming up with the previous rounds
+        for (int i = 0; i < ROUNDS; i++) {
+            long startNanos = System.nanoTime();
+            for (LoggerEvent event : events) {
+                toJson(event);
+            }
+            jsonNanos = Math.min(jsonNanos, System.nanoTime() - startNanos);
+
+            startNanos = System.nanoTime();
+            LoggerEventCodec.encodeBatch(events);
+            codecNanos = Math.min(codecNanos, System.nanoTime() - startNanos);
+        }
+        log.info(
+                "Encoded {} events, JSON: {}us, batch: {}us",
+                events.size(),
+                TimeUnit.NANOSECONDS.toMicros(jsonNanos),
+                TimeUnit.NANOSECONDS.toMicros(codecNanos));
+        assertTrue(codecNanos < jsonNanos);
+    }
+
+    private byte[] toJson(LoggerEvent event) {
+        LoggerEvent copy = new LoggerEvent("");
+        copy.setLogId(event.getLogId());
+        copy.setMessage(event.getMessage());
+        copy.setOperatorId(event.getOperatorId());
+        copy.setBusinessId(event.getBusinessId());
+        copy.setCategory(event.getCategory());
+        copy.setTag(event.getTag());
+        copy.setCreateTime(event.getCreateTime());
+        copy.setTakeTime(event.getTakeTime());
+        copy.setCondition(event.isCondition());
+        copy.setSuccess(event.isSuccess());
+        copy.setResult(event.getResult());
+        copy.setDiffResults(event.getDiffResults());
+        return JSONUtil.toJsonStr(copy).getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String getFieldName(LoggerEvent event) {
+        return event.getDiffResults().get(0).getFieldResults().get(0).getFieldName();
+    }
+
+    private List<LoggerEvent> createEvents() {
+        List<LoggerEvent> events = new ArrayList<>(BATCH_SIZE);
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            events.add(createEvent(i));
+        }
+        return events;
+    }
+
+    private LoggerEvent createEvent(int index) {
+        LoggerEvent event = new LoggerEvent(this);
+        event.setLogId("a1b2c3d4e5f6a7b8c9d0" + index);
+        event.setMessage("Order " + index + " status changed");
+        event.setOperatorId("100" + index % 3);
+        event.setBusinessId("ORDER-" + index);
+        event.setCategory("order");
+        event.setTag("update");
+        event.setAdditional("additional");
+        event.setCreateTime(new Date(1700000000000L + index * 10L));
+        event.setTakeTime(20L);
+        event.setCondition(true);
+        event.setSuccess(false);
+        event.setResult(index);
+
+        DiffObjectResult diffResult = new DiffObjectResult();
+        diffResult.setOldObjectName("old");
+        diffResult.setNewObjectName("new");
+        diffResult.setFieldResults(Collections.singletonList(DiffFieldResult.builder()
+                .fieldName("status")
+                .state(DiffState.UPDATED)
+                .oldTitle("Status")
+                .oldValue(1)
+                .newTitle("Status")
+                .newValue(2)
+                .build()));
+        event.setDiffResults(Collections.singletonList(diffResult));
+        return event;
+    }
+
+    private static void writeVersion1String(DataOutputStream output, String value) throws Exception {
+        if (value == null) {
+            output.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        output.writeInt(bytes.length);
+        output.write(bytes);
+    }
+}
@@ -0,0 +1,291 @@
+/*
+ * Copyright lzhpo
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.lzhpo.logger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.lzhpo.logger.LoggerPublisherProperties.OverflowPolicy;
+import com.lzhpo.logger.publisher.DefaultLoggerEventDispatcher;
+import com.lzhpo.logger.publisher.LoggerEventPublisher;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import lombok.RequiredArgsConstructor;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.autoconfigure.AutoConfigurations;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+import org.springframework.context.ApplicationEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.context.annotation.Scope;
+import org.springframework.context.event.EventListener;
+import org.springframework.context.event.SmartApplicationListener;
+
+/**
+ * @author lzhpo
+ */
+class LoggerEventDispatcherTest {
+
+    private final ApplicationContextRunner contextRunner = new ApplicationContextRunner()
+            .withConfiguration(AutoConfigurations.of(LoggerAutoConfiguration.class))
+            .withUserConfiguration(ListenerConfiguration.class);
+
+    @Test
+    void directDispatch() {
+        contextRunner.run(context -> {
+            DefaultLoggerEventDispatcher dispatcher = context.getBean(DefaultLoggerEventDispatcher.class);
+            assertEquals(2, dispatcher.getListeners().size());
+
+            dispatcher.dispatch(new LoggerEvent(this));
+            List<String> received = context.getBean(ListenerConfiguration.class).received;
+            assertEquals(Arrays.asList("typed", "annotated"), received);
+        });
+    }
+
+    @Test
+    void springDispatch() {
+        contextRunner
+                .withPropertyValues("logger.publisher.dispatch-mode=spring")
+                .run(context -> {
+                    DefaultLoggerEventDispatcher dispatcher = context.getBean(DefaultLoggerEventDispatcher.class);
+                    assertTrue(dispatcher.getListeners().isEmpty());
+
+                    dispatcher.dispatch(new LoggerEvent(this));
+                    List<String> received = context.getBean(ListenerConfiguration.class).received;
+                    assertEquals(3, received.size());
+                    assertTrue(received.contains("generic"));
+                });
+    }
+
+    @Test
+    void lazyAndPrototypeListeners() {
+        contextRunner.withUserConfiguration(LazyListenerConfiguration.class).run(context -> {
+            DefaultLoggerEventDispatcher dispatcher = context.getBean(DefaultLoggerEventDispatcher.class);
+            assertEquals(4, dispatcher.getListeners().size());
+            assertFalse(context.getBeanFactory().containsSingleton("lazyListener"));
+
+            dispatcher.dispatch(new LoggerEvent(this));
+            dispatcher.dispatch(new LoggerEvent(this));
+            List<String> received = context.getBean(LazyListenerConfiguration.class).received;
+            assertEquals(Arrays.asList("lazy", "prototype", "lazy", "prototype"), received);
+            assertTrue(context.getBeanFactory().containsSingleton("lazyListener"));
+        });
+    }
+
+    @Test
+    void checkSourceType() {
+        contextRunner.withBean(StringSourceListener.class).run(context -> {
+            DefaultLoggerEventDispatcher dispatcher = context.getBean(DefaultLoggerEventDispatcher.class);
+            StringSourceListener listener = context.getBean(StringSourceListener.class);
+
+            dispatcher.dispatch(new LoggerEvent(this));
+            assertTrue(listener.received.isEmpty());
+            dispatcher.dispatch(new LoggerEvent("source"));
+            assertEquals(Arrays.asList("source"), listener.received);
+        });
+    }
+
+    @Test
+    void fallbackOnLazySmartListener() {
+        contextRunner
+                .withBean(
+                        "stringSourceListener",
+                        StringSourceListener.class,
+                        StringSourceListener::new,
+                        bd -> bd.setLazyInit(true))
+                .run(context -> {
+                    DefaultLoggerEventDispatcher dispatcher = context.getBean(DefaultLoggerEventDispatcher.class);
+                    assertTrue(dispatcher.getListeners().isEmpty());
+
+                    dispatcher.dispatch(new LoggerEvent("source"));
+                    assertEquals(Arrays.asList("source"), context.getBean(StringSourceListener.class).received);
+                    assertTrue(context.getBean(ListenerConfiguration.class)
+                            .received
+                            .contains("typed"));
+                });
+    }
+
+    @Test
+    void listenerErrorNotAffectOthers() {
+        contextRunner.withBean(FailingListener.class).run(context -> {
+            DefaultLoggerEventDispatcher dispatcher = context.getBean(DefaultLoggerEventDispatcher.class);
+            assertThrows(IllegalStateException.class, () -> dispatcher.dispatch(new LoggerEvent(this)));
+            List<String> received = context.getBean(ListenerConfiguration.class).received;
+            assertEquals(Arrays.asList("typed", "annotated"), received);
+        });
+    }
+
+    @Test
+    void isolatedListeners() {
+        CountDownLatch released = new CountDownLatch(1);
+        contextRunner
+                .withBean("slowListener", SlowListener.class, () -> new SlowListener(released))
+                .withPropertyValues(
+                        "logger.publisher.isolation.enabled=true",
+                        "logger.publisher.isolation.listeners.slowListener.queue-capacity=1",
+                        "logger.publisher.isolation.listeners.slowListener.overflow.policy=drop_newest")
+                .run(context -> {
+                    DefaultLoggerEventDispatcher dispatcher = context.getBean(DefaultLoggerEventDispatcher.class);
+                    Map<String, LoggerEventPublisher> isolatedListeners = dispatcher.getIsolatedListeners();
+                    assertEquals(3, isolatedListeners.size());
+
+                    for (int i = 0; i < 3; i++) {
+                        dispatcher.dispatch(new LoggerEvent(this));
+                    }
+
+                    // The slow listener holds one event, queues one and drops one, the others never wait for it
+                    List<String> received = context.getBean(ListenerConfiguration.class).received;
+                    LoggerEventPublisher slowListener = isolatedListeners.get("slowListener");
+                    await(() -> received.size() == 6);
+                    assertEquals(1, slowListener.getQueueDepth());
+                    assertEquals(1, slowListener.getDroppedCounts().get(OverflowPolicy.DROP_NEWEST));
+                    assertEquals(3, isolatedListeners.get("typedListener").getPublishedCount());
+
+                    released.countDown();
+                    await(() -> slowListener.getPublishedCount() == 2);
+                    assertEquals(0, slowListener.getQueueDepth());
+                });
+    }
+
+    @Test
+    void stuckListenerNotDelayOthers() {
+        CountDownLatch released = new CountDownLatch(1);
+        contextRunner
+                .withBean("slowListener", SlowListener.class, () -> new SlowListener(released))
+                .withPropertyValues(
+                        "logger.publisher.isolation.enabled=true",
+                        "logger.publisher.isolation.listeners.slowListener.queue-capacity=1")
+                .run(context -> {
+                    DefaultLoggerEventDispatcher dispatcher = context.getBean(DefaultLoggerEventDispatcher.class);
+                    Map<String, LoggerEventPublisher> isolatedListeners = dispatcher.getIsolatedListeners();
+                    LoggerEventPublisher slowListener = isolatedListeners.get("slowListener");
+
+                    // Neither waits nor runs the stuck listener after its queue filled, drops the events by default
+                    long startNanos = System.nanoTime();
+                    for (int i = 0; i < 20; i++) {
+                        dispatcher.dispatch(new LoggerEvent(this));
+                    }
+                    long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+                    assertTrue(elapsedMillis < 1000, "Dispatched in " + elapsedMillis + "ms");
+
+                    List<String> received = context.getBean(ListenerConfiguration.class).received;
+                    await(() -> received.size() == 40);
+                    assertEquals(20, isolatedListeners.get("typedListener").getPublishedCount());
+                    assertEquals(18, slowListener.getDroppedCounts().get(OverflowPolicy.DROP_NEWEST));
+                    released.countDown();
+                });
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(5);
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.currentTimeMillis() < deadline, "Timed out");
+            Thread.sleep(10);
+        }
+    }
+
+    @Configuration(proxyBeanMethods = false)
+    static class ListenerConfiguration {
+
+        private final List<String> received = new CopyOnWriteArrayList<>();
+
+        @Bean
+        public ApplicationListener<LoggerEvent> typedListener() {
+            return event -> received.add("typed");
+        }
+
+        @Bean
+        public ApplicationListener<ApplicationEvent> genericListener() {
+            return event -> {
+                if (event instanceof LoggerEvent) {
+                    received.add("generic");
+                }
+            };
+        }
+
+        @EventListener
+        public void annotatedListener(LoggerEvent event) {
+            received.add("annotated");
+        }
+    }
+
+    @Configuration(proxyBeanMethods = false)
+    static class LazyListenerConfiguration {
+
+        private final List<String> received = new CopyOnWriteArrayList<>();
+
+        @Bean
+        @Lazy
+        public ApplicationListener<LoggerEvent> lazyListener() {
+            return event -> received.add("lazy");
+        }
+
+        @Bean
+        @Scope("prototype")
+        public ApplicationListener<LoggerEvent> prototypeListener() {
+            return event -> received.add("prototype");
+        }
+    }
+
+    static class StringSourceListener implements SmartApplicationListener {
+
+        private final List<Object> received = new CopyOnWriteArrayList<>();
+
+        @Override
+        public boolean supportsEventType(Class<? extends ApplicationEvent> eventType) {
+            return LoggerEvent.class.isAssignableFrom(eventType);
+        }
+
+        @Override
+        public boolean supportsSourceType(Class<?> sourceType) {
+            return String.class == sourceType;
+        }
+
+        @Override
+        public void onApplicationEvent(ApplicationEvent event) {
+            received.add(event.getSource());
+        }
+    }
+
+    static class FailingListener implements ApplicationListener<LoggerEvent> {
+
+        @Override
+        public void onApplicationEvent(LoggerEvent event) {
+            throw new IllegalStateException("Listener failed");
+        }
+    }
+
+    @RequiredArgsConstructor
+    static class SlowListener implements ApplicationListener<LoggerEvent> {
+
+        private final CountDownLatch released;
+
+        @Override
+        public void onApplicationEvent(LoggerEvent event) {
+            try {
+                released.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
@@ -0,0 +1,601 @@
+/*
+ * Copyright lzhpo
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.lzhpo.logger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.*;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import com.lzhpo.logger.LoggerPublisherProperties.OverflowPolicy;
+import com.lzhpo.logger.publisher.AbstractLoggerEventPublisher;
+import com.lzhpo.logger.publisher.ExecutorLoggerEventPublisher;
+import com.lzhpo.logger.publisher.LoggerEventDispatcher;
+import com.lzhpo.logger.publisher.LoggerEventPublisher;
+import com.lzhpo.logger.publisher.LoggerEventSizeEstimator;
+import com.lzhpo.logger.publisher.LoggerVirtualThreads;
+import com.lzhpo.logger.publisher.RingBufferLoggerEventPublisher;
+import com.lzhpo.logger.publisher.StripedLoggerEventPublisher;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.boot.autoconfigure.AutoConfigurations;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+import org.springframework.context.ApplicationListener;
+import org.springframework.util.unit.DataSize;
+
+/**
+ * @author lzhpo
+ */
+@Slf4j
+class LoggerEventPublisherTest {
+
+    private static final int PRODUCERS = 4;
+    private static final int EVENTS_PER_PRODUCER = 100000;
+
+    @Test
+    void publish() throws Exception {
+        CountDownLatch published = new CountDownLatch(3);
+        ExecutorLoggerEventPublisher publisher =
+                new ExecutorLoggerEventPublisher(event -> published.countDown(), new LoggerPublisherProperties());
+
+        for (int i = 0; i < 3; i++) {
+            publisher.publish(new LoggerEvent(this));
+        }
+
+        assertTrue(published.await(5, TimeUnit.SECONDS));
+        publisher.destroy();
+        assertEquals(3, publisher.getPublishedCount());
+        assertEquals(0, publisher.getRejectedCount());
+        assertFalse(publisher.getMaxLatency().isNegative());
+    }
+
+    @Test
+    void virtualThreads() throws Exception {
+        LoggerPublisherProperties properties = new LoggerPublisherProperties();
+        properties.setVirtualThreads(true);
+
+        CountDownLatch published = new CountDownLatch(1);
+        List<Thread> threads = new CopyOnWriteArrayList<>();
+        ExecutorLoggerEventPublisher publisher = new ExecutorLoggerEventPublisher(
+                event -> {
+                    threads.add(Thread.currentThread());
+                    published.countDown();
+                },
+                properties);
+        publisher.publish(new LoggerEvent(this));
+        assertTrue(published.await(5, TimeUnit.SECONDS));
+        publisher.destroy();
+
+        // Fallback to platform threads before JDK 21
+        boolean supported = !System.getProperty("java.specification.version").startsWith("1.")
+                && Integer.parseInt(System.getProperty("java.specification.version")) >= 21;
+        assertEquals(supported, LoggerVirtualThreads.isSupported());
+        Thread thread = threads.get(0);
+        assertTrue(thread.getName().startsWith(properties.getThreadNamePrefix()));
+        assertEquals(supported, thread.getClass().getName().contains("Virtual"));
+    }
+
+    @Test
+    void discardWhenQueueFull() throws Exception {
+        LoggerPublisherProperties properties = new LoggerPublisherProperties();
+        properties.setPoolSize(1);
+        properties.setQueueCapacity(1);
+        properties.getOverflow().setPolicy(OverflowPolicy.DROP_NEWEST);
+
+        CountDownLatch blocked = new CountDownLatch(1);
+        CountDownLatch released = new CountDownLatch(1);
+        ExecutorLoggerEventPublisher publisher = new ExecutorLoggerEventPublisher(
+                event -> {
+                    blocked.countDown();
+                    awaitQuietly(released);
+                },
+                properties);
+
+        publisher.publish(new LoggerEvent(this));
+        assertTrue(blocked.await(5, TimeUnit.SECONDS));
+        publisher.publish(new LoggerEvent(this));
+        publisher.publish(new LoggerEvent(this));
+
+        assertEquals(1, publisher.getQueueDepth());
+        assertEquals(1, publisher.getRejectedCount());
+        assertEquals(1, publisher.getDroppedCounts().get(OverflowPolicy.DROP_NEWEST));
+
+        released.countDown();
+        publisher.destroy();
+        assertEquals(2, publisher.getPublishedCount());
+    }
+
+    @Test
+    void dropOldestWhenQueueFull() throws Exception {
+        for (LoggerPublisherProperties.Mode mode : LoggerPublisherProperties.Mode.values()) {
+            LoggerPublisherProperties properties = new LoggerPublisherProperties();
+            properties.setMode(mode);
+            properties.setPoolSize(1);
+            properties.setQueueCapacity(2);
+            properties.getRingBuffer().setBufferSize(2);
+            properties.getRingBuffer().setMaxBatchSize(1);
+            properties.getOverflow().setPolicy(OverflowPolicy.DROP_OLDEST);
+
+            CountDownLatch blocked = new CountDownLatch(1);
+            CountDownLatch released = new CountDownLatch(1);
+            List<String> received = new CopyOnWriteArrayList<>();
+            AbstractLoggerEventPublisher publisher = createPublisher(
+                    event -> {
+                        received.add(event.getMessage());
+                        blocked.countDown();
+                        awaitQuietly(released);
+                    },
+                    properties);
+
+            publisher.publish(createEvent("0"));
+            assertTrue(blocked.await(5, TimeUnit.SECONDS), mode.name());
+            for (int i = 1; i <= 4; i++) {
+                publisher.publish(createEvent(String.valueOf(i)));
+            }
+
+            assertEquals(2, publisher.getQueueDepth(), mode.name());
+            assertEquals(2, publisher.getDroppedCounts().get(OverflowPolicy.DROP_OLDEST), mode.name());
+
+            released.countDown();
+            ((DisposableBean) publisher).destroy();
+            assertEquals(Arrays.asList("0", "3", "4"), received, mode.name());
+        }
+    }
+
+    @Test
+    void blockUntilTimeout() throws Exception {
+        LoggerPublisherProperties properties = new LoggerPublisherProperties();
+        properties.setPoolSize(1);
+        properties.setQueueCapacity(1);
+        properties.getOverflow().setPolicy(OverflowPolicy.BLOCK);
+        properties.getOverflow().setBlockTimeout(Duration.ofMillis(50));
+
+        CountDownLatch blocked = new CountDownLatch(1);
+        CountDownLatch released = new CountDownLatch(1);
+        ExecutorLoggerEventPublisher publisher = new ExecutorLoggerEventPublisher(
+                event -> {
+                    blocked.countDown();
+                    awaitQuietly(released);
+                },
+                properties);
+
+        publisher.publish(new LoggerEvent(this));
+        assertTrue(blocked.await(5, TimeUnit.SECONDS));
+        publisher.publish(new LoggerEvent(this));
+
+        long startNanos = System.nanoTime();
+        publisher.publish(new LoggerEvent(this));
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+        assertTrue(elapsedMillis >= 40 && elapsedMillis < 2000, "Blocked " + elapsedMillis + "ms");
+        assertEquals(1, publisher.getDroppedCounts().get(OverflowPolicy.BLOCK));
+
+        // Woken up once the slot freed by consumer, not waiting until the timeout
+        new Thread(() -> {
+                    sleepQuietly(20);
+                    released.countDown();
+                })
+                .start();
+        properties.getOverflow().setBlockTimeout(Duration.ofSeconds(5));
+        startNanos = System.nanoTime();
+        publisher.publish(new LoggerEvent(this));
+        elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+        assertTrue(elapsedMillis < 2000, "Blocked " + elapsedMillis + "ms");
+
+        publisher.destroy();
+        assertEquals(3, publisher.getPublishedCount());
+        assertEquals(1, publisher.getDroppedCount());
+    }
+
+    @Test
+    void sampleOverThreshold() throws Exception {
+        LoggerPublisherProperties properties = new LoggerPublisherProperties();
+        properties.setPoolSize(1);
+        properties.setQueueCapacity(10);
+        properties.getOverflow().setPolicy(OverflowPolicy.SAMPLE);
+        properties.getOverflow().setSampleThreshold(0.5);
+        properties.getOverflow().setSampleRate(0);
+
+        CountDownLatch blocked = new CountDownLatch(1);
+        CountDownLatch released = new CountDownLatch(1);
+        ExecutorLoggerEventPublisher publisher = new ExecutorLoggerEventPublisher(
+                event -> {
+                    blocked.countDown();
+                    awaitQuietly(released);
+                },
+                properties);
+
+        publisher.publish(new LoggerEvent(this));
+        assertTrue(blocked.await(5, TimeUnit.SECONDS));
+        for (int i = 0; i < 10; i++) {
+            publisher.publish(new LoggerEvent(this));
+        }
+
+        assertEquals(5, publisher.getQueueDepth());
+        assertEquals(5, publisher.getDroppedCounts().get(OverflowPolicy.SAMPLE));
+
+        released.countDown();
+        publisher.destroy();
+        assertEquals(6, publisher.getPublishedCount());
+    }
+
+    @Test
+    void boundedByBytes() throws Exception {
+        LoggerEvent event = createEvent("event");
+        long eventBytes = LoggerEventSizeEstimator.estimate(event);
+
+        for (LoggerPublisherProperties.Mode mode : LoggerPublisherProperties.Mode.values()) {
+            LoggerPublisherProperties properties = new LoggerPublisherProperties();
+            properties.setMode(mode);
+            properties.setPoolSize(1);
+            properties.getOverflow().setPolicy(OverflowPolicy.DROP_NEWEST);
+            properties.getOverflow().setMaxBytes(DataSize.ofBytes(eventBytes * 3));
+
+            CountDownLatch blocked = new CountDownLatch(1);
+            CountDownLatch released = new CountDownLatch(1);
+            AbstractLoggerEventPublisher publisher = createPublisher(
+                    e -> {
+                        blocked.countDown();
+                        awaitQuietly(released);
+                    },
+                    properties);
+
+            publisher.publish(event);
+            assertTrue(blocked.await(5, TimeUnit.SECONDS), mode.name());
+            for (int i = 0; i < 5; i++) {
+                publisher.publish(event);
+            }
+
+            assertEquals(3, publisher.getQueueDepth(), mode.name());
+            assertEquals(2, publisher.getDroppedCounts().get(OverflowPolicy.DROP_NEWEST), mode.name());
+
+            released.countDown();
+            ((DisposableBean) publisher).destroy();
+            assertEquals(4, publisher.getPublishedCount(), mode.name());
+        }
+    }
+
+    @Test
+    void ringBufferDiscardWhenFull() throws Exception {
+        LoggerPublisherProperties properties = new LoggerPublisherProperties();
+        properties.setMode(LoggerPublisherProperties.Mode.RING_BUFFER);
+        properties.setPoolSize(1);
+        properties.getRingBuffer().setBufferSize(2);
+        properties.getRingBuffer().setMaxBatchSize(1);
+        properties.getOverflow().setPolicy(OverflowPolicy.DROP_NEWEST);
+
+        CountDownLatch blocked = new CountDownLatch(1);
+        CountDownLatch released = new CountDownLatch(1);
+        RingBufferLoggerEventPublisher publisher = new RingBufferLoggerEventPublisher(
+                event -> {
+                    blocked.countDown();
+                    awaitQuietly(released);
+                },
+                properties);
+
+        publisher.publish(new LoggerEvent(this));
+        assertTrue(blocked.await(5, TimeUnit.SECONDS));
+        publisher.publish(new LoggerEvent(this));
+        publisher.publish(new LoggerEvent(this));
+        publisher.publish(new LoggerEvent(this));
+
+        assertEquals(2, publisher.getQueueDepth());
+        assertEquals(1, publisher.getRejectedCount());
+
+        released.countDown();
+        publisher.destroy();
+        assertEquals(3, publisher.getPublishedCount());
+        assertEquals(0, publisher.getQueueDepth());
+    }
+
+    @Test
+    void ringBufferWaitStrategies() throws Exception {
+        for (LoggerPublisherProperties.WaitStrategy waitStrategy : LoggerPublisherProperties.WaitStrategy.values()) {
+            LoggerPublisherProperties properties = new LoggerPublisherProperties();
+            properties.setMode(LoggerPublisherProperties.Mode.RING_BUFFER);
+            properties.getRingBuffer().setWaitStrategy(waitStrategy);
+            properties.getOverflow().setPolicy(OverflowPolicy.CALLER_RUNS);
+
+            LongAdder received = new LongAdder();
+            RingBufferLoggerEventPublisher publisher =
+                    new RingBufferLoggerEventPublisher(event -> received.increment(), properties);
+            publishConcurrently(publisher, 10000);
+            publisher.destroy();
+
+            assertEquals(PRODUCERS * 10000L, received.sum(), waitStrategy.name());
+            assertEquals(received.sum(), publisher.getPublishedCount(), waitStrategy.name());
+        }
+    }
+
+    @Test
+    void drainOnShutdown() {
+        for (LoggerPublisherProperties.Mode mode : LoggerPublisherProperties.Mode.values()) {
+            LoggerPublisherProperties properties = new LoggerPublisherProperties();
+            properties.setMode(mode);
+            properties.setPoolSize(1);
+
+            LongAdder received = new LongAdder();
+            AbstractLoggerEventPublisher publisher = createPublisher(
+                    event -> {
+                        sleepQuietly(1);
+                        received.increment();
+                    },
+                    properties);
+            for (int i = 0; i < 100; i++) {
+                publisher.publish(new LoggerEvent(this));
+            }
+
+            publisher.stop();
+            assertFalse(publisher.isRunning(), mode.name());
+            assertEquals(100, received.sum(), mode.name());
+            assertEquals(0, publisher.getShutdownDroppedCount(), mode.name());
+            assertTrue(publisher.getShutdownFlushedCount() > 0, mode.name());
+
+            publisher.publish(new LoggerEvent(this));
+            assertEquals(1, publisher.getShutdownDroppedCount(), mode.name());
+            assertEquals(100, received.sum(), mode.name());
+        }
+    }
+
+    @Test
+    void dropOnShutdownTimeout() {
+        for (LoggerPublisherProperties.Mode mode : LoggerPublisherProperties.Mode.values()) {
+            LoggerPublisherProperties properties = new LoggerPublisherProperties();
+            properties.setMode(mode);
+            properties.setPoolSize(1);
+            properties.setShutdownTimeout(Duration.ofMillis(100));
+
+            CountDownLatch blocked = new CountDownLatch(1);
+            CountDownLatch released = new CountDownLatch(1);
+            AbstractLoggerEventPublisher publisher = createPublisher(
+                    event -> {
+                        blocked.countDown();
+                        awaitQuietly(released);
+                    },
+                    properties);
+            for (int i = 0; i < 5; i++) {
+                publisher.publish(new LoggerEvent(this));
+            }
+            assertTrue(awaitQuietly(blocked), mode.name());
+
+            long startNanos = System.nanoTime();
+            publisher.stop();
+            released.countDown();
+            assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos) < 2000, mode.name());
+            assertEquals(4, publisher.getShutdownDroppedCount(), mode.name());
+        }
+    }
+
+    @Test
+    void stopWithContext() {
+        LongAdder received = new LongAdder();
+        new ApplicationContextRunner()
+                .withConfiguration(AutoConfigurations.of(LoggerAutoConfiguration.class))
+                .withBean(ApplicationListener.class, () -> (ApplicationListener<LoggerEvent>) event -> {
+                    sleepQuietly(1);
+                    received.increment();
+                })
+                .withPropertyValues("logger.publisher.dispatch-mode=spring")
+                .run(context -> {
+                    LoggerEventPublisher publisher = context.getBean(LoggerEventPublisher.class);
+                    for (int i = 0; i < 50; i++) {
+                        publisher.publish(new LoggerEvent(this));
+                    }
+                });
+        assertEquals(50, received.sum());
+    }
+
+    @Test
+    void selectPublisherByMode() {
+        ApplicationContextRunner contextRunner =
+                new ApplicationContextRunner().withConfiguration(AutoConfigurations.of(LoggerAutoConfiguration.class));
+        contextRunner.run(context -> assertThat(context)
+                .getBean(LoggerEventPublisher.class)
+                .isInstanceOf(ExecutorLoggerEventPublisher.class));
+        contextRunner.withPropertyValues("logger.publisher.mode=ring_buffer").run(context -> assertThat(context)
+                .getBean(LoggerEventPublisher.class)
+                .isInstanceOf(RingBufferLoggerEventPublisher.class));
+        contextRunner.withPropertyValues("logger.publisher.mode=striped").run(context -> assertThat(context)
+                .getBean(LoggerEventPublisher.class)
+                .isInstanceOf(StripedLoggerEventPublisher.class));
+        // The mode is bound as the enum, so the relaxed names select the same publisher
+        for (String mode : new String[] {"ring-buffer", "RING_BUFFER", "Ring-Buffer"}) {
+            contextRunner.withPropertyValues("logger.publisher.mode=" + mode).run(context -> assertThat(context)
+                    .getBean(LoggerEventPublisher.class)
+                    .isInstanceOf(RingBufferLoggerEventPublisher.class));
+        }
+        contextRunner.withPropertyValues("logger.publisher.mode=EXECUTOR").run(context -> assertThat(context)
+                .getBean(LoggerEventPublisher.class)
+                .isInstanceOf(ExecutorLoggerEventPublisher.class));
+    }
+
+    @Test
+    void stripedRejectCallerRuns() {
+        new ApplicationContextRunner()
+                .withConfiguration(AutoConfigurations.of(LoggerAutoConfiguration.class))
+                .withPropertyValues("logger.publisher.mode=striped", "logger.publisher.overflow.policy=caller_runs")
+                .run(
+                        context -> assertThat(context)
+                                .getFailure()
+                                .hasRootCauseInstanceOf(IllegalArgumentException.class)
+                                .hasRootCauseMessage(
+                                        "The overflow policy CALLER_RUNS breaks the order of striped lanes, use BLOCK instead."));
+    }
+
+    @Test
+    void stripedOrderPerKey() throws Exception {
+        int keys = 64;
+        int eventsPerKey = 2000;
+        LoggerPublisherProperties properties = new LoggerPublisherProperties();
+        properties.setMode(LoggerPublisherProperties.Mode.STRIPED);
+        properties.setPoolSize(4);
+        properties.setQueueCapacity(64);
+        properties.getOverflow().setPolicy(OverflowPolicy.BLOCK);
+        properties.getOverflow().setBlockTimeout(Duration.ofMinutes(1));
+
+        Map<String, List<Integer>> received = new ConcurrentHashMap<>();
+        Map<String, Set<String>> threads = new ConcurrentHashMap<>();
+        StripedLoggerEventPublisher publisher = new StripedLoggerEventPublisher(
+                event -> {
+                    received.computeIfAbsent(event.getBusinessId(), key -> new CopyOnWriteArrayList<>())
+                            .add(Integer.parseInt(event.getMessage()));
+                    threads.computeIfAbsent(event.getBusinessId(), key -> ConcurrentHashMap.newKeySet())
+                            .add(Thread.currentThread().getName());
+                    if (ThreadLocalRandom.current().nextInt(100) == 0) {
+                        Thread.yield();
+                    }
+                },
+                properties);
+
+        // Each producer owns some keys and publishes their events in order, interleaved with the others
+        Thread[] producers = new Thread[PRODUCERS];
+        for (int i = 0; i < PRODUCERS; i++) {
+            int producer = i;
+            producers[i] = new Thread(() -> {
+                for (int sequence = 0; sequence < eventsPerKey; sequence++) {
+                    for (int key = producer; key < keys; key += PRODUCERS) {
+                        LoggerEvent event = createEvent(String.valueOf(sequence));
+                        event.setBusinessId("order-" + key);
+                        publisher.publish(event);
+                    }
+                }
+            });
+            producers[i].start();
+        }
+        for (Thread producer : producers) {
+            producer.join();
+        }
+        publisher.destroy();
+
+        assertEquals(0, publisher.getDroppedCount());
+        assertEquals(keys, received.size());
+        Set<String> allThreads = new HashSet<>();
+        received.forEach((key, sequences) -> {
+            assertEquals(eventsPerKey, sequences.size(), key);
+            for (int i = 0; i < eventsPerKey; i++) {
+                assertEquals(i, sequences.get(i), key);
+            }
+            assertEquals(1, threads.get(key).size(), key);
+            allThreads.addAll(threads.get(key));
+        });
+        assertEquals(4, allThreads.size());
+    }
+
+    @Test
+    void throughput() throws Exception {
+        // Every event published, the producers run the listener once the queue is full
+        LoggerPublisherProperties executorProperties = new LoggerPublisherProperties();
+        executorProperties.getOverflow().setPolicy(OverflowPolicy.CALLER_RUNS);
+        LoggerPublisherProperties ringBufferProperties = new LoggerPublisherProperties();
+        ringBufferProperties.setMode(LoggerPublisherProperties.Mode.RING_BUFFER);
+        ringBufferProperties.getOverflow().setPolicy(OverflowPolicy.CALLER_RUNS);
+
+        // Per-event debug logs would dominate the measurement
+        Logger publisherLogger = (Logger)
+                LoggerFactory.getLogger(LoggerEventPublisher.class.getPackage().getName());
+        Level level = publisherLogger.getLevel();
+        publisherLogger.setLevel(Level.INFO);
+
+        LongAdder received = new LongAdder();
+        LoggerEventDispatcher listener = event -> received.increment();
+        long executorEventsPerSecond;
+        long ringBufferEventsPerSecond;
+        try {
+            executorEventsPerSecond =
+                    measureThroughput(new ExecutorLoggerEventPublisher(listener, executorProperties), received);
+            ringBufferEventsPerSecond =
+                    measureThroughput(new RingBufferLoggerEventPublisher(listener, ringBufferProperties), received);
+        } finally {
+            publisherLogger.setLevel(level);
+        }
+        log.info(
+                "Published {} events from {} producers, executor: {} events/s, ring buffer: {} events/s",
+                PRODUCERS * EVENTS_PER_PRODUCER,
+                PRODUCERS,
+                executorEventsPerSecond,
+                ringBufferEventsPerSecond);
+    }
+
+    private long measureThroughput(LoggerEventPublisher publisher, LongAdder received) throws Exception {
+        received.reset();
+        long startNanos = System.nanoTime();
+        publishConcurrently(publisher, EVENTS_PER_PRODUCER);
+        ((DisposableBean) publisher).destroy();
+        long elapsedNanos = System.nanoTime() - startNanos;
+
+        assertEquals(PRODUCERS * (long) EVENTS_PER_PRODUCER, received.sum());
+        return received.sum() * TimeUnit.SECONDS.toNanos(1) / elapsedNanos;
+    }
+
+    private static AbstractLoggerEventPublisher createPublisher(
+            LoggerEventDispatcher dispatcher, LoggerPublisherProperties properties) {
+        return properties.getMode() == LoggerPublisherProperties.Mode.RING_BUFFER
+                ? new RingBufferLoggerEventPublisher(dispatcher, properties)
+                : new ExecutorLoggerEventPublisher(dispatcher, properties);
+    }
+
+    private LoggerEvent createEvent(String message) {
+        LoggerEvent event = new LoggerEvent(this);
+        event.setMessage(message);
+        return event;
+    }
+
+    private void publishConcurrently(LoggerEventPublisher publisher, int eventsPerProducer) throws Exception {
+        LoggerEvent event = new LoggerEvent(this);
+        Thread[] producers = new Thread[PRODUCERS];
+        for (int i = 0; i < PRODUCERS; i++) {
+            producers[i] = new Thread(() -> {
+                for (int j = 0; j < eventsPerProducer; j++) {
+                    publisher.publish(event);
+                }
+            });
+            producers[i].start();
+        }
+        for (Thread producer : producers) {
+            producer.join();
+        }
+    }
+
+    private static void sleepQuietly(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static boolean awaitQuietly(CountDownLatch latch) {
+        try {
+            return latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
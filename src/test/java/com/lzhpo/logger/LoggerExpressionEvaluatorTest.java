@@ -0,0 +1,179 @@
+/*
+ * Copyright lzhpo
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.lzhpo.logger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.lzhpo.logger.annotation.Logger;
+import com.lzhpo.logger.context.*;
+import java.lang.reflect.Method;
+import org.junit.jupiter.api.Test;
+import org.springframework.expression.common.CompositeStringExpression;
+
+/**
+ * @author lzhpo
+ */
+class LoggerExpressionEvaluatorTest {
+
+    @Test
+    void classifyAttributes() throws Exception {
+        LoggerMethodMetadata metadata = getMethodMetadata(new LoggerExpressionProperties(), "standard");
+
+        assertEquals(Boolean.TRUE, metadata.getConstantCondition());
+        assertKind(metadata, LoggerAttribute.CONDITION, LoggerAttributeExpression.Kind.LITERAL);
+        assertKind(metadata, LoggerAttribute.CATEGORY, LoggerAttributeExpression.Kind.LITERAL);
+        assertKind(metadata, LoggerAttribute.MESSAGE, LoggerAttributeExpression.Kind.DYNAMIC);
+        assertKind(metadata, LoggerAttribute.TAG, LoggerAttributeExpression.Kind.EMPTY);
+        assertEquals(
+                "Operation Log",
+                metadata.getAttributeExpression(LoggerAttribute.CATEGORY).getLiteralValue());
+    }
+
+    @Test
+    void templateMode() throws Exception {
+        LoggerExpressionProperties properties = new LoggerExpressionProperties();
+        properties.setTemplateMode(true);
+        LoggerExpressionEvaluator evaluator = new LoggerExpressionEvaluator(properties);
+        LoggerMethodMetadata metadata = getMethodMetadata(evaluator, "template");
+
+        assertEquals(Boolean.TRUE, metadata.getConstantCondition());
+        assertKind(metadata, LoggerAttribute.CATEGORY, LoggerAttributeExpression.Kind.LITERAL);
+        assertKind(metadata, LoggerAttribute.MESSAGE, LoggerAttributeExpression.Kind.DYNAMIC);
+        assertInstanceOf(CompositeStringExpression.class, evaluator.getExpression(metadata, LoggerAttribute.MESSAGE));
+
+        LoggerElementKey elementKey = new LoggerElementKey(this, metadata, null, new Object[] {"123"});
+        LoggerEvaluationContext context = new LoggerEvaluationContext(elementKey);
+        assertEquals("User 123 updated", evaluator.evalExpression(metadata, LoggerAttribute.MESSAGE, context));
+        assertEquals("Operation Log", evaluator.evalExpression(metadata, LoggerAttribute.CATEGORY, context));
+    }
+
+    @Test
+    void reparseEvictedExpression() throws Exception {
+        LoggerExpressionProperties properties = new LoggerExpressionProperties();
+        properties.getCache().setMaximumSize(1);
+        LoggerExpressionEvaluator evaluator = new LoggerExpressionEvaluator(properties);
+        LoggerExpressionCache expressionCache = evaluator.getExpressionCache();
+        LoggerMethodMetadata metadata = getMethodMetadata(evaluator, "argumentCondition");
+        assertEquals(1, expressionCache.size());
+
+        // The metadata does not hold the evicted expressions, they are parsed again through the bounded cache
+        LoggerElementKey elementKey = new LoggerElementKey(this, metadata, null, new Object[] {"123"});
+        LoggerEvaluationContext context = new LoggerEvaluationContext(elementKey);
+        for (int i = 0; i < 2; i++) {
+            assertTrue(evaluator.evalCondition(metadata, context));
+            assertEquals("User 123 updated", evaluator.evalExpression(metadata, LoggerAttribute.MESSAGE, context));
+        }
+        assertEquals(1, expressionCache.size());
+        assertTrue(expressionCache.getEvictionCount() >= 4);
+        assertEquals(expressionCache.getMissCount(), expressionCache.getEvictionCount() + 1);
+    }
+
+    @Test
+    void resolveArguments() throws Exception {
+        LoggerMethodMetadata metadata = getMethodMetadata(new LoggerExpressionProperties(), "standard");
+        assertEquals(0, metadata.getArgumentIndex("id"));
+        assertEquals(0, metadata.getArgumentIndex("a0"));
+        assertEquals(0, metadata.getArgumentIndex("p0"));
+        assertEquals(-1, metadata.getArgumentIndex("a1"));
+
+        LoggerElementKey elementKey = new LoggerElementKey(this, metadata, null, new Object[] {"123"});
+        LoggerEvaluationContext context = new LoggerEvaluationContext(elementKey);
+        context.setVariable("id", "456");
+        assertEquals("456", context.lookupVariable("id"));
+        assertEquals("123", context.lookupVariable("a0"));
+        assertEquals("123", context.lookupVariable("p0"));
+        context.setVariable("orderId", "789");
+        assertEquals("789", context.lookupVariable("orderId"));
+        assertNull(context.lookupVariable("a1"));
+    }
+
+    @Test
+    void preludeCondition() throws Exception {
+        assertTrue(getMethodMetadata(new LoggerExpressionProperties(), "argumentCondition")
+                .isPreludeCondition());
+        assertFalse(getMethodMetadata(new LoggerExpressionProperties(), "resultCondition")
+                .isPreludeCondition());
+        assertFalse(getMethodMetadata(new LoggerExpressionProperties(), "variableCondition")
+                .isPreludeCondition());
+        assertFalse(
+                getMethodMetadata(new LoggerExpressionProperties(), "standard").isPreludeCondition());
+        assertFalse(getMethodMetadata(new LoggerExpressionProperties(), "resultArgumentCondition")
+                .isPreludeCondition());
+    }
+
+    @Test
+    void unbindInvocation() throws Exception {
+        LoggerExpressionEvaluator evaluator = new LoggerExpressionEvaluator(new LoggerExpressionProperties());
+        LoggerMethodMetadata metadata = getMethodMetadata(evaluator, "argumentCondition");
+        LoggerEvaluationContext context = new LoggerEvaluationContext();
+
+        context.bind(this, metadata, new Object[] {"123"});
+        assertSame(this, context.getRootObject().getValue());
+        assertTrue(evaluator.evalCondition(metadata, context));
+
+        // The context reused by the thread must not keep the last invocation reachable
+        context.unbind();
+        assertNull(context.getRootObject().getValue());
+        assertNull(context.getMetadata());
+        assertNull(context.getArguments());
+    }
+
+    private LoggerMethodMetadata getMethodMetadata(LoggerExpressionProperties properties, String methodName)
+            throws Exception {
+        return getMethodMetadata(new LoggerExpressionEvaluator(properties), methodName);
+    }
+
+    private LoggerMethodMetadata getMethodMetadata(LoggerExpressionEvaluator evaluator, String methodName)
+            throws Exception {
+        Method method = getClass().getDeclaredMethod(methodName, String.class);
+        return evaluator.getMethodMetadata(method, getClass(), method.getAnnotation(Logger.class));
+    }
+
+    private static void assertKind(
+            LoggerMethodMetadata metadata, LoggerAttribute attribute, LoggerAttributeExpression.Kind kind) {
+        assertEquals(kind, metadata.getAttributeExpression(attribute).getKind());
+    }
+
+    @Logger(category = "'Operation Log'", message = "'User ' + #id + ' updated'")
+    void standard(String id) {
+        // NOP
+    }
+
+    @Logger(category = "Operation Log", message = "User #{#id} updated")
+    void template(String id) {
+        // NOP
+    }
+
+    @Logger(condition = "#id != null && #p0.length() > 0", message = "'User ' + #id + ' updated'")
+    void argumentCondition(String id) {
+        // NOP
+    }
+
+    @Logger(condition = "#result != null", message = "'User ' + #id + ' updated'")
+    void resultCondition(String id) {
+        // NOP
+    }
+
+    @Logger(condition = "#oldUser != null", message = "'User ' + #id + ' updated'")
+    void variableCondition(String id) {
+        // NOP
+    }
+
+    @Logger(condition = "#result != null", message = "'User ' + #a0 + ' updated'")
+    void resultArgumentCondition(String result) {
+        // NOP
+    }
+}
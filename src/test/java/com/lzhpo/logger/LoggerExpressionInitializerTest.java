@@ -0,0 +1,61 @@
+/*
+ * Copyright lzhpo
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.lzhpo.logger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.lzhpo.logger.annotation.Logger;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.autoconfigure.AutoConfigurations;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+
+/**
+ * @author lzhpo
+ */
+class LoggerExpressionInitializerTest {
+
+    private final ApplicationContextRunner contextRunner = new ApplicationContextRunner()
+            .withConfiguration(AutoConfigurations.of(LoggerAutoConfiguration.class))
+            .withBean(InvalidLoggerAction.class);
+
+    @Test
+    void warnInvalidExpressions() {
+        contextRunner.run(context -> assertThat(context).hasNotFailed());
+    }
+
+    @Test
+    void failFastInvalidExpressions() {
+        contextRunner
+                .withPropertyValues("logger.expression.startup-validation=fail-fast")
+                .run(context -> assertThat(context)
+                        .getFailure()
+                        .hasStackTraceContaining("unknown function #UNKNOWN")
+                        .hasStackTraceContaining("'unclosed"));
+    }
+
+    static class InvalidLoggerAction {
+
+        @Logger(message = "#UNKNOWN(#name)")
+        public void unknownFunction(String name) {
+            // NOP
+        }
+
+        @Logger(message = "'unclosed")
+        public void syntaxError() {
+            // NOP
+        }
+    }
+}
@@ -0,0 +1,230 @@
+/*
+ * Copyright lzhpo
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.lzhpo.logger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.lzhpo.logger.annotation.Logger;
+import com.lzhpo.logger.context.LoggerContextHolder;
+import com.lzhpo.logger.diff.DiffObjectResult;
+import com.lzhpo.logger.publisher.ExecutorLoggerEventPublisher;
+import com.lzhpo.logger.publisher.LoggerEventPublisher;
+import com.lzhpo.logger.publisher.SpoolLoggerEventPublisher;
+import com.lzhpo.logger.shedding.LoggerLoadShedding;
+import com.lzhpo.logger.shedding.LoggerSheddingLevel;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BooleanSupplier;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.boot.autoconfigure.AutoConfigurations;
+import org.springframework.boot.autoconfigure.aop.AopAutoConfiguration;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+import org.springframework.context.ApplicationListener;
+import org.springframework.util.unit.DataSize;
+
+/**
+ * @author lzhpo
+ */
+class LoggerLoadSheddingTest {
+
+    @Test
+    void shedByQueueOccupancy() throws Exception {
+        CountDownLatch released = new CountDownLatch(1);
+        LoggerPublisherProperties publisherProperties = new LoggerPublisherProperties();
+        publisherProperties.setPoolSize(1);
+        publisherProperties.setQueueCapacity(10);
+        ExecutorLoggerEventPublisher publisher = new ExecutorLoggerEventPublisher(
+                event -> {
+                    try {
+                        released.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                },
+                publisherProperties);
+
+        LoggerSheddingProperties sheddingProperties = new LoggerSheddingProperties();
+        sheddingProperties.setEnabled(true);
+        sheddingProperties.setCheckInterval(Duration.ofMillis(10));
+        LoggerLoadShedding shedding = new LoggerLoadShedding(sheddingProperties, publisher);
+
+        // One event is being published, 9 of 10 are queued
+        for (int i = 0; i < 10; i++) {
+            publisher.publish(new LoggerEvent(this));
+        }
+        List<LoggerSheddingLevel> levels = new CopyOnWriteArrayList<>();
+        assertTrue(await(() -> record(levels, shedding.getLevel()) == LoggerSheddingLevel.SAMPLE));
+        assertEquals(LoggerSheddingLevel.DROP_DIFFS, levels.get(1));
+        assertEquals(LoggerSheddingLevel.SKIP_DETAILS, levels.get(2));
+
+        // Restored step by step once drained
+        released.countDown();
+        assertTrue(await(() -> shedding.getLevel() == LoggerSheddingLevel.NONE));
+        shedding.destroy();
+        publisher.stop();
+    }
+
+    @Test
+    void shedBySpoolOccupancy(@TempDir Path directory) throws Exception {
+        AtomicBoolean down = new AtomicBoolean(true);
+        LoggerPublisherProperties publisherProperties = new LoggerPublisherProperties();
+        publisherProperties.setMode(LoggerPublisherProperties.Mode.SPOOL);
+        publisherProperties.setShutdownTimeout(Duration.ofMillis(100));
+        publisherProperties.getOverflow().setPolicy(LoggerPublisherProperties.OverflowPolicy.DROP_NEWEST);
+        publisherProperties.getSpool().setDirectory(directory.toString());
+        publisherProperties.getSpool().setSegmentSize(DataSize.ofKilobytes(4));
+        publisherProperties.getSpool().setMaxSegments(2);
+        publisherProperties.getSpool().setRetryInterval(Duration.ofMillis(10));
+        publisherProperties.getSpool().setMaxAttempts(0);
+        SpoolLoggerEventPublisher publisher = new SpoolLoggerEventPublisher(
+                event -> {
+                    if (down.get()) {
+                        throw new IllegalStateException("The listener is down.");
+                    }
+                },
+                publisherProperties);
+
+        LoggerSheddingProperties sheddingProperties = new LoggerSheddingProperties();
+        sheddingProperties.setEnabled(true);
+        sheddingProperties.setCheckInterval(Duration.ofMillis(10));
+        LoggerLoadShedding shedding = new LoggerLoadShedding(sheddingProperties, publisher);
+
+        // The listener is down, the spool is filled up in bytes
+        for (int i = 0; i < 2000; i++) {
+            publisher.publish(new LoggerEvent(this));
+        }
+        assertTrue(publisher.getDroppedCount() > 0);
+        assertTrue(
+                publisher.getQueueOccupancy() >= sheddingProperties.getQueue().getHighWatermark());
+        assertTrue(await(() -> shedding.getLevel() == LoggerSheddingLevel.SAMPLE));
+
+        // Restored once the spool drained
+        down.set(false);
+        assertTrue(await(() -> publisher.getQueueOccupancy() == 0));
+        assertTrue(await(() -> shedding.getLevel() == LoggerSheddingLevel.NONE));
+        shedding.destroy();
+        publisher.stop();
+    }
+
+    @Test
+    void shedDetails() {
+        new ApplicationContextRunner()
+                .withConfiguration(AutoConfigurations.of(AopAutoConfiguration.class, LoggerAutoConfiguration.class))
+                .withBean(ShedAction.class)
+                .withBean(EventCollector.class)
+                .withPropertyValues(
+                        "logger.shedding.enabled=true",
+                        "logger.shedding.check-interval=10ms",
+                        // Always under pressure
+                        "logger.shedding.overhead.high-watermark=0",
+                        "logger.shedding.overhead.low-watermark=0",
+                        "logger.shedding.low-priority-categories=query",
+                        "logger.shedding.sample-rate=0")
+                .run(context -> {
+                    LoggerLoadShedding shedding = context.getBean(LoggerLoadShedding.class);
+                    assertTrue(await(() -> shedding.getLevel() == LoggerSheddingLevel.SAMPLE));
+
+                    ShedAction action = context.getBean(ShedAction.class);
+                    for (int i = 0; i < 10; i++) {
+                        action.findOrder(String.valueOf(i));
+                        action.updateOrder(String.valueOf(i));
+                    }
+                    assertEquals(20, shedding.getShedCount());
+
+                    // The failures are always logged
+                    assertThrows(IllegalStateException.class, () -> action.findOrder(null));
+                    assertThrows(IllegalStateException.class, () -> action.updateOrder(null));
+                    LoggerEventPublisher publisher = context.getBean(LoggerEventPublisher.class);
+                    List<LoggerEvent> events = context.getBean(EventCollector.class).events;
+                    assertTrue(await(() -> events.size() >= 2));
+                    TimeUnit.MILLISECONDS.sleep(100);
+                    assertEquals(2, publisher.getPublishedCount());
+
+                    LoggerEvent query = find(events, "query");
+                    assertNull(query.getMessage());
+                    assertNull(query.getAdditional());
+                    LoggerEvent order = find(events, "order");
+                    assertEquals("更新订单null", order.getMessage());
+                    assertEquals("订单null", order.getAdditional());
+                    assertTrue(order.getDiffResults().isEmpty());
+                    assertFalse(order.isSuccess());
+                });
+    }
+
+    private static LoggerEvent find(List<LoggerEvent> events, String category) {
+        return events.stream()
+                .filter(event -> category.equals(event.getCategory()))
+                .findFirst()
+                .orElseThrow(IllegalStateException::new);
+    }
+
+    private static LoggerSheddingLevel record(List<LoggerSheddingLevel> levels, LoggerSheddingLevel level) {
+        if (levels.isEmpty() || levels.get(levels.size() - 1) != level) {
+            levels.add(level);
+        }
+        return level;
+    }
+
+    private static boolean await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean()) {
+            if (System.nanoTime() - deadline > 0) {
+                return false;
+            }
+            TimeUnit.MILLISECONDS.sleep(1);
+        }
+        return true;
+    }
+
+    static class EventCollector implements ApplicationListener<LoggerEvent> {
+
+        private final List<LoggerEvent> events = new CopyOnWriteArrayList<>();
+
+        @Override
+        public void onApplicationEvent(LoggerEvent event) {
+            events.add(event);
+        }
+    }
+
+    static class ShedAction {
+
+        @Logger(message = "'查询订单' + #orderId", category = "'query'", additional = "'订单' + #orderId")
+        public String findOrder(String orderId) {
+            if (orderId == null) {
+                throw new IllegalStateException("The orderId must not be null.");
+            }
+            return orderId;
+        }
+
+        @Logger(message = "'更新订单' + #orderId", category = "'order'", additional = "'订单' + #orderId")
+        public String updateOrder(String orderId) {
+            DiffObjectResult diffResult = new DiffObjectResult();
+            diffResult.setFieldResults(new ArrayList<>());
+            LoggerContextHolder.putDiffResult(diffResult);
+            if (orderId == null) {
+                throw new IllegalStateException("The orderId must not be null.");
+            }
+            return orderId;
+        }
+    }
+}
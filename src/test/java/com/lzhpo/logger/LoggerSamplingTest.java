@@ -0,0 +1,161 @@
+/*
+ * Copyright lzhpo
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.lzhpo.logger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.lzhpo.logger.annotation.Logger;
+import com.lzhpo.logger.publisher.LoggerEventPublisher;
+import com.lzhpo.logger.sampling.LoggerSampler;
+import com.lzhpo.logger.sampling.LoggerSampling;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.autoconfigure.AutoConfigurations;
+import org.springframework.boot.autoconfigure.aop.AopAutoConfiguration;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+import org.springframework.context.ApplicationListener;
+
+/**
+ * @author lzhpo
+ */
+class LoggerSamplingTest {
+
+    @Test
+    void sampleByRate() {
+        LoggerSampler sampler = new LoggerSampler("half", 0.5, 0);
+        for (int i = 0; i < 10000; i++) {
+            sampler.trySample();
+        }
+        assertEquals(10000, sampler.getSampledCount() + sampler.getSkippedCount());
+        assertTrue(sampler.getSampledCount() > 4000 && sampler.getSampledCount() < 6000);
+    }
+
+    @Test
+    void limitByTokenBucket() throws Exception {
+        LoggerSampler sampler = new LoggerSampler("limited", 1, 100);
+        int sampled = 0;
+        for (int i = 0; i < 10000; i++) {
+            sampled += sampler.trySample() ? 1 : 0;
+        }
+        // Burst of one second permits, and a few refilled while looping
+        assertTrue(sampled >= 100 && sampled < 150, "sampled: " + sampled);
+
+        TimeUnit.MILLISECONDS.sleep(100);
+        assertTrue(sampler.trySample());
+    }
+
+    @Test
+    void sampleByRules() {
+        new ApplicationContextRunner()
+                .withConfiguration(AutoConfigurations.of(AopAutoConfiguration.class, LoggerAutoConfiguration.class))
+                .withBean(SampledAction.class)
+                .withBean(EventCollector.class)
+                .withPropertyValues(
+                        "logger.sampling.rules.find.method=*SampledAction#find*",
+                        "logger.sampling.rules.find.rate=0",
+                        "logger.sampling.rules.order.category=order",
+                        "logger.sampling.rules.order.rate=0")
+                .run(context -> {
+                    SampledAction action = context.getBean(SampledAction.class);
+                    for (int i = 0; i < 10; i++) {
+                        action.findOrder(String.valueOf(i));
+                        action.updateOrder(String.valueOf(i));
+                    }
+                    // Not matched, the category is an expression
+                    action.updateOrder("1", "order");
+                    action.updateUser("1");
+                    assertThrows(IllegalStateException.class, () -> action.findOrder(null));
+
+                    List<LoggerEvent> events = context.getBean(EventCollector.class).events;
+                    LoggerEventPublisher publisher = context.getBean(LoggerEventPublisher.class);
+                    assertTrue(await(() -> publisher.getPublishedCount() >= 3));
+                    TimeUnit.MILLISECONDS.sleep(100);
+                    assertEquals(3, publisher.getPublishedCount());
+                    assertEquals(
+                            "[更新用户1, 更新订单1, 查询订单null]",
+                            events.stream()
+                                    .map(LoggerEvent::getMessage)
+                                    .sorted()
+                                    .collect(Collectors.toList())
+                                    .toString());
+
+                    // The failure is always kept
+                    LoggerEvent failed = events.stream()
+                            .filter(event -> !event.isSuccess())
+                            .findFirst()
+                            .orElseThrow(IllegalStateException::new);
+                    assertEquals("查询订单null", failed.getMessage());
+                    assertEquals(
+                            "The orderId must not be null.",
+                            failed.getErrors().get(0).getMessage());
+
+                    LoggerSampling sampling = context.getBean(LoggerSampling.class);
+                    assertEquals(11, sampling.getSampler("find").getSkippedCount());
+                    assertEquals(10, sampling.getSampler("order").getSkippedCount());
+                });
+    }
+
+    private static boolean await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean()) {
+            if (System.nanoTime() - deadline > 0) {
+                return false;
+            }
+            TimeUnit.MILLISECONDS.sleep(5);
+        }
+        return true;
+    }
+
+    static class EventCollector implements ApplicationListener<LoggerEvent> {
+
+        private final List<LoggerEvent> events = new CopyOnWriteArrayList<>();
+
+        @Override
+        public void onApplicationEvent(LoggerEvent event) {
+            events.add(event);
+        }
+    }
+
+    static class SampledAction {
+
+        @Logger(message = "'查询订单' + #orderId")
+        public String findOrder(String orderId) {
+            if (orderId == null) {
+                throw new IllegalStateException("The orderId must not be null.");
+            }
+            return orderId;
+        }
+
+        @Logger(message = "'更新订单' + #orderId", category = "#category == null ? 'other' : #category")
+        public void updateOrder(String orderId, String category) {
+            // NOP
+        }
+
+        @Logger(message = "'更新订单' + #orderId", category = "'order'")
+        public void updateOrder(String orderId) {
+            // NOP
+        }
+
+        @Logger(message = "'更新用户' + #userId", sampling = "unknown")
+        public void updateUser(String userId) {
+            // NOP
+        }
+    }
+}
@@ -0,0 +1,370 @@
+/*
+ * Copyright lzhpo
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.lzhpo.logger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.lzhpo.logger.LoggerPublisherProperties.OverflowPolicy;
+import com.lzhpo.logger.publisher.LoggerEventPublisher;
+import com.lzhpo.logger.publisher.LoggerSpool;
+import com.lzhpo.logger.publisher.SpoolLoggerEventPublisher;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.boot.autoconfigure.AutoConfigurations;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+import org.springframework.context.ApplicationListener;
+import org.springframework.util.unit.DataSize;
+
+/**
+ * @author lzhpo
+ */
+class LoggerSpoolTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void replayAfterRestart() throws Exception {
+        LoggerPublisherProperties properties = createProperties();
+
+        // The listener is down, the events are kept in the spool
+        AtomicBoolean down = new AtomicBoolean(true);
+        List<String> received = new CopyOnWriteArrayList<>();
+        SpoolLoggerEventPublisher publisher = new SpoolLoggerEventPublisher(
+                event -> {
+                    if (down.get()) {
+                        throw new IllegalStateException("The listener is down.");
+                    }
+                    received.add(event.getMessage());
+                },
+                properties);
+        for (int i = 0; i < 10; i++) {
+            publisher.publish(createEvent(String.valueOf(i)));
+        }
+        assertTrue(await(() -> publisher.getFailedCount() >= 2));
+        publisher.stop();
+        assertTrue(received.isEmpty());
+        assertEquals(10, publisher.getQueueDepth());
+        assertEquals(0, publisher.getShutdownDroppedCount());
+
+        // The listener is up after restart, the events are replayed in order
+        down.set(false);
+        SpoolLoggerEventPublisher restarted =
+                new SpoolLoggerEventPublisher(event -> received.add(event.getMessage()), properties);
+        assertTrue(await(() -> received.size() == 10));
+        assertEquals(expectedMessages(), received);
+        assertTrue(await(() -> restarted.getQueueDepth() == 0));
+        restarted.stop();
+
+        // Nothing replayed again
+        received.clear();
+        SpoolLoggerEventPublisher replayed =
+                new SpoolLoggerEventPublisher(event -> received.add(event.getMessage()), properties);
+        assertEquals(0, replayed.getQueueDepth());
+        replayed.stop();
+        assertTrue(received.isEmpty());
+    }
+
+    @Test
+    void retryUntilListenerRecovered() throws Exception {
+        AtomicBoolean down = new AtomicBoolean(true);
+        List<String> received = new CopyOnWriteArrayList<>();
+        SpoolLoggerEventPublisher publisher = new SpoolLoggerEventPublisher(
+                event -> {
+                    if (down.get()) {
+                        throw new IllegalStateException("The listener is down.");
+                    }
+                    received.add(event.getMessage());
+                },
+                createProperties());
+        for (int i = 0; i < 10; i++) {
+            publisher.publish(createEvent(String.valueOf(i)));
+        }
+        assertTrue(await(() -> publisher.getFailedCount() >= 2));
+
+        down.set(false);
+        assertTrue(await(() -> received.size() == 10));
+        assertEquals(expectedMessages(), received);
+        assertEquals(10, publisher.getPublishedCount());
+        publisher.stop();
+    }
+
+    @Test
+    void skipPoisonEvent() throws Exception {
+        List<String> received = new CopyOnWriteArrayList<>();
+        LoggerPublisherProperties properties = createProperties();
+        properties.getSpool().setMaxAttempts(3);
+        SpoolLoggerEventPublisher publisher = new SpoolLoggerEventPublisher(
+                event -> {
+                    if ("3".equals(event.getMessage())) {
+                        throw new IllegalArgumentException("The listener always rejects it.");
+                    }
+                    received.add(event.getMessage());
+                },
+                properties);
+        for (int i = 0; i < 10; i++) {
+            publisher.publish(createEvent(String.valueOf(i)));
+        }
+
+        // The events behind the poison event still get through, in order
+        assertTrue(await(() -> received.size() == 9));
+        List<String> expected = expectedMessages();
+        expected.remove("3");
+        assertEquals(expected, received);
+        assertEquals(3, publisher.getFailedCount());
+        assertEquals(1, publisher.getSkippedCount());
+        assertEquals(0, publisher.getQueueDepth());
+        publisher.stop();
+
+        // Skipped, not replayed after restart
+        SpoolLoggerEventPublisher replayed = new SpoolLoggerEventPublisher(event -> {}, properties);
+        assertEquals(0, replayed.getQueueDepth());
+        replayed.stop();
+    }
+
+    @Test
+    void retryOnlyFailedListeners() {
+        AtomicInteger failures = new AtomicInteger(3);
+        List<String> flakyReceived = new CopyOnWriteArrayList<>();
+        List<String> healthyReceived = new CopyOnWriteArrayList<>();
+        List<String> batchReceived = new CopyOnWriteArrayList<>();
+        new ApplicationContextRunner()
+                .withConfiguration(AutoConfigurations.of(LoggerAutoConfiguration.class))
+                .withBean(
+                        "flakyListener",
+                        LoggerEventListener.class,
+                        () -> new LoggerEventListener(event -> {
+                            if (failures.getAndDecrement() > 0) {
+                                throw new IllegalStateException("The listener is down.");
+                            }
+                            flakyReceived.add(event.getMessage());
+                        }))
+                .withBean(
+                        "healthyListener",
+                        LoggerEventListener.class,
+                        () -> new LoggerEventListener(event -> healthyReceived.add(event.getMessage())))
+                .withBean(
+                        LoggerBatchListener.class,
+                        () -> events -> events.forEach(event -> batchReceived.add(event.getMessage())))
+                .withPropertyValues(
+                        "logger.publisher.mode=spool",
+                        "logger.publisher.spool.directory=" + directory,
+                        "logger.publisher.spool.retry-interval=10ms",
+                        "logger.publisher.batch.max-latency=10ms")
+                .run(context -> {
+                    LoggerEventPublisher publisher = context.getBean(LoggerEventPublisher.class);
+                    publisher.publish(createEvent("1"));
+                    assertTrue(await(() -> flakyReceived.size() == 1));
+                    assertTrue(await(() -> batchReceived.size() == 1));
+                    TimeUnit.MILLISECONDS.sleep(50);
+
+                    assertEquals(3, publisher.getFailedCount());
+                    assertEquals(1, publisher.getPublishedCount());
+                    assertEquals(Collections.singletonList("1"), healthyReceived);
+                    assertEquals(Collections.singletonList("1"), batchReceived);
+                    assertEquals(Collections.singletonList("1"), flakyReceived);
+                });
+    }
+
+    @Test
+    void stopWhileListenerBlocked() throws Exception {
+        CountDownLatch entered = new CountDownLatch(1);
+        LoggerPublisherProperties properties = createProperties();
+        SpoolLoggerEventPublisher publisher = new SpoolLoggerEventPublisher(
+                event -> {
+                    entered.countDown();
+                    try {
+                        new CountDownLatch(1).await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new IllegalStateException("The listener is interrupted.", e);
+                    }
+                },
+                properties);
+        publisher.publish(createEvent("0"));
+        assertTrue(entered.await(5, TimeUnit.SECONDS));
+
+        // The consumer is interrupted and exited before the spool closed, the event is kept
+        publisher.stop();
+        assertEquals(1, publisher.getQueueDepth());
+
+        List<String> received = new CopyOnWriteArrayList<>();
+        SpoolLoggerEventPublisher restarted =
+                new SpoolLoggerEventPublisher(event -> received.add(event.getMessage()), properties);
+        assertTrue(await(() -> received.size() == 1));
+        assertEquals("0", received.get(0));
+        restarted.stop();
+    }
+
+    @Test
+    void rotateSegments() throws Exception {
+        byte[] payload = new byte[100];
+        LoggerSpool spool = new LoggerSpool(directory, 1024, 3);
+        int appended = 0;
+        while (spool.append(payload, System.currentTimeMillis())) {
+            appended++;
+        }
+        // About 8 records of 116 bytes per segment, the spool is full with 3 segments
+        assertEquals(3, spool.getSegmentCount());
+        assertEquals(24, appended);
+        assertEquals(appended, spool.size());
+        assertFalse(spool.append(new byte[2048], System.currentTimeMillis()));
+
+        // The finished segments are deleted once read
+        for (int i = 0; i < 20; i++) {
+            assertNotNull(spool.peek());
+            spool.commit();
+        }
+        assertEquals(1, spool.getSegmentCount());
+        assertTrue(spool.append(payload, System.currentTimeMillis()));
+        spool.close();
+
+        LoggerSpool reopened = new LoggerSpool(directory, 1024, 3);
+        assertEquals(5, reopened.size());
+        int read = 0;
+        while (reopened.peek() != null) {
+            reopened.commit();
+            read++;
+        }
+        assertEquals(5, read);
+        reopened.close();
+    }
+
+    @Test
+    void recoverPayloads() throws Exception {
+        LoggerSpool spool = new LoggerSpool(directory, 4096, 2);
+        for (int i = 0; i < 5; i++) {
+            assertTrue(spool.append(String.valueOf(i).getBytes(StandardCharsets.UTF_8), i));
+        }
+        assertEquals("0", new String(spool.peek().getPayload(), StandardCharsets.UTF_8));
+        spool.commit();
+        // Peeked but not committed, read again after restart
+        assertEquals("1", new String(spool.peek().getPayload(), StandardCharsets.UTF_8));
+        spool.close();
+
+        LoggerSpool reopened = new LoggerSpool(directory, 4096, 2);
+        List<String> payloads = new ArrayList<>();
+        LoggerSpool.Record record;
+        while ((record = reopened.peek()) != null) {
+            payloads.add(new String(record.getPayload(), StandardCharsets.UTF_8) + "@" + record.getWriteMillis());
+            reopened.commit();
+        }
+        assertEquals(Arrays.asList("1@1", "2@2", "3@3", "4@4"), payloads);
+        reopened.close();
+    }
+
+    @Test
+    void dropWhenSpoolFull() {
+        // The spooled events are never evicted, DROP_OLDEST drops the event being published instead
+        for (OverflowPolicy policy : Arrays.asList(OverflowPolicy.DROP_NEWEST, OverflowPolicy.DROP_OLDEST)) {
+            LoggerPublisherProperties properties = createProperties();
+            properties.getSpool().setDirectory(directory.resolve(policy.name()).toString());
+            properties.getSpool().setSegmentSize(DataSize.ofBytes(1024));
+            properties.getSpool().setMaxSegments(2);
+            properties.getOverflow().setPolicy(policy);
+            SpoolLoggerEventPublisher publisher = new SpoolLoggerEventPublisher(
+                    event -> {
+                        throw new IllegalStateException("The listener is down.");
+                    },
+                    properties);
+            for (int i = 0; i < 100; i++) {
+                publisher.publish(createEvent(String.valueOf(i)));
+            }
+            assertEquals(2, publisher.getSegmentCount(), policy.name());
+            assertTrue(publisher.getDroppedCount() > 0, policy.name());
+            assertEquals(
+                    publisher.getDroppedCount(), publisher.getDroppedCounts().get(OverflowPolicy.DROP_NEWEST));
+            assertEquals(100, publisher.getQueueDepth() + publisher.getDroppedCount(), policy.name());
+            publisher.stop();
+        }
+    }
+
+    @Test
+    void selectSpoolPublisher() {
+        new ApplicationContextRunner()
+                .withConfiguration(AutoConfigurations.of(LoggerAutoConfiguration.class))
+                .withPropertyValues("logger.publisher.mode=spool", "logger.publisher.spool.directory=" + directory)
+                .run(context -> assertThat(context)
+                        .getBean(LoggerEventPublisher.class)
+                        .isInstanceOf(SpoolLoggerEventPublisher.class));
+    }
+
+    static class LoggerEventListener implements ApplicationListener<LoggerEvent> {
+
+        private final Consumer<LoggerEvent> consumer;
+
+        LoggerEventListener(Consumer<LoggerEvent> consumer) {
+            this.consumer = consumer;
+        }
+
+        @Override
+        public void onApplicationEvent(LoggerEvent event) {
+            consumer.accept(event);
+        }
+    }
+
+    private LoggerPublisherProperties createProperties() {
+        LoggerPublisherProperties properties = new LoggerPublisherProperties();
+        properties.setMode(LoggerPublisherProperties.Mode.SPOOL);
+        properties.setShutdownTimeout(Duration.ofMillis(100));
+        properties.getSpool().setDirectory(directory.toString());
+        properties.getSpool().setSegmentSize(DataSize.ofKilobytes(64));
+        properties.getSpool().setRetryInterval(Duration.ofMillis(10));
+        return properties;
+    }
+
+    private LoggerEvent createEvent(String message) {
+        LoggerEvent event = new LoggerEvent(this);
+        event.setLogId(message);
+        event.setMessage(message);
+        event.setBusinessId("B" + message);
+        return event;
+    }
+
+    private static List<String> expectedMessages() {
+        List<String> messages = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            messages.add(String.valueOf(i));
+        }
+        return messages;
+    }
+
+    private static boolean await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean()) {
+            if (System.nanoTime() - deadline > 0) {
+                return false;
+            }
+            TimeUnit.MILLISECONDS.sleep(5);
+        }
+        return true;
+    }
+}